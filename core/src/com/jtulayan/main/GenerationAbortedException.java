@@ -0,0 +1,46 @@
+package com.jtulayan.main;
+
+import jaci.pathfinder.Pathfinder;
+
+/**
+ * Thrown when trajectory generation is stopped before it finishes, rather than failing on its own.
+ * This is a {@link Pathfinder.GenerationException}, so callers that only care whether generation worked
+ * don't need to handle it separately.
+ */
+public class GenerationAbortedException extends Pathfinder.GenerationException {
+    public enum Reason {
+        /**
+         * Generation took longer than its budget allows.
+         */
+        TIMEOUT,
+
+        /**
+         * The trajectories would need more memory than the budget allows.
+         */
+        MEMORY,
+
+        /**
+         * Generation was cancelled, e.g. because its result is no longer needed.
+         */
+        CANCELLED,
+
+        /**
+         * Too many earlier generations are still running after timing out or being cancelled; see {@link GenerationBudget}.
+         */
+        STALLED
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    private final Reason reason;
+
+    public GenerationAbortedException(Reason reason, String message) {
+        super(message);
+
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,47 @@
+package com.jtulayan.main;
+
+/**
+ * Limits on the time and memory a single trajectory generation may use.
+ * Generation that exceeds its budget fails with a {@link GenerationAbortedException}.
+ * <p>
+ * Native generation can't be interrupted, so a generation that times out or is cancelled keeps running
+ * on a background thread until it finishes on its own. Once as many of these are still running as there are processors (at least 2),
+ * further generations with a timeout fail right away with {@link GenerationAbortedException.Reason#STALLED},
+ * instead of competing with them for the CPU.
+ */
+public class GenerationBudget {
+    /**
+     * No limits; generation runs on the calling thread, same as without a budget.
+     */
+    public static final GenerationBudget UNLIMITED = new GenerationBudget(0, 0);
+
+    private final long timeout;
+    private final long maxMemory;
+
+    /**
+     * Creates a generation budget.
+     *
+     * @param timeout   the maximum time to wait for generation, in milliseconds, or 0 for no limit
+     * @param maxMemory the maximum estimated memory for the generated trajectories, in bytes, or 0 for no limit
+     */
+    public GenerationBudget(long timeout, long maxMemory) {
+        this.timeout = Math.max(0, timeout);
+        this.maxMemory = Math.max(0, maxMemory);
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    public boolean hasTimeout() {
+        return timeout > 0;
+    }
+
+    public boolean hasMemoryLimit() {
+        return maxMemory > 0;
+    }
+}
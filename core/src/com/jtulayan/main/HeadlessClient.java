@@ -0,0 +1,757 @@
+package com.jtulayan.main;
+
+import com.jtulayan.ui.cli.ExportPipeline;
+import com.jtulayan.ui.cli.GenerationDaemon;
+import com.jtulayan.ui.cli.KeepOutCheck;
+import com.jtulayan.ui.cli.LookupBenchmark;
+import com.jtulayan.ui.cli.MPGenCLI;
+import com.jtulayan.ui.cli.ParameterSweep;
+import com.jtulayan.ui.cli.PreviewRenderer;
+import com.jtulayan.ui.cli.ShardedExport;
+import com.jtulayan.ui.cli.SplineBenchmark;
+import com.jtulayan.ui.cli.StressTest;
+import com.jtulayan.util.KeepOutZones;
+import com.jtulayan.util.Metrics;
+import com.jtulayan.util.OdometryImporter;
+import com.jtulayan.util.TrackingComparison;
+import com.jtulayan.util.TrajectoryCompressor;
+import com.jtulayan.util.WaypointValidator;
+import com.jtulayan.util.jfr.FlightRecording;
+import org.apache.commons.cli.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * Entry point for no-gui mode.
+ * Nothing in the core module depends on JavaFX, so batch runs never load or need it.
+ */
+public class HeadlessClient {
+    private static CommandLine cmd;
+
+    private HeadlessClient() {
+        // Do not instantiate
+    }
+
+    public static void main(String[] args) {
+        Options options = new Options();
+        CommandLineParser parser = new DefaultParser();
+
+        buildOptions(options);
+
+        try {
+            cmd = parser.parse(options, args);
+
+            if (cmd.hasOption("h")) {
+                HelpFormatter formatter = new HelpFormatter();
+                formatter.printHelp("pathplanner [OPTIONS...]", options);
+                System.exit(0); // Break out here; there's no reason to use other arguments if you need help.
+            }
+
+            run(cmd);
+        } catch (Exception e) {
+            System.out.println("Oops, something went wrong!");
+            e.printStackTrace();
+        } finally {
+            System.exit(0);
+        }
+    }
+
+    /**
+     * Runs all CLI tasks given on the command line.
+     *
+     * @param commandLine the parsed command line
+     * @throws Exception if any task fails
+     */
+    public static void run(CommandLine commandLine) throws Exception {
+        cmd = commandLine;
+
+        FlightRecording recording = null;
+
+        // A daemon on stdio answers on stdout, so anything else goes to stderr
+        PrintStream log = cmd.hasOption("daemon") && !cmd.hasOption("daemon-port") ? System.err : System.out;
+
+        if (cmd.hasOption("jfr")) {
+            if (Metrics.isJfrAvailable())
+                recording = new FlightRecording(new File(cmd.getOptionValue("jfr")));
+            else
+                log.println("Flight Recorder is not available on this JVM; not recording!");
+        }
+
+        try {
+            runTasks();
+        } finally {
+            if (recording != null) {
+                recording.close();
+                log.println("Wrote flight recording to " + cmd.getOptionValue("jfr"));
+            }
+
+            if (cmd.hasOption("stats"))
+                log.print(Metrics.report());
+        }
+    }
+
+    private static void runTasks() throws Exception {
+        if (cmd.hasOption("daemon") || cmd.hasOption("daemon-port")) {
+            GenerationDaemon daemon = new GenerationDaemon(getThreads(), getThreads() * 4);
+
+            daemon.setGenerationBudget(createBudget());
+
+            if (cmd.hasOption("daemon-port"))
+                daemon.listen(Integer.parseInt(cmd.getOptionValue("daemon-port")));
+            else
+                daemon.serve(System.in, System.out);
+
+            return;
+        }
+
+        if (cmd.hasOption("merge-reports")) {
+            if (!cmd.hasOption("report"))
+                throw new IllegalArgumentException("Merging reports needs a report file to write to!");
+
+            ShardedExport.mergeReports(cmd.getOptionValues("merge-reports"), new File(cmd.getOptionValue("report")));
+            return;
+        }
+
+        if (cmd.hasOption("benchmark-lookup")) {
+            new LookupBenchmark().run(Integer.parseInt(cmd.getOptionValue("benchmark-lookup")));
+            return;
+        }
+
+        if (cmd.hasOption("benchmark-splines")) {
+            new SplineBenchmark().run(Integer.parseInt(cmd.getOptionValue("benchmark-splines")));
+            return;
+        }
+
+        if (cmd.hasOption("import-log")) {
+            importLog(new File(cmd.getOptionValue("import-log")));
+            return;
+        }
+
+        if (cmd.hasOption("compare-log")) {
+            compareLog(new File(cmd.getOptionValue("compare-log")));
+            return;
+        }
+
+        if (cmd.hasOption("stress")) {
+            StressTest stress = new StressTest();
+
+            stress.setThreads(getThreads());
+            stress.setExtension(cmd.getOptionValue("x", "csv"));
+
+            if (cmd.hasOption("seed"))
+                stress.setSeed(Long.parseLong(cmd.getOptionValue("seed")));
+
+            stress.run(Integer.parseInt(cmd.getOptionValue("stress")));
+            return;
+        }
+
+        if (cmd.hasOption("i") || cmd.hasOption("f")) {
+            String[] files;
+            String outDir;
+            String ext = cmd.getOptionValue("x", "csv");
+
+            if (cmd.hasOption("i")) {
+                String inDir = cmd.getOptionValue("i");
+
+                // Only exports through MPGenCLI can generate chains
+                boolean chains = !cmd.hasOption("keep-out") && !cmd.hasOption("sweep") && !cmd.hasOption("stream");
+
+                files = MPGenCLI.listProjects(inDir, chains);
+                outDir = cmd.getOptionValue("o", inDir);
+            } else {
+                files = cmd.getOptionValues("f");
+                outDir = cmd.getOptionValue("o", System.getProperty("user.dir"));
+            }
+
+            if (cmd.hasOption("shard")) {
+                String[] shard = cmd.getOptionValue("shard").split("/");
+
+                if (shard.length != 2)
+                    throw new IllegalArgumentException("Shards must be in the format i/n!");
+
+                files = ShardedExport.shard(files, Integer.parseInt(shard[0].trim()), Integer.parseInt(shard[1].trim()));
+            }
+
+            if (cmd.hasOption("keep-out")) {
+                KeepOutCheck check = new KeepOutCheck(KeepOutZones.read(new File(cmd.getOptionValue("keep-out"))));
+
+                check.setThreads(getThreads());
+                check.run(files);
+            } else if (cmd.hasOption("sweep")) {
+                ParameterSweep sweep = createSweep();
+                sweep.run(files, new File(cmd.getOptionValue("sweep")));
+            } else if (cmd.hasOption("stream")) {
+                if (cmd.hasOption("t"))
+                    throw new IllegalArgumentException("Streaming exports can't be resampled to other time steps!");
+                if (cmd.hasOption("preview"))
+                    throw new IllegalArgumentException("Streaming exports can't render previews!");
+
+                ExportPipeline pipeline = new ExportPipeline();
+                pipeline.setThreads(getThreads());
+                pipeline.setGenerationBudget(createBudget());
+                pipeline.setExportSpatialIndex(cmd.hasOption("spatial-index"));
+
+                if (cmd.hasOption("compress"))
+                    pipeline.setCompression(TrajectoryCompressor.Tolerance.parse(cmd.getOptionValue("compress")));
+
+                pipeline.run(files, outDir, ext);
+            } else if (cmd.hasOption("watch")) {
+                if (!cmd.hasOption("i"))
+                    throw new IllegalArgumentException("Watch mode needs an import directory!");
+
+                MPGenCLI gen = createCLI();
+                gen.setWatch(true);
+                gen.export(cmd.getOptionValue("i"), outDir, ext);
+            } else if (cmd.hasOption("claim-dir") || cmd.hasOption("report")) {
+                ShardedExport sharded = new ShardedExport(createCLI());
+
+                if (cmd.hasOption("claim-dir"))
+                    sharded.setClaimDir(new File(cmd.getOptionValue("claim-dir")));
+                if (cmd.hasOption("claim-timeout"))
+                    sharded.setClaimTimeout((long) (Double.parseDouble(cmd.getOptionValue("claim-timeout")) * 1000));
+                if (cmd.hasOption("report"))
+                    sharded.setReport(new File(cmd.getOptionValue("report")));
+
+                sharded.run(files, outDir, ext);
+            } else {
+                MPGenCLI gen = createCLI();
+                gen.export(files, outDir, ext);
+            }
+        }
+    }
+
+    /**
+     * Imports an odometry log into a new project, saved to the output directory with the log's name.
+     * The project keeps the default configuration, in the log's units.
+     *
+     * @param log the CSV log to import
+     */
+    private static void importLog(File log) throws Exception {
+        Pathplanner.Units units = Pathplanner.Units.valueOf(cmd.getOptionValue("log-units", "metric").toUpperCase());
+        double tolerance = Double.parseDouble(cmd.getOptionValue("log-tolerance", "0.05"));
+        OdometryImporter importer = new OdometryImporter(tolerance);
+
+        if (cmd.hasOption("log-columns")) {
+            String[] columns = cmd.getOptionValue("log-columns").split(",");
+
+            if (columns.length != 2)
+                throw new IllegalArgumentException("Log columns must be in the format x,y!");
+
+            importer.setColumns(Integer.parseInt(columns[0].trim()), Integer.parseInt(columns[1].trim()));
+        }
+
+        Pathplanner backend = new Pathplanner();
+        String name = log.getName().replaceFirst("\\.[^.]*$", "");
+        File project = new File(cmd.getOptionValue("o", System.getProperty("user.dir")), name + "." + Pathplanner.PROJECT_EXTENSION);
+        long start = System.nanoTime();
+
+        backend.importOdometryLog(log, units, importer);
+
+        System.out.println(String.format("Imported %d waypoints from %d samples (%d rows) in %.1f ms",
+                backend.getWaypointsSize(), importer.getSamples(), importer.getRows(), (System.nanoTime() - start) / 1e6));
+
+        WaypointValidator.Problem problem = WaypointValidator.findFirst(backend.getWaypointsList());
+
+        if (problem != null)
+            System.out.println("Warning: the imported waypoints can't be generated as is: " + problem);
+
+        backend.saveProjectAs(project);
+        System.out.println("Saved project to " + project);
+    }
+
+    /**
+     * Compares an odometry log against the trajectory of the project given with -f, and writes a decimated overlay
+     * of the log to the output directory, named after the log.
+     *
+     * @param log the CSV log to compare
+     */
+    private static void compareLog(File log) throws Exception {
+        if (!cmd.hasOption("f"))
+            throw new IllegalArgumentException("Comparing a log needs the project it followed, given with -f!");
+
+        Pathplanner backend = new Pathplanner();
+        Pathplanner.Units logUnits = Pathplanner.Units.valueOf(cmd.getOptionValue("log-units", "metric").toUpperCase());
+
+        backend.loadProject(new File(cmd.getOptionValues("f")[0]));
+        backend.updateTrajectories();
+
+        TrackingComparison comparison = new TrackingComparison(backend.getSourceTrajectory());
+
+        comparison.setThreads(getThreads());
+
+        if (cmd.hasOption("log-offset"))
+            comparison.setTimeOffset(Double.parseDouble(cmd.getOptionValue("log-offset")));
+
+        long start = System.nanoTime();
+        TrackingComparison.Result result = comparison.compare(log, logUnits.getScale());
+        double scale = backend.getUnits().getScale();
+        String name = log.getName().replaceFirst("\\.[^.]*$", "");
+        File overlay = new File(cmd.getOptionValue("o", System.getProperty("user.dir")), name + "_overlay.csv");
+
+        System.out.println(String.format("Read %d rows in %.1f ms", result.getRows(), (System.nanoTime() - start) / 1e6));
+        System.out.print(result.summary(scale));
+
+        result.getOverlay().write(overlay, scale);
+        System.out.println("Wrote " + result.getOverlay().size() + " overlay points to " + overlay);
+    }
+
+    /**
+     * Creates a CLI generator configured from the parsed command line.
+     *
+     * @return the configured CLI generator
+     * @throws IOException if the preview overlay image can't be read
+     */
+    private static MPGenCLI createCLI() throws IOException {
+        MPGenCLI gen = new MPGenCLI();
+
+        if (cmd.hasOption("t")) {
+            String[] vals = cmd.getOptionValues("t");
+            double[] timeSteps = new double[vals.length];
+
+            for (int i = 0; i < vals.length; i++) {
+                timeSteps[i] = Double.parseDouble(vals[i].trim());
+
+                if (!(timeSteps[i] > 0))
+                    throw new IllegalArgumentException("Time steps must be positive, but got " + vals[i].trim() + "!");
+            }
+
+            // Fail before exporting anything if any time step's files would overwrite another's
+            Pathplanner.checkTimeSteps(timeSteps);
+            gen.setTimeSteps(timeSteps);
+        }
+
+        gen.setVerifyResample(cmd.hasOption("verify-resample"));
+        gen.setThreads(getThreads());
+        gen.setGenerationBudget(createBudget());
+        gen.setExportSpatialIndex(cmd.hasOption("spatial-index"));
+        gen.setSplitChains(cmd.hasOption("split-chains"));
+
+        if (cmd.hasOption("compress"))
+            gen.setCompression(TrajectoryCompressor.Tolerance.parse(cmd.getOptionValue("compress")));
+
+        if (cmd.hasOption("preview"))
+            gen.setPreviews(createPreviews());
+
+        return gen;
+    }
+
+    /**
+     * Creates the preview renderer configured from the parsed command line.
+     *
+     * @return the configured preview renderer
+     * @throws IOException if the overlay image can't be read
+     */
+    private static PreviewRenderer createPreviews() throws IOException {
+        // Previews are drawn with AWT, which must not look for a display in batch runs
+        if (System.getProperty("java.awt.headless") == null)
+            System.setProperty("java.awt.headless", "true");
+
+        PreviewRenderer previews = new PreviewRenderer();
+
+        if (cmd.hasOption("preview-width"))
+            previews.setWidth(Integer.parseInt(cmd.getOptionValue("preview-width")));
+        if (cmd.hasOption("preview-overlay"))
+            previews.setOverlay(new File(cmd.getOptionValue("preview-overlay")));
+
+        return previews;
+    }
+
+    /**
+     * Creates a parameter sweep configured from the parsed command line.
+     *
+     * @return the configured parameter sweep
+     */
+    private static ParameterSweep createSweep() {
+        ParameterSweep sweep = new ParameterSweep();
+
+        if (cmd.hasOption("sweep-velocity"))
+            sweep.setVelocity(ParameterSweep.Range.parse(cmd.getOptionValue("sweep-velocity")));
+        if (cmd.hasOption("sweep-acceleration"))
+            sweep.setAcceleration(ParameterSweep.Range.parse(cmd.getOptionValue("sweep-acceleration")));
+        if (cmd.hasOption("sweep-jerk"))
+            sweep.setJerk(ParameterSweep.Range.parse(cmd.getOptionValue("sweep-jerk")));
+        if (cmd.hasOption("sweep-dt"))
+            sweep.setTimeStep(ParameterSweep.Range.parse(cmd.getOptionValue("sweep-dt")));
+        if (cmd.hasOption("max-wheel-velocity"))
+            sweep.setMaxWheelVelocity(Double.parseDouble(cmd.getOptionValue("max-wheel-velocity")));
+
+        sweep.setThreads(getThreads());
+        sweep.setGenerationBudget(createBudget());
+
+        return sweep;
+    }
+
+    /**
+     * Creates the generation budget for each project from the parsed command line.
+     *
+     * @return the generation budget, unlimited unless a timeout or memory budget is given
+     */
+    private static GenerationBudget createBudget() {
+        long timeout = 0;
+        long maxMemory = 0;
+
+        if (cmd.hasOption("timeout"))
+            timeout = (long) (Double.parseDouble(cmd.getOptionValue("timeout")) * 1000);
+        if (cmd.hasOption("memory-budget"))
+            maxMemory = (long) (Double.parseDouble(cmd.getOptionValue("memory-budget")) * 1e6);
+
+        return new GenerationBudget(timeout, maxMemory);
+    }
+
+    /**
+     * Gets the amount of worker threads to use for parallel tasks.
+     *
+     * @return the thread count given on the command line, or the amount of available processors
+     */
+    private static int getThreads() {
+        if (cmd.hasOption("threads"))
+            return Math.max(1, Integer.parseInt(cmd.getOptionValue("threads")));
+
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Adds all command line options to the given options.
+     *
+     * @param opt the options to add to
+     */
+    public static void buildOptions(Options opt) {
+        // Flags
+        Option help = new Option("h", "help", false,"display help dialog");
+        Option noGUI = new Option("n", "no-gui", false,"no-gui mode");
+        Option verifyResample = Option.builder()
+                .longOpt("verify-resample")
+                .desc("report the error of resampled trajectories against direct generation")
+                .build();
+        Option stream = Option.builder()
+                .longOpt("stream")
+                .desc("export through a bounded load, generate and write pipeline, so memory use doesn't grow with the amount of projects")
+                .build();
+        Option watch = Option.builder()
+                .longOpt("watch")
+                .desc("keep regenerating projects in the import directory whenever they are saved")
+                .build();
+
+        // Args
+        Option outputDir = Option.builder("o")
+                .longOpt("output-dir")
+                .hasArg(true)
+                .argName("dir")
+                .desc("define export directory for all trajectories")
+                .build();
+
+        Option ext = Option.builder("x")
+                .longOpt("file-extension")
+                .hasArg(true)
+                .argName("ext")
+                .desc("define the filetype for the exported trajectories; possible options: csv, traj")
+                .build();
+
+        Option importDir = Option.builder("i")
+                .longOpt("import-dir")
+                .hasArg(true)
+                .argName("dir")
+                .desc("define directory containing all project and chain files to generate trajectories for")
+                .build();
+
+        Option importFiles = Option.builder("f")
+                .longOpt("import-files")
+                .hasArg(true)
+                .argName("file1,file2,...")
+                .valueSeparator(',')
+                .desc("define project and chain files to generate trajectories for")
+                .build();
+
+        Option timeSteps = Option.builder("t")
+                .longOpt("time-steps")
+                .hasArgs()
+                .argName("dt1,dt2,...")
+                .valueSeparator(',')
+                .desc("export each trajectory resampled to every given time step, in seconds")
+                .build();
+
+        Option sweep = Option.builder()
+                .longOpt("sweep")
+                .hasArg(true)
+                .argName("file")
+                .desc("sweep the configuration of each project in parallel and write the results to a CSV file")
+                .build();
+
+        Option sweepVelocity = Option.builder()
+                .longOpt("sweep-velocity")
+                .hasArg(true)
+                .argName("min:max:step")
+                .desc("define the range of max velocities to sweep")
+                .build();
+
+        Option sweepAcceleration = Option.builder()
+                .longOpt("sweep-acceleration")
+                .hasArg(true)
+                .argName("min:max:step")
+                .desc("define the range of max accelerations to sweep")
+                .build();
+
+        Option sweepJerk = Option.builder()
+                .longOpt("sweep-jerk")
+                .hasArg(true)
+                .argName("min:max:step")
+                .desc("define the range of max jerks to sweep")
+                .build();
+
+        Option sweepTimeStep = Option.builder()
+                .longOpt("sweep-dt")
+                .hasArg(true)
+                .argName("min:max:step")
+                .desc("define the range of time steps to sweep")
+                .build();
+
+        Option maxWheelVelocity = Option.builder()
+                .longOpt("max-wheel-velocity")
+                .hasArg(true)
+                .argName("velocity")
+                .desc("reject swept configurations where any wheel exceeds this velocity")
+                .build();
+
+        Option daemon = Option.builder()
+                .longOpt("daemon")
+                .desc("serve JSON-lines generation requests from stdin until it is closed")
+                .build();
+
+        Option daemonPort = Option.builder()
+                .longOpt("daemon-port")
+                .hasArg(true)
+                .argName("port")
+                .desc("serve JSON-lines generation requests on a localhost port; 0 picks a free port")
+                .build();
+
+        Option threads = Option.builder()
+                .longOpt("threads")
+                .hasArg(true)
+                .argName("n")
+                .desc("define the amount of worker threads for sweeps, streaming exports, watch mode and the daemon")
+                .build();
+
+        Option shard = Option.builder()
+                .longOpt("shard")
+                .hasArg(true)
+                .argName("i/n")
+                .desc("only export shard i of n of the projects, counting from 0")
+                .build();
+
+        Option claimDir = Option.builder()
+                .longOpt("claim-dir")
+                .hasArg(true)
+                .argName("dir")
+                .desc("claim projects through lock files in a directory shared with other processes")
+                .build();
+
+        Option claimTimeout = Option.builder()
+                .longOpt("claim-timeout")
+                .hasArg(true)
+                .argName("seconds")
+                .desc("define how old a claim must be before it's taken over from a crashed process; defaults to 300")
+                .build();
+
+        Option report = Option.builder()
+                .longOpt("report")
+                .hasArg(true)
+                .argName("file")
+                .desc("write a CSV report of every exported project, or the merged report")
+                .build();
+
+        Option mergeReports = Option.builder()
+                .longOpt("merge-reports")
+                .hasArgs()
+                .argName("file1,file2,...")
+                .valueSeparator(',')
+                .desc("merge the reports of several processes into the report file")
+                .build();
+
+        Option timeout = Option.builder()
+                .longOpt("timeout")
+                .hasArg(true)
+                .argName("seconds")
+                .desc("fail any project that takes longer than this to generate")
+                .build();
+
+        Option memoryBudget = Option.builder()
+                .longOpt("memory-budget")
+                .hasArg(true)
+                .argName("MB")
+                .desc("fail any project whose trajectories are estimated to need more memory than this")
+                .build();
+
+        Option stress = Option.builder()
+                .longOpt("stress")
+                .hasArg(true)
+                .argName("cases")
+                .desc("generate and export random paths with every drive base and fit method, and report latency percentiles")
+                .build();
+
+        Option seed = Option.builder()
+                .longOpt("seed")
+                .hasArg(true)
+                .argName("seed")
+                .desc("seed for the random stress test paths, to reproduce a run")
+                .build();
+
+        Option spatialIndex = Option.builder()
+                .longOpt("spatial-index")
+                .desc("also export a spatial index of each trajectory's path, for finding the closest point on it")
+                .build();
+
+        Option compress = Option.builder()
+                .longOpt("compress")
+                .hasArg(true)
+                .argName("position,velocity,heading")
+                .desc("drop segments that can be interpolated back within these errors, in the project's units and degrees")
+                .build();
+
+        Option benchmarkLookup = Option.builder()
+                .longOpt("benchmark-lookup")
+                .hasArg(true)
+                .argName("segments")
+                .desc("benchmark looking up trajectory states by time, distance and closest position")
+                .build();
+
+        Option benchmarkSplines = Option.builder()
+                .longOpt("benchmark-splines")
+                .hasArg(true)
+                .argName("samples")
+                .desc("benchmark integrating spline lengths with batch kernels against one sample at a time")
+                .build();
+
+        Option importLog = Option.builder()
+                .longOpt("import-log")
+                .hasArg(true)
+                .argName("csv")
+                .desc("import a recorded odometry log as the fewest waypoints that follow it, into a project in the output directory")
+                .build();
+
+        Option logTolerance = Option.builder()
+                .longOpt("log-tolerance")
+                .hasArg(true)
+                .argName("distance")
+                .desc("largest distance between the imported log and its waypoints, in the log's units; defaults to 0.05")
+                .build();
+
+        Option logUnits = Option.builder()
+                .longOpt("log-units")
+                .hasArg(true)
+                .argName("metric|imperial")
+                .desc("distance units of the imported log; defaults to metric")
+                .build();
+
+        Option logColumns = Option.builder()
+                .longOpt("log-columns")
+                .hasArg(true)
+                .argName("x,y")
+                .desc("columns of the imported log holding x and y, counting from 0; found from the header by default")
+                .build();
+
+        Option compareLog = Option.builder()
+                .longOpt("compare-log")
+                .hasArg(true)
+                .argName("csv")
+                .desc("compare a recorded odometry log against the trajectory of the project given with -f")
+                .build();
+
+        Option logOffset = Option.builder()
+                .longOpt("log-offset")
+                .hasArg(true)
+                .argName("seconds")
+                .desc("time in the compared log when the trajectory started; found from when the robot first moves by default")
+                .build();
+
+        Option keepOut = Option.builder()
+                .longOpt("keep-out")
+                .hasArg(true)
+                .argName("file")
+                .desc("check the imported projects against a field's keep-out zones instead of exporting them")
+                .build();
+
+        Option preview = Option.builder()
+                .longOpt("preview")
+                .desc("render a PNG preview of each exported project next to its trajectories, in parallel")
+                .build();
+
+        Option previewOverlay = Option.builder()
+                .longOpt("preview-overlay")
+                .hasArg(true)
+                .argName("image")
+                .desc("field image to draw under the previewed paths")
+                .build();
+
+        Option previewWidth = Option.builder()
+                .longOpt("preview-width")
+                .hasArg(true)
+                .argName("pixels")
+                .desc("width of each preview image; 960 by default")
+                .build();
+
+        Option splitChains = Option.builder()
+                .longOpt("split-chains")
+                .desc("export each segment of a chain (*.chain) to its own files, instead of one stitched trajectory")
+                .build();
+
+        Option stats = Option.builder()
+                .longOpt("stats")
+                .desc("print how long each generation phase took once done")
+                .build();
+
+        Option jfr = Option.builder()
+                .longOpt("jfr")
+                .hasArg(true)
+                .argName("file")
+                .desc("record generation phases, garbage collection and allocation to a flight recording")
+                .build();
+
+        opt.addOption(help);
+        opt.addOption(noGUI);
+        opt.addOption(outputDir);
+        opt.addOption(importDir);
+        opt.addOption(importFiles);
+        opt.addOption(ext);
+        opt.addOption(timeSteps);
+        opt.addOption(verifyResample);
+        opt.addOption(watch);
+        opt.addOption(stream);
+        opt.addOption(sweep);
+        opt.addOption(sweepVelocity);
+        opt.addOption(sweepAcceleration);
+        opt.addOption(sweepJerk);
+        opt.addOption(sweepTimeStep);
+        opt.addOption(maxWheelVelocity);
+        opt.addOption(daemon);
+        opt.addOption(daemonPort);
+        opt.addOption(threads);
+        opt.addOption(shard);
+        opt.addOption(claimDir);
+        opt.addOption(claimTimeout);
+        opt.addOption(report);
+        opt.addOption(mergeReports);
+        opt.addOption(timeout);
+        opt.addOption(memoryBudget);
+        opt.addOption(stress);
+        opt.addOption(seed);
+        opt.addOption(spatialIndex);
+        opt.addOption(compress);
+        opt.addOption(benchmarkLookup);
+        opt.addOption(benchmarkSplines);
+        opt.addOption(importLog);
+        opt.addOption(logTolerance);
+        opt.addOption(logUnits);
+        opt.addOption(logColumns);
+        opt.addOption(compareLog);
+        opt.addOption(logOffset);
+        opt.addOption(keepOut);
+        opt.addOption(preview);
+        opt.addOption(previewOverlay);
+        opt.addOption(previewWidth);
+        opt.addOption(splitChains);
+        opt.addOption(stats);
+        opt.addOption(jfr);
+    }
+}
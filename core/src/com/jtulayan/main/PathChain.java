@@ -0,0 +1,581 @@
+package com.jtulayan.main;
+
+import com.jtulayan.util.HermiteSplines;
+import com.jtulayan.util.Metrics;
+import com.jtulayan.util.TrajectoryCompressor;
+import com.jtulayan.util.WaypointValidator;
+import jaci.pathfinder.Pathfinder;
+import jaci.pathfinder.Trajectory;
+import jaci.pathfinder.Trajectory.Config;
+import jaci.pathfinder.Waypoint;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A sequence of projects driven one after the other, e.g. drive out, pick up, drive back,
+ * stitched into one continuous trajectory.
+ * <p>
+ * A chain is saved as XML, listing its segments in order:
+ * <pre>
+ * &lt;Chain&gt;
+ *     &lt;Segment project="drive.xml"/&gt;
+ *     &lt;Segment project="pickup.xml" joint="CONTINUE"/&gt;
+ *     &lt;Segment project="back.xml" joint="STOP"/&gt;
+ * &lt;/Chain&gt;
+ * </pre>
+ * Project paths are relative to the chain file. Each segment must start where the one before it ends.
+ * A segment's joint says how the robot gets onto it: at {@link Joint#STOP} the robot comes to rest first,
+ * and at {@link Joint#CONTINUE} it drives through without slowing down.
+ * <p>
+ * Segments joined by {@code CONTINUE} are generated together as one path, with the settings of the first of them,
+ * since every generated trajectory starts and ends at rest. Each of these runs is generated on its own thread,
+ * then the runs are stitched together: time carries on from one run to the next, and the position of every
+ * trajectory carries on from where the run before it ended. All segments must share their time step,
+ * drive base and wheel base, so the stitched trajectories are consistent throughout.
+ * <p>
+ * A swerve drive can set off in a new direction after a stop, since its heading is only the direction it drives in.
+ * A tank drive would have to turn in place, which isn't generated, so its segments must keep their heading
+ * at every joint.
+ */
+public class PathChain {
+    public static final String CHAIN_EXTENSION = "chain";
+
+    // Furthest a segment may start from where the one before it ends, in meters
+    private static final double JOINT_TOLERANCE = 0.01;
+
+    // Most a segment's heading may change where it continues from the one before it
+    private static final double JOINT_ANGLE_TOLERANCE = Math.toRadians(1);
+
+    public enum Joint {
+        STOP,
+        CONTINUE
+    }
+
+    private final List<Pathplanner> segments = new ArrayList<>();
+    private final List<String> names = new ArrayList<>();
+
+    // How each segment is joined to the one before it; always STOP for the first
+    private final List<Joint> joints = new ArrayList<>();
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    // Every segment's waypoints and configuration, with the stitched trajectories once generated
+    private Pathplanner combined;
+
+    // Index of each chain segment's first trajectory segment in the stitched trajectories, followed by their length
+    private int[] bounds;
+
+    private final Map<String, TrajectoryCompressor.Result> compressionResults = new LinkedHashMap<>();
+
+    /**
+     * Loads a chain and each of its segments' projects from file, replacing any segments already in the chain.
+     *
+     * @param path the chain file
+     * @throws IOException if the chain or one of its projects can't be read
+     * @throws ParserConfigurationException
+     * @throws SAXException
+     */
+    public void load(File path) throws IOException, ParserConfigurationException, SAXException {
+        List<Element> segmentEles = readSegments(path);
+        File dir = path.getAbsoluteFile().getParentFile();
+
+        segments.clear();
+        names.clear();
+        joints.clear();
+        releaseTrajectories();
+
+        for (Element segmentEle : segmentEles) {
+            File project = resolveProject(dir, segmentEle);
+            Pathplanner segment = new Pathplanner();
+
+            segment.loadProject(project);
+
+            if (!segment.hasWorkingProject())
+                throw new IOException("Can't load segment " + project);
+
+            String name = project.getName().replaceFirst("\\.[^.]*$", "").trim();
+            Joint joint = segmentEle.hasAttribute("joint")
+                    ? Joint.valueOf(segmentEle.getAttribute("joint").trim().toUpperCase()) : Joint.STOP;
+
+            addSegment(segment, name, joint);
+        }
+    }
+
+    /**
+     * Lists the projects a chain file refers to, without loading them.
+     *
+     * @param path the chain file
+     * @return the absolute file path of each segment's project, in order
+     * @throws IOException if the chain can't be read
+     * @throws ParserConfigurationException
+     * @throws SAXException
+     */
+    public static List<File> listProjects(File path) throws IOException, ParserConfigurationException, SAXException {
+        File dir = path.getAbsoluteFile().getParentFile();
+        List<File> projects = new ArrayList<>();
+
+        for (Element segmentEle : readSegments(path))
+            projects.add(resolveProject(dir, segmentEle));
+
+        return projects;
+    }
+
+    /**
+     * Gets the absolute path of a segment's project, which is relative to the chain's directory unless absolute.
+     */
+    private static File resolveProject(File dir, Element segmentEle) {
+        File project = new File(segmentEle.getAttribute("project"));
+
+        if (!project.isAbsolute())
+            project = new File(dir, project.getPath());
+
+        return project.getAbsoluteFile();
+    }
+
+    private static List<Element> readSegments(File path) throws IOException, ParserConfigurationException, SAXException {
+        Document dom = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(path);
+        NodeList segmentEleList = dom.getDocumentElement().getElementsByTagName("Segment");
+        List<Element> segmentEles = new ArrayList<>();
+
+        for (int i = 0; i < segmentEleList.getLength(); i++)
+            segmentEles.add((Element) segmentEleList.item(i));
+
+        return segmentEles;
+    }
+
+    /**
+     * Adds a segment to the end of the chain.
+     *
+     * @param segment the project to drive
+     * @param name    the name of the segment, used to name its exported files
+     * @param joint   how the robot gets onto the segment from the one before it; ignored for the first segment
+     */
+    public void addSegment(Pathplanner segment, String name, Joint joint) {
+        segments.add(segment);
+        names.add(name);
+        joints.add(segments.size() == 1 ? Joint.STOP : joint);
+        releaseTrajectories();
+    }
+
+    public int size() {
+        return segments.size();
+    }
+
+    public Pathplanner getSegment(int i) {
+        return segments.get(i);
+    }
+
+    public String getSegmentName(int i) {
+        return names.get(i);
+    }
+
+    public Joint getJoint(int i) {
+        return joints.get(i);
+    }
+
+    /**
+     * Sets the amount of threads to generate the chain's runs on.
+     *
+     * @param threads the amount of threads to use
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Sets the time and memory limits for generating each run of the chain.
+     *
+     * @param budget the budget to generate with, or {@link GenerationBudget#UNLIMITED}
+     */
+    public void setGenerationBudget(GenerationBudget budget) {
+        for (Pathplanner segment : segments)
+            segment.setGenerationBudget(budget);
+    }
+
+    /**
+     * Sets whether or not to write a spatial index next to each exported trajectory.
+     *
+     * @param exportSpatialIndex whether or not to export spatial indices
+     */
+    public void setExportSpatialIndex(boolean exportSpatialIndex) {
+        for (Pathplanner segment : segments)
+            segment.setExportSpatialIndex(exportSpatialIndex);
+    }
+
+    /**
+     * Sets the tolerance to compress exported trajectories within.
+     *
+     * @param compression the tolerance, in the first segment's units, or null to export every segment
+     */
+    public void setCompression(TrajectoryCompressor.Tolerance compression) {
+        for (Pathplanner segment : segments)
+            segment.setCompression(compression);
+    }
+
+    /**
+     * Generates every run of the chain in parallel, and stitches them together.
+     *
+     * @return a project holding every segment's waypoints and the stitched trajectories,
+     *         with the first segment's configuration
+     * @throws Pathfinder.GenerationException if the segments don't line up, or a run fails to generate
+     * @throws InterruptedException           if interrupted while waiting for the runs to generate
+     */
+    public Pathplanner generate() throws Pathfinder.GenerationException, InterruptedException {
+        releaseTrajectories();
+        validate();
+
+        // Split the chain into runs at every stop, merging continued segments' waypoints
+        List<Pathplanner> runs = new ArrayList<>();
+        List<List<Integer>> runSegments = new ArrayList<>();
+        List<List<Integer>> runJoints = new ArrayList<>();
+
+        for (int i = 0; i < segments.size(); i++) {
+            List<Waypoint> points = segments.get(i).getWaypointsList();
+
+            if (joints.get(i) == Joint.STOP) {
+                runs.add(new Pathplanner(segments.get(i)));
+                runs.get(runs.size() - 1).getWaypointsList().clear();
+                runSegments.add(new ArrayList<>());
+                runJoints.add(new ArrayList<>());
+            }
+
+            List<Waypoint> runPoints = runs.get(runs.size() - 1).getWaypointsList();
+
+            runSegments.get(runs.size() - 1).add(i);
+            runJoints.get(runs.size() - 1).add(Math.max(0, runPoints.size() - 1));
+
+            // The first waypoint of a continued segment is the last one of the segment before it
+            for (int j = runPoints.isEmpty() ? 0 : 1; j < points.size(); j++)
+                runPoints.add(new Waypoint(points.get(j).x, points.get(j).y, points.get(j).angle));
+        }
+
+        Pathplanner[] generated = generateRuns(runs);
+
+        // Find where each segment starts in its run, then stitch the runs
+        Metrics.Span span = Metrics.begin(Metrics.Phase.STITCH);
+        Trajectory[][] parts = new Trajectory[5][runs.size()];
+        int length = 0;
+
+        bounds = new int[segments.size() + 1];
+
+        for (int r = 0; r < runs.size(); r++) {
+            Pathplanner run = generated[r];
+
+            parts[0][r] = run.getSourceTrajectory();
+            parts[1][r] = run.getFrontLeftTrajectory();
+            parts[2][r] = run.getFrontRightTrajectory();
+            parts[3][r] = run.getBackLeftTrajectory();
+            parts[4][r] = run.getBackRightTrajectory();
+
+            int[] starts = findSegmentStarts(run, runJoints.get(r));
+
+            for (int s = 0; s < starts.length; s++)
+                bounds[runSegments.get(r).get(s)] = length + starts[s];
+
+            length += parts[0][r].length();
+        }
+
+        bounds[segments.size()] = length;
+
+        combined = new Pathplanner(segments.get(0));
+        combined.getWaypointsList().clear();
+
+        for (int i = 0; i < segments.size(); i++) {
+            List<Waypoint> points = segments.get(i).getWaypointsList();
+
+            // Segments start where the one before them ends, so don't repeat their first waypoint
+            for (int j = i == 0 ? 0 : 1; j < points.size(); j++)
+                combined.getWaypointsList().add(new Waypoint(points.get(j).x, points.get(j).y, points.get(j).angle));
+        }
+
+        combined.setTrajectories(stitch(parts[0]), stitch(parts[1]), stitch(parts[2]), stitch(parts[3]), stitch(parts[4]));
+
+        span.end(combined.getWaypointsSize(), (long) length * (parts[3][0] == null ? 3 : 5), 0);
+
+        return combined;
+    }
+
+    /**
+     * Checks that the segments can be stitched together.
+     */
+    private void validate() throws Pathfinder.GenerationException {
+        if (segments.isEmpty())
+            throw new Pathfinder.GenerationException("The chain has no segments");
+
+        Pathplanner first = segments.get(0);
+
+        for (int i = 0; i < segments.size(); i++) {
+            Pathplanner segment = segments.get(i);
+            String name = names.get(i);
+
+            if (segment.getWaypointsSize() < 2)
+                throw new Pathfinder.GenerationException("Segment " + name + " has less than 2 waypoints");
+
+            WaypointValidator.Problem problem = WaypointValidator.findFirst(segment.getWaypointsList());
+
+            if (problem != null)
+                throw new Pathfinder.GenerationException("Segment " + name + ": " + problem);
+
+            if (segment.getTimeStep() != first.getTimeStep()
+                    || segment.getDriveBase() != first.getDriveBase()
+                    || !sameLength(segment.getUnits().toMeters(segment.getWheelBaseW()), first.getUnits().toMeters(first.getWheelBaseW()))
+                    || !sameLength(segment.getUnits().toMeters(segment.getWheelBaseD()), first.getUnits().toMeters(first.getWheelBaseD())))
+                throw new Pathfinder.GenerationException(
+                        "Segment " + name + " must have the same time step, drive base and wheel base as " + names.get(0));
+
+            if (i == 0)
+                continue;
+
+            List<Waypoint> previous = segments.get(i - 1).getWaypointsList();
+            Waypoint end = previous.get(previous.size() - 1);
+            Waypoint start = segment.getWaypointsList().get(0);
+            double gap = Math.hypot(start.x - end.x, start.y - end.y);
+
+            if (gap > JOINT_TOLERANCE)
+                throw new Pathfinder.GenerationException(String.format("Segment %s starts %.3f away from where %s ends",
+                        name, first.getUnits().fromMeters(gap), names.get(i - 1)));
+
+            double turn = Math.abs(Math.atan2(Math.sin(start.angle - end.angle), Math.cos(start.angle - end.angle)));
+
+            if (joints.get(i) == Joint.CONTINUE && turn > JOINT_ANGLE_TOLERANCE)
+                throw new Pathfinder.GenerationException(String.format(
+                        "Segment %s continues from %s, but turns %.1f degrees where they meet; stop between them instead",
+                        name, names.get(i - 1), Math.toDegrees(turn)));
+
+            // Nothing is generated to turn a tank drive in place, so the stitched heading would jump
+            if (first.getDriveBase() == Pathplanner.DriveBase.TANK && turn > JOINT_ANGLE_TOLERANCE)
+                throw new Pathfinder.GenerationException(String.format(
+                        "Segment %s turns %.1f degrees from where %s ends, which a tank drive can't follow without turning in place",
+                        name, Math.toDegrees(turn), names.get(i - 1)));
+        }
+    }
+
+    /**
+     * Generates each run on its own thread.
+     *
+     * @return the runs, with their trajectories generated
+     */
+    private Pathplanner[] generateRuns(List<Pathplanner> runs) throws Pathfinder.GenerationException, InterruptedException {
+        AtomicInteger workers = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, runs.size()), r -> {
+            Thread t = new Thread(r, "Chain Generator " + workers.incrementAndGet());
+
+            t.setDaemon(true);
+            return t;
+        });
+        List<Future<Pathplanner>> results = new ArrayList<>();
+        Pathplanner[] generated = new Pathplanner[runs.size()];
+
+        try {
+            for (Pathplanner run : runs) {
+                results.add(pool.submit(() -> {
+                    run.updateTrajectories();
+                    return run;
+                }));
+            }
+
+            for (int i = 0; i < generated.length; i++)
+                generated[i] = results.get(i).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof Pathfinder.GenerationException)
+                throw (Pathfinder.GenerationException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+
+            throw new RuntimeException(cause);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        return generated;
+    }
+
+    /**
+     * Finds where each segment of a run starts in its source trajectory.
+     * Continued segments start at the first point the robot has driven as far as the waypoint they start at,
+     * measured along the same splines the generator fits.
+     *
+     * @param run    the generated run
+     * @param joints the index of the waypoint each segment of the run starts at
+     * @return the index of each segment's first trajectory segment
+     */
+    private static int[] findSegmentStarts(Pathplanner run, List<Integer> joints) {
+        Trajectory source = run.getSourceTrajectory();
+        HermiteSplines splines = new HermiteSplines(run.getWaypointsList().toArray(new Waypoint[0]), run.getFitMethod());
+        int[] starts = new int[joints.size()];
+        double distance = 0;
+        int spline = 0, k = 0;
+
+        for (int s = 1; s < starts.length; s++) {
+            for (; spline < joints.get(s); spline++)
+                distance += splines.arcLength(spline, Config.SAMPLES_HIGH);
+
+            while (k < source.length() && source.get(k).position < distance)
+                k++;
+
+            starts[s] = k;
+        }
+
+        return starts;
+    }
+
+    /**
+     * Joins trajectories end to end, offsetting each one's position by where the one before it ended.
+     *
+     * @param parts the trajectories to join, in meters
+     * @return the joined trajectory, or null if the trajectories are null, e.g. the back wheels of a tank drive
+     */
+    private static Trajectory stitch(Trajectory[] parts) {
+        if (parts[0] == null)
+            return null;
+
+        int length = 0;
+
+        for (Trajectory part : parts)
+            length += part.length();
+
+        Trajectory.Segment[] stitched = new Trajectory.Segment[length];
+        double offset = 0;
+        int n = 0;
+
+        for (Trajectory part : parts) {
+            for (Trajectory.Segment seg : part.segments) {
+                Trajectory.Segment copy = seg.copy();
+
+                copy.position += offset;
+                stitched[n++] = copy;
+            }
+
+            if (n > 0)
+                offset = stitched[n - 1].position;
+        }
+
+        return new Trajectory(stitched);
+    }
+
+    /**
+     * Cuts a stretch out of a stitched trajectory. Its position starts over from where the robot was
+     * just before the stretch, so it can be followed on its own; x, y and heading stay on the field.
+     *
+     * @param t    the trajectory to cut from
+     * @param from the index of the first segment to keep
+     * @param to   the index after the last segment to keep
+     * @return the stretch, or null if the trajectory is null
+     */
+    private static Trajectory slice(Trajectory t, int from, int to) {
+        if (t == null)
+            return null;
+
+        Trajectory.Segment[] sliced = new Trajectory.Segment[to - from];
+        double base = from == 0 ? 0 : t.get(from - 1).position;
+
+        for (int i = from; i < to; i++) {
+            sliced[i - from] = t.get(i).copy();
+            sliced[i - from].position -= base;
+        }
+
+        return new Trajectory(sliced);
+    }
+
+    /**
+     * Exports the stitched trajectories, as if the chain were a single project.
+     *
+     * @param parentPath the absolute file path to save to, excluding file extension
+     * @param ext        the file extension to save to, can be {@code *.csv} or {@code *.traj}
+     * @throws IllegalStateException if the chain hasn't been generated
+     */
+    public void exportTrajectories(File parentPath, String ext) {
+        checkGenerated();
+
+        compressionResults.clear();
+        combined.writeTrajectories(parentPath, ext);
+        compressionResults.putAll(combined.getCompressionResults());
+    }
+
+    /**
+     * Exports each segment's stretch of the stitched trajectories to its own files,
+     * named with the segment's place in the chain and its name, e.g. {@code name_2_pickup_source.csv}.
+     *
+     * @param parentPath the absolute file path to save to, excluding file extension
+     * @param ext        the file extension to save to, can be {@code *.csv} or {@code *.traj}
+     * @throws IllegalStateException if the chain hasn't been generated
+     */
+    public void exportSegments(File parentPath, String ext) {
+        checkGenerated();
+
+        compressionResults.clear();
+
+        for (int i = 0; i < segments.size(); i++) {
+            Pathplanner part = new Pathplanner(combined);
+            int from = bounds[i], to = bounds[i + 1];
+
+            part.setTrajectories(
+                    slice(combined.getSourceTrajectory(), from, to),
+                    slice(combined.getFrontLeftTrajectory(), from, to),
+                    slice(combined.getFrontRightTrajectory(), from, to),
+                    slice(combined.getBackLeftTrajectory(), from, to),
+                    slice(combined.getBackRightTrajectory(), from, to)
+            );
+            part.writeTrajectories(new File(parentPath + "_" + (i + 1) + "_" + names.get(i)), ext);
+            compressionResults.putAll(part.getCompressionResults());
+        }
+    }
+
+    /**
+     * Gets how well each file written by the last export compressed.
+     *
+     * @return the compression result of each file, by file name; empty if compression is off
+     */
+    public Map<String, TrajectoryCompressor.Result> getCompressionResults() {
+        return Collections.unmodifiableMap(compressionResults);
+    }
+
+    /**
+     * Gets how long each segment takes to drive in the stitched trajectories.
+     *
+     * @param i the index of the segment
+     * @return the amount of trajectory segments it spans
+     * @throws IllegalStateException if the chain hasn't been generated
+     */
+    public int getSegmentLength(int i) {
+        checkGenerated();
+
+        return bounds[i + 1] - bounds[i];
+    }
+
+    /**
+     * Drops the stitched trajectories, so they can be garbage collected once they have been written.
+     */
+    public void releaseTrajectories() {
+        combined = null;
+        bounds = null;
+    }
+
+    private void checkGenerated() {
+        if (combined == null)
+            throw new IllegalStateException("The chain has not been generated!");
+    }
+
+    private static boolean sameLength(double a, double b) {
+        return Math.abs(a - b) < 1e-9;
+    }
+}
@@ -0,0 +1,1349 @@
+package com.jtulayan.main;
+
+import com.jcraft.jsch.*;
+import com.jtulayan.util.HermiteSplines;
+import com.jtulayan.util.KeepOutChecker;
+import com.jtulayan.util.KeepOutZones;
+import com.jtulayan.util.Mathf;
+import com.jtulayan.util.Metrics;
+import com.jtulayan.util.OdometryImporter;
+import com.jtulayan.util.SpatialIndex;
+import com.jtulayan.util.TrajectoryCompressor;
+import com.jtulayan.util.TrajectoryIndex;
+import com.jtulayan.util.TrajectoryResampler;
+import com.sun.org.apache.xml.internal.serialize.OutputFormat;
+import com.sun.org.apache.xml.internal.serialize.XMLSerializer;
+import jaci.pathfinder.Pathfinder;
+import jaci.pathfinder.Trajectory;
+import jaci.pathfinder.Trajectory.Config;
+import jaci.pathfinder.Trajectory.FitMethod;
+import jaci.pathfinder.Waypoint;
+import jaci.pathfinder.modifiers.SwerveModifier;
+import jaci.pathfinder.modifiers.TankModifier;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.Text;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The "backend" of the motion profile generator.
+ * Mainly to interface with the entire system.
+ * Also handles saving, loading, etc.
+ */
+public class Pathplanner {
+    public static final String PROJECT_EXTENSION = "xml";
+
+    // Time step used to generate the high resolution trajectory for resampling
+    public static final double RESAMPLE_TIME_STEP = 0.005;
+
+    // Coarsest time step used for preview generation
+    public static final double PREVIEW_TIME_STEP = 0.1;
+
+    // Rough heap size of one trajectory segment: eight doubles plus object header and array slot
+    private static final long SEGMENT_BYTES = 88;
+
+    // Width and depth of the robot unless set, in meters; 2 ft
+    private static final double DEFAULT_ROBOT_SIZE = 2 / Mathf.METERS_TO_FT;
+
+    // Splines are longer than the straight lines between their waypoints; assume up to this much longer
+    // if their length can't be integrated, e.g. because a waypoint points too far away from its neighbor
+    private static final double PATH_LENGTH_FACTOR = 1.5;
+
+    // Native generation can't be interrupted, so a timed out or cancelled generation keeps its thread busy until it finishes.
+    // Once this many are still running, budgeted generation fails fast rather than piling up more of them
+    private static final int MAX_STALLED_GENERATIONS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    // States of a budgeted generation's task
+    private static final int QUEUED = 0, RUNNING = 1, DONE = 2, ABANDONED = 3;
+
+    // Amount of timed out or cancelled generations still running
+    private static final AtomicInteger STALLED_GENERATIONS = new AtomicInteger();
+
+    // Budgeted generation runs here, so the caller can stop waiting for it
+    private static final ExecutorService GENERATOR = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "Trajectory Generator");
+
+        t.setDaemon(true);
+        return t;
+    });
+
+    public enum DriveBase {
+        TANK,
+        SWERVE
+    }
+
+    public enum Units {
+        IMPERIAL(Mathf.METERS_TO_FT),
+        METRIC(1);
+
+        private final double perMeter;
+
+        Units(double perMeter) {
+            this.perMeter = perMeter;
+        }
+
+        /**
+         * Gets the factor to convert meters to these units.
+         *
+         * @return the amount of these units in one meter
+         */
+        public double getScale() {
+            return perMeter;
+        }
+
+        /**
+         * Converts a value in meters to these units.
+         *
+         * @param val the value in meters
+         * @return the value in these units
+         */
+        public double fromMeters(double val) {
+            return val * perMeter;
+        }
+
+        /**
+         * Converts a value in these units to meters.
+         *
+         * @param val the value in these units
+         * @return the value in meters
+         */
+        public double toMeters(double val) {
+            return val / perMeter;
+        }
+    }
+
+    // All distances are stored in meters, regardless of the display units.
+    // Getters and setters convert to and from the current units.
+    private double timeStep;
+    private double velocity;
+    private double acceleration;
+    private double jerk;
+    private double wheelBaseW;
+    private double wheelBaseD;
+    private double robotWidth;
+    private double robotDepth;
+
+    private DriveBase driveBase;
+    private FitMethod fitMethod;
+    private Units units;
+
+    // Waypoints, in meters
+    private final List<Waypoint> POINTS;
+
+    // Trajectories for both bases, in meters
+    // Use front-left and front-right for tank drive L and R
+    private Trajectory fl;
+    private Trajectory fr;
+    private Trajectory bl;
+    private Trajectory br;
+
+    // Source trajectory
+    // i.e. the center trajectory
+    private Trajectory source;
+
+    // Lookup indices over source, fl, fr, bl and br, built when first needed
+    // Final fields make them safe to publish without locking; a race just builds one twice
+    private final TrajectoryIndex[] indices = new TrajectoryIndex[5];
+    private final SpatialIndex[] spatialIndices = new SpatialIndex[5];
+
+    // Whether or not to write a spatial index next to each exported trajectory
+    private boolean exportSpatialIndex;
+
+    // Tolerance to compress exported trajectories within, or null to export every segment
+    private TrajectoryCompressor.Tolerance compression;
+
+    // How well each file written by the last export compressed, by file name
+    private final Map<String, TrajectoryCompressor.Result> compressionResults = new LinkedHashMap<>();
+
+    private GenerationBudget budget = GenerationBudget.UNLIMITED;
+
+    // Zones of the field to keep the robot out of, or null to not check; the checker is built when first needed
+    private KeepOutZones keepOutZones;
+    private KeepOutChecker keepOutChecker;
+
+    // Set by cancelGeneration(), and checked between generation steps
+    private volatile boolean cancelled;
+    private volatile Future<?> generation;
+
+    // File stuff
+    private DocumentBuilderFactory dbFactory;
+    private File workingProject;
+
+    public Pathplanner() {
+        POINTS = new ArrayList<>();
+        dbFactory = DocumentBuilderFactory.newInstance();
+        resetValues();
+    }
+
+    /**
+     * Creates a copy of the given backend's configuration and waypoints.
+     * Trajectories and working files are not copied.
+     *
+     * @param other the backend to copy
+     */
+    public Pathplanner(Pathplanner other) {
+        this();
+
+        timeStep = other.timeStep;
+        velocity = other.velocity;
+        acceleration = other.acceleration;
+        jerk = other.jerk;
+        wheelBaseW = other.wheelBaseW;
+        wheelBaseD = other.wheelBaseD;
+        robotWidth = other.robotWidth;
+        robotDepth = other.robotDepth;
+
+        driveBase = other.driveBase;
+        fitMethod = other.fitMethod;
+        units = other.units;
+        budget = other.budget;
+        exportSpatialIndex = other.exportSpatialIndex;
+        compression = other.compression;
+        keepOutZones = other.keepOutZones;
+
+        for (Waypoint w : other.POINTS)
+            POINTS.add(new Waypoint(w.x, w.y, w.angle));
+    }
+
+    /**
+     * Saves the project in XML format.
+     *
+     * @param path the absolute file path to save to, including file name and extension
+     * @throws IOException
+     * @throws ParserConfigurationException
+     */
+    public void saveProjectAs(File path) throws IOException, ParserConfigurationException {
+        if (!path.getAbsolutePath().endsWith("." + PROJECT_EXTENSION))
+            path = new File(path + "." + PROJECT_EXTENSION);
+
+        File dir = path.getParentFile();
+
+        if (dir != null && !dir.exists() && dir.isDirectory()) {
+            if (!dir.mkdirs())
+                return;
+        }
+
+        if (path.exists() && !path.delete())
+            return;
+
+        workingProject = path;
+
+        saveWorkingProject();
+    }
+
+    /**
+     * Saves the working project.
+     *
+     * @throws IOException
+     * @throws ParserConfigurationException
+     */
+    public void saveWorkingProject() throws IOException, ParserConfigurationException {
+        if (workingProject != null) {
+            // Create document
+            DocumentBuilder db = dbFactory.newDocumentBuilder();
+            Document dom = db.newDocument();
+
+            Element trajectoryEle = dom.createElement("Trajectory");
+
+            trajectoryEle.setAttribute("dt", "" + timeStep);
+            trajectoryEle.setAttribute("velocity", "" + getVelocity());
+            trajectoryEle.setAttribute("acceleration", "" + getAcceleration());
+            trajectoryEle.setAttribute("jerk", "" + getJerk());
+            trajectoryEle.setAttribute("wheelBaseW", "" + getWheelBaseW());
+            trajectoryEle.setAttribute("wheelBaseD", "" + getWheelBaseD());
+            trajectoryEle.setAttribute("robotWidth", "" + getRobotWidth());
+            trajectoryEle.setAttribute("robotDepth", "" + getRobotDepth());
+            trajectoryEle.setAttribute("fitMethod", "" + fitMethod.toString());
+            trajectoryEle.setAttribute("driveBase", "" + driveBase.toString());
+            trajectoryEle.setAttribute("units", "" + units.toString());
+
+            dom.appendChild(trajectoryEle);
+
+            for (Waypoint w : POINTS) {
+                Element waypointEle = dom.createElement("Waypoint");
+                Element xEle = dom.createElement("X");
+                Element yEle = dom.createElement("Y");
+                Element angleEle = dom.createElement("Angle");
+                Text xText = dom.createTextNode("" + units.fromMeters(w.x));
+                Text yText = dom.createTextNode("" + units.fromMeters(w.y));
+                Text angleText = dom.createTextNode("" + w.angle);
+
+                xEle.appendChild(xText);
+                yEle.appendChild(yText);
+                angleEle.appendChild(angleText);
+
+                waypointEle.appendChild(xEle);
+                waypointEle.appendChild(yEle);
+                waypointEle.appendChild(angleEle);
+
+                trajectoryEle.appendChild(waypointEle);
+            }
+
+            OutputFormat format = new OutputFormat(dom);
+
+            format.setIndenting(true);
+
+            XMLSerializer xmlSerializer = new XMLSerializer(
+                    new FileOutputStream(workingProject), format
+            );
+
+            xmlSerializer.serialize(dom);
+        }
+    }
+
+    /**
+     * Exports all trajectories to the parent folder, with the given root name and file extension.
+     *
+     * @param parentPath the absolute file path to save to, excluding file extension
+     * @param ext        the file extension to save to, can be {@code *.csv} or {@code *.traj}
+     * @throws Pathfinder.GenerationException
+     */
+    public void exportTrajectories(File parentPath, String ext) throws Pathfinder.GenerationException {
+        updateTrajectories();
+        compressionResults.clear();
+
+        File dir = parentPath.getParentFile();
+
+        if (dir != null && !dir.exists() && dir.isDirectory()) {
+            if (!dir.mkdirs())
+                return;
+        }
+
+        writeTrajectories(parentPath, ext, source, fl, fr, bl, br);
+    }
+
+    /**
+     * Exports all trajectories for each of the given time steps.
+     * The trajectory is only generated once at a high resolution,
+     * then resampled to each time step.
+     * Each set of files is suffixed with its time step in milliseconds, e.g. {@code name_20ms_source.csv}.
+     *
+     * @param parentPath the absolute file path to save to, excluding file extension
+     * @param ext        the file extension to save to, can be {@code *.csv} or {@code *.traj}
+     * @param timeSteps  the time steps to export, in seconds
+     * @param verify     whether or not to compare each resampled trajectory against direct generation
+     * @return the error against direct generation for each time step, empty if not verifying
+     * @throws Pathfinder.GenerationException
+     * @throws IllegalArgumentException if the time steps can't be exported together; see {@link #checkTimeSteps(double[])}
+     * @throws UncheckedIOException if the directory to save to can't be created
+     */
+    public List<TrajectoryResampler.ResampleError> exportTrajectories(File parentPath, String ext,
+                                                                     double[] timeSteps, boolean verify)
+            throws Pathfinder.GenerationException {
+        List<TrajectoryResampler.ResampleError> errors = new ArrayList<>();
+        double highResTimeStep = RESAMPLE_TIME_STEP;
+
+        checkTimeSteps(timeSteps);
+
+        cancelled = false;
+        compressionResults.clear();
+
+        File dir = parentPath.getParentFile();
+
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs())
+            throw new UncheckedIOException(new IOException("Can't create directory " + dir));
+
+        for (double dt : timeSteps)
+            highResTimeStep = Math.min(highResTimeStep, dt);
+
+        Trajectory highRes = generateSource(highResTimeStep);
+
+        for (double dt : timeSteps) {
+            checkCancelled();
+
+            Trajectory resampled = TrajectoryResampler.resample(highRes, dt);
+            Trajectory[] wheels = modify(resampled);
+
+            writeTrajectories(
+                    new File(parentPath + "_" + Math.round(dt * 1000) + "ms"), ext,
+                    resampled, wheels[0], wheels[1], wheels[2], wheels[3]
+            );
+
+            if (verify)
+                errors.add(TrajectoryResampler.compare(resampled, generateSource(dt)));
+        }
+
+        return errors;
+    }
+
+    /**
+     * Checks that time steps can be exported together.
+     * Each one's files are named after it in whole milliseconds, so they must be at least a millisecond,
+     * and no two of them may round to the same name.
+     *
+     * @param timeSteps the time steps to export, in seconds
+     * @throws IllegalArgumentException if a time step isn't at least a millisecond, or shares its name with another
+     */
+    public static void checkTimeSteps(double[] timeSteps) {
+        Map<Long, Double> names = new LinkedHashMap<>();
+
+        for (double dt : timeSteps) {
+            if (!(dt >= 0.001))
+                throw new IllegalArgumentException("Time steps must be at least 1 ms, but got " + dt + " s!");
+
+            Double other = names.put(Math.round(dt * 1000), dt);
+
+            if (other != null)
+                throw new IllegalArgumentException(String.format(
+                        "Time steps %s s and %s s would both be exported as %d ms!", other, dt, Math.round(dt * 1000)));
+        }
+    }
+
+    /**
+     * Writes the current trajectories to the parent folder, without regenerating them.
+     *
+     * @param parentPath the absolute file path to save to, excluding file extension
+     * @param ext        the file extension to save to, can be {@code *.csv} or {@code *.traj}
+     */
+    public void writeTrajectories(File parentPath, String ext) {
+        if (source == null)
+            throw new IllegalStateException("Trajectories have not been generated!");
+
+        compressionResults.clear();
+        writeTrajectories(parentPath, ext, source, fl, fr, bl, br);
+    }
+
+    /**
+     * Writes the given trajectories to files with the given root name and file extension.
+     * Trajectories are converted from meters to the current units before writing.
+     * Back trajectories are only written for swerve drive.
+     */
+    private void writeTrajectories(File parentPath, String ext, Trajectory source,
+                                   Trajectory fl, Trajectory fr, Trajectory bl, Trajectory br) {
+        Metrics.Span span = Metrics.begin(Metrics.Phase.WRITE_EXPORT);
+
+        source = toUnits(source);
+        fl = toUnits(fl);
+        fr = toUnits(fr);
+        bl = toUnits(bl);
+        br = toUnits(br);
+
+        String[] names = driveBase == DriveBase.SWERVE
+                ? new String[] { "source", "fl", "fr", "bl", "br" }
+                : new String[] { "source", "left", "right" };
+
+        // Indexed before compression, so lookups use the full resolution path
+        if (exportSpatialIndex) {
+            Trajectory[] written = driveBase == DriveBase.SWERVE
+                    ? new Trajectory[] { source, fl, fr, bl, br }
+                    : new Trajectory[] { source, fl, fr };
+
+            try {
+                for (int i = 0; i < names.length; i++)
+                    new SpatialIndex(written[i]).write(new File(parentPath + "_" + names[i] + ".spatial"));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        if (compression != null) {
+            source = compress(source, parentPath + "_source" + ext);
+
+            if (driveBase == DriveBase.SWERVE) {
+                fl = compress(fl, parentPath + "_fl" + ext);
+                fr = compress(fr, parentPath + "_fr" + ext);
+                bl = compress(bl, parentPath + "_bl" + ext);
+                br = compress(br, parentPath + "_br" + ext);
+            } else {
+                fl = compress(fl, parentPath + "_left" + ext);
+                fr = compress(fr, parentPath + "_right" + ext);
+            }
+        }
+
+        switch (ext) {
+            case ".csv":
+                Pathfinder.writeToCSV(new File(parentPath + "_source.csv"), source);
+
+                if (driveBase == DriveBase.SWERVE) {
+                    Pathfinder.writeToCSV(new File(parentPath + "_fl.csv"), fl);
+                    Pathfinder.writeToCSV(new File(parentPath + "_fr.csv"), fr);
+                    Pathfinder.writeToCSV(new File(parentPath + "_bl.csv"), bl);
+                    Pathfinder.writeToCSV(new File(parentPath + "_br.csv"), br);
+                } else {
+                    Pathfinder.writeToCSV(new File(parentPath + "_left.csv"), fl);
+                    Pathfinder.writeToCSV(new File(parentPath + "_right.csv"), fr);
+                }
+            break;
+            case ".traj":
+                Pathfinder.writeToFile(new File(parentPath + "_source.traj"), source);
+
+                if (driveBase == DriveBase.SWERVE) {
+                    Pathfinder.writeToFile(new File(parentPath + "_fl.traj"), fl);
+                    Pathfinder.writeToFile(new File(parentPath + "_fr.traj"), fr);
+                    Pathfinder.writeToFile(new File(parentPath + "_bl.traj"), bl);
+                    Pathfinder.writeToFile(new File(parentPath + "_br.traj"), br);
+                } else {
+                    Pathfinder.writeToFile(new File(parentPath + "_left.traj"), fl);
+                    Pathfinder.writeToFile(new File(parentPath + "_right.traj"), fr);
+                }
+            break;
+            default:
+                throw new IllegalArgumentException("Invalid file extension");
+        }
+
+        long bytes = 0;
+
+        for (String name : names)
+            bytes += new File(parentPath + "_" + name + ext).length();
+
+        span.end(0, (long) source.length() * names.length, bytes);
+    }
+
+    /**
+     * Compresses a trajectory for export, and records how well it compressed.
+     */
+    private Trajectory compress(Trajectory t, String fileName) {
+        TrajectoryCompressor.Result result = TrajectoryCompressor.compress(t, compression);
+
+        compressionResults.put(fileName, result);
+
+        return result.getTrajectory();
+    }
+
+    /**
+     * Converts a trajectory in meters to the current units.
+     *
+     * @param t the trajectory to convert, in meters
+     * @return the trajectory in the current units; the same trajectory if no conversion is needed
+     */
+    private Trajectory toUnits(Trajectory t) {
+        if (t == null || units == Units.METRIC)
+            return t;
+
+        Trajectory converted = t.copy();
+
+        for (Trajectory.Segment seg : converted.segments) {
+            seg.x = units.fromMeters(seg.x);
+            seg.y = units.fromMeters(seg.y);
+            seg.position = units.fromMeters(seg.position);
+            seg.velocity = units.fromMeters(seg.velocity);
+            seg.acceleration = units.fromMeters(seg.acceleration);
+            seg.jerk = units.fromMeters(seg.jerk);
+        }
+
+        return converted;
+    }
+
+    public void deployTrajectories(String addr, int port, String trajName, String remotePath, String ext)
+            throws Pathfinder.GenerationException, JSchException, SftpException, IOException {
+        // Generate trajectory
+        Path tempDir = Files.createTempDirectory("mpg",
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("777"))
+        );
+        File parentPath = new File(tempDir.toString(), trajName);
+
+        exportTrajectories(parentPath, ext);
+
+        // Start SFTP connection
+        JSch jsch = new JSch();
+        Session session = jsch.getSession("lvuser", addr, port);
+        Channel c = null;
+        ChannelSftp csftp = null;
+
+        Properties config = new Properties();
+        config.put("StrictHostKeyChecking", "no");
+        session.setConfig(config);
+        session.connect();
+
+        c = session.openChannel("sftp");
+        c.connect();
+        csftp = (ChannelSftp) c;
+        
+        // Push files to remote
+        FileInputStream sourceStream = new FileInputStream(new File(parentPath + "_source" + ext));
+    }
+
+    /**
+     * Loads a project from file.
+     *
+     * @param path the absolute file path to load the project from
+     * @throws IOException
+     * @throws ParserConfigurationException
+     * @throws SAXException
+     */
+    public void loadProject(File path) throws IOException, ParserConfigurationException, SAXException {
+        if (!path.exists() || path.isDirectory())
+            return;
+
+        if (path.getAbsolutePath().toLowerCase().endsWith("." + PROJECT_EXTENSION)) {
+            Metrics.Span span = Metrics.begin(Metrics.Phase.LOAD_PROJECT);
+            DocumentBuilder db = dbFactory.newDocumentBuilder();
+
+            Document dom = db.parse(path);
+
+            Element docEle = dom.getDocumentElement();
+
+            // Units need to be known first, since everything else is saved in these units
+            units = Units.valueOf(docEle.getAttribute("units"));
+
+            timeStep = Double.parseDouble(docEle.getAttribute("dt"));
+            velocity = units.toMeters(Double.parseDouble(docEle.getAttribute("velocity")));
+            acceleration = units.toMeters(Double.parseDouble(docEle.getAttribute("acceleration")));
+            jerk = units.toMeters(Double.parseDouble(docEle.getAttribute("jerk")));
+            wheelBaseW = units.toMeters(Double.parseDouble(docEle.getAttribute("wheelBaseW")));
+            wheelBaseD = units.toMeters(Double.parseDouble(docEle.getAttribute("wheelBaseD")));
+
+            // Older projects don't have the robot's dimensions; use the defaults
+            robotWidth = docEle.hasAttribute("robotWidth")
+                    ? units.toMeters(Double.parseDouble(docEle.getAttribute("robotWidth"))) : DEFAULT_ROBOT_SIZE;
+            robotDepth = docEle.hasAttribute("robotDepth")
+                    ? units.toMeters(Double.parseDouble(docEle.getAttribute("robotDepth"))) : DEFAULT_ROBOT_SIZE;
+
+            driveBase = DriveBase.valueOf(docEle.getAttribute("driveBase"));
+            fitMethod = FitMethod.valueOf(docEle.getAttribute("fitMethod"));
+
+            NodeList waypointEleList = docEle.getElementsByTagName("Waypoint");
+
+            POINTS.clear();
+            if (waypointEleList != null && waypointEleList.getLength() > 0) {
+                for (int i = 0; i < waypointEleList.getLength(); i++) {
+                    Element waypointEle = (Element) waypointEleList.item(i);
+
+                    String
+                            xText = waypointEle.getElementsByTagName("X").item(0).getTextContent(),
+                            yText = waypointEle.getElementsByTagName("Y").item(0).getTextContent(),
+                            angleText = waypointEle.getElementsByTagName("Angle").item(0).getTextContent();
+
+                    POINTS.add(new Waypoint(
+                            units.toMeters(Double.parseDouble(xText)),
+                            units.toMeters(Double.parseDouble(yText)),
+                            Double.parseDouble(angleText)
+                    ));
+                }
+            }
+
+            workingProject = path;
+
+            span.end(POINTS.size(), 0, path.length());
+        }
+    }
+
+    /**
+     * Imports a Vannaka properties (*.bot) file into the generator.
+     * This import method should work with vannaka properties files generated from version 2.3.0.
+     *
+     * @param path     the file path of the bot file
+     * @param botUnits the units to use for this bot file
+     * @throws IOException
+     */
+    public void importBotFile(File path, Units botUnits) throws IOException, NumberFormatException {
+        if (!path.exists() || path.isDirectory())
+            return;
+
+        if (path.getAbsolutePath().toLowerCase().endsWith(".bot")) {
+            BufferedReader botReader = new BufferedReader(new FileReader(path));
+            Stream<String> botStream = botReader.lines();
+            List<String> botLines = botStream.collect(Collectors.toList());
+
+            // First off we need to set the units of distance being used in the file.
+            // Unfortunately it is not explicitly saved to file; we will need some user input on that.
+            units = botUnits;
+
+            // Now we can read the first 7 lines and assign them accordingly.
+            timeStep = Math.abs(Double.parseDouble(botLines.get(0).trim()));
+            velocity = units.toMeters(Math.abs(Double.parseDouble(botLines.get(1).trim())));
+            acceleration = units.toMeters(Math.abs(Double.parseDouble(botLines.get(2).trim())));
+            jerk = units.toMeters(Math.abs(Double.parseDouble(botLines.get(3).trim())));
+            wheelBaseW = units.toMeters(Math.abs(Double.parseDouble(botLines.get(4).trim())));
+            wheelBaseD = units.toMeters(Math.abs(Double.parseDouble(botLines.get(5).trim())));
+
+            fitMethod = FitMethod.valueOf("HERMITE_" + botLines.get(6).trim().toUpperCase());
+
+            if (wheelBaseD > 0) // Assume that the wheel base was swerve
+                driveBase = DriveBase.SWERVE;
+
+            // GLHF parse the rest of the file I guess...
+            for (int i = 7; i < botLines.size(); i++) {
+                String[] waypointVals = botLines.get(i).split(",");
+
+                POINTS.add(new Waypoint(
+                    units.toMeters(Double.parseDouble(waypointVals[0].trim())),
+                    units.toMeters(Double.parseDouble(waypointVals[1].trim())),
+                    Math.toRadians(Double.parseDouble(waypointVals[2].trim()))
+                ));
+            }
+
+            // Make sure you aren't trying to save to another project file
+            clearWorkingFiles();
+        }
+    }
+
+    /**
+     * Imports a recorded odometry log (*.csv) as waypoints, keeping the current configuration.
+     * See {@link OdometryImporter} for the log format and how it is decimated.
+     *
+     * @param path      the file path of the log
+     * @param logUnits  the units of distance used in the log
+     * @param tolerance the largest distance between the log and the lines between waypoints, in the log's units
+     * @return the importer used, to report how much of the log was read
+     * @throws IOException if the log can't be read
+     */
+    public OdometryImporter importOdometryLog(File path, Units logUnits, double tolerance) throws IOException {
+        OdometryImporter importer = new OdometryImporter(tolerance);
+
+        importOdometryLog(path, logUnits, importer);
+
+        return importer;
+    }
+
+    /**
+     * Imports a recorded odometry log (*.csv) as waypoints with a configured importer.
+     * The waypoints replace any existing ones, and the project's units are set to the log's.
+     *
+     * @param path     the file path of the log
+     * @param logUnits the units of distance used in the log
+     * @param importer the importer to read the log with
+     * @throws IOException if the log can't be read
+     */
+    public void importOdometryLog(File path, Units logUnits, OdometryImporter importer) throws IOException {
+        Metrics.Span span = Metrics.begin(Metrics.Phase.IMPORT_LOG);
+        List<Waypoint> waypoints = importer.read(path);
+
+        units = logUnits;
+
+        POINTS.clear();
+        releaseTrajectories();
+
+        for (Waypoint w : waypoints)
+            POINTS.add(new Waypoint(units.toMeters(w.x), units.toMeters(w.y), w.angle));
+
+        // Make sure you aren't trying to save to another project file
+        clearWorkingFiles();
+
+        span.end(POINTS.size(), 0, path.length());
+    }
+
+    public int getWaypointsSize() {
+        return POINTS.size();
+    }
+
+    /**
+     * Resets configuration to default values
+     */
+    public void resetValues() {
+        units = Units.IMPERIAL;
+
+        timeStep = 0.05;
+        velocity = units.toMeters(4);
+        acceleration = units.toMeters(3);
+        jerk = units.toMeters(60);
+        wheelBaseW = units.toMeters(1.464);
+        wheelBaseD = 0;
+        robotWidth = DEFAULT_ROBOT_SIZE;
+        robotDepth = DEFAULT_ROBOT_SIZE;
+
+        fitMethod = FitMethod.HERMITE_CUBIC;
+        driveBase = DriveBase.TANK;
+    }
+
+    /**
+     * Clears all the existing waypoints in the list.
+     * This also clears all trajectories generated by the waypoints.
+     */
+    public void clearPoints() {
+        POINTS.clear();
+        releaseTrajectories();
+    }
+
+    /**
+     * Drops all generated trajectories, so they can be garbage collected once they're no longer needed,
+     * e.g. after they have been written.
+     */
+    public void releaseTrajectories() {
+        source = null;
+        fl = null;
+        fr = null;
+        bl = null;
+        br = null;
+        Arrays.fill(indices, null);
+        Arrays.fill(spatialIndices, null);
+    }
+
+    /**
+     * Clears the working project files
+     */
+    public void clearWorkingFiles() {
+        workingProject = null;
+    }
+
+    /**
+     * Updates the trajectories
+     */
+    public void updateTrajectories() throws Pathfinder.GenerationException {
+        updateTrajectories(Config.SAMPLES_HIGH, timeStep);
+    }
+
+    /**
+     * Updates the trajectories with a low sample count and a coarse time step.
+     * This is much faster than a full update, but should only be used for previewing, e.g. while editing.
+     */
+    public void updatePreviewTrajectories() throws Pathfinder.GenerationException {
+        updateTrajectories(Config.SAMPLES_FAST, Math.max(timeStep, PREVIEW_TIME_STEP));
+    }
+
+    /**
+     * Replaces the trajectories with the ones generated by another backend.
+     *
+     * @param other the backend to take the trajectories from
+     */
+    public void copyTrajectories(Pathplanner other) {
+        source = other.source;
+        fl = other.fl;
+        fr = other.fr;
+        bl = other.bl;
+        br = other.br;
+    }
+
+    /**
+     * Replaces the trajectories with ones built elsewhere, e.g. stitched together by a {@link PathChain}.
+     * Trajectories must be in meters; the back trajectories are null for tank drive.
+     */
+    void setTrajectories(Trajectory source, Trajectory fl, Trajectory fr, Trajectory bl, Trajectory br) {
+        this.source = source;
+        this.fl = fl;
+        this.fr = fr;
+        this.bl = bl;
+        this.br = br;
+    }
+
+    private void updateTrajectories(int samples, double dt) throws Pathfinder.GenerationException {
+        cancelled = false;
+
+        Trajectory newSource = generateSource(samples, dt);
+
+        checkCancelled();
+
+        Trajectory[] wheels = modify(newSource);
+
+        checkCancelled();
+
+        // Only replace the trajectories once everything succeeded
+        source = newSource;
+        fl = wheels[0];
+        fr = wheels[1];
+        bl = wheels[2];
+        br = wheels[3];
+    }
+
+    /**
+     * Generates the source trajectory from the current waypoints with the given time step.
+     *
+     * @param dt the time step to generate with, in seconds
+     * @return the generated source trajectory
+     * @throws Pathfinder.GenerationException
+     */
+    private Trajectory generateSource(double dt) throws Pathfinder.GenerationException {
+        return generateSource(Config.SAMPLES_HIGH, dt);
+    }
+
+    /**
+     * Generates the source trajectory from the current waypoints.
+     *
+     * @param samples the amount of samples to fit each spline with
+     * @param dt      the time step to generate with, in seconds
+     * @return the generated source trajectory
+     * @throws Pathfinder.GenerationException
+     */
+    private Trajectory generateSource(int samples, double dt) throws Pathfinder.GenerationException {
+        Metrics.Span span = Metrics.begin(Metrics.Phase.GENERATE_SOURCE);
+        Trajectory t = fitSource(samples, dt);
+
+        span.end(POINTS.size(), t.length(), 0);
+
+        return t;
+    }
+
+    /**
+     * Fits the source trajectory within the generation budget.
+     */
+    private Trajectory fitSource(int samples, double dt) throws Pathfinder.GenerationException {
+        Config config = new Config(fitMethod, samples, dt, velocity, acceleration, jerk);
+
+        if (budget.hasMemoryLimit()) {
+            long estimate = estimateMemory(dt);
+
+            if (estimate > budget.getMaxMemory())
+                throw new GenerationAbortedException(GenerationAbortedException.Reason.MEMORY, String.format(
+                        "Trajectories would need about %.1f MB, but only %.1f MB are allowed",
+                        estimate / 1e6, budget.getMaxMemory() / 1e6
+                ));
+        }
+
+        if (!budget.hasTimeout())
+            return Pathfinder.generate(POINTS.toArray(new Waypoint[1]), config);
+
+        if (STALLED_GENERATIONS.get() >= MAX_STALLED_GENERATIONS)
+            throw new GenerationAbortedException(GenerationAbortedException.Reason.STALLED, String.format(
+                    "%d earlier generations are still running after timing out or being cancelled", STALLED_GENERATIONS.get()));
+
+        // Copy the waypoints, since the caller may keep editing them if generation is abandoned
+        Waypoint[] points = new Waypoint[POINTS.size()];
+
+        for (int i = 0; i < points.length; i++)
+            points[i] = new Waypoint(POINTS.get(i).x, POINTS.get(i).y, POINTS.get(i).angle);
+
+        AtomicInteger state = new AtomicInteger(QUEUED);
+        Future<Trajectory> task = GENERATOR.submit(() -> {
+            // Abandoned before it started
+            if (!state.compareAndSet(QUEUED, RUNNING))
+                return null;
+
+            try {
+                return Pathfinder.generate(points, config);
+            } finally {
+                if (state.getAndSet(DONE) == ABANDONED)
+                    STALLED_GENERATIONS.decrementAndGet();
+            }
+        });
+
+        generation = task;
+
+        try {
+            // Cancelled before generation was submitted
+            if (cancelled)
+                task.cancel(true);
+
+            return task.get(budget.getTimeout(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Native generation can't be interrupted; it keeps running in the background, but the result is dropped
+            task.cancel(true);
+            abandon(state);
+
+            throw new GenerationAbortedException(GenerationAbortedException.Reason.TIMEOUT,
+                    "Generation took longer than " + budget.getTimeout() + " ms");
+        } catch (CancellationException e) {
+            // Same as a timeout; cancelling doesn't stop a generation that already started
+            abandon(state);
+
+            throw new GenerationAbortedException(GenerationAbortedException.Reason.CANCELLED, "Generation was cancelled");
+        } catch (InterruptedException e) {
+            task.cancel(true);
+            abandon(state);
+            Thread.currentThread().interrupt();
+
+            throw new GenerationAbortedException(GenerationAbortedException.Reason.CANCELLED, "Generation was interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof Pathfinder.GenerationException)
+                throw (Pathfinder.GenerationException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+
+            throw new RuntimeException(cause);
+        } finally {
+            generation = null;
+        }
+    }
+
+    /**
+     * Marks a generation whose result will be dropped as abandoned.
+     * If it is already running, it counts as stalled until it finishes.
+     *
+     * @param state the state of the generation task
+     */
+    private static void abandon(AtomicInteger state) {
+        if (!state.compareAndSet(QUEUED, ABANDONED) && state.compareAndSet(RUNNING, ABANDONED))
+            STALLED_GENERATIONS.incrementAndGet();
+    }
+
+    /**
+     * Estimates the heap needed for the trajectories generated from the current waypoints.
+     * The path length is integrated from the same splines the generator fits, and the duration estimated
+     * from a trapezoidal velocity profile with extra time for the jerk limit.
+     *
+     * @param dt the time step to generate with, in seconds
+     * @return the estimated size of the source and wheel trajectories, in bytes
+     */
+    public long estimateMemory(double dt) {
+        double length = new HermiteSplines(POINTS.toArray(new Waypoint[0]), fitMethod).length(Config.SAMPLES_FAST);
+
+        if (!Double.isFinite(length)) {
+            length = 0;
+
+            for (int i = 1; i < POINTS.size(); i++)
+                length += Math.hypot(POINTS.get(i).x - POINTS.get(i - 1).x, POINTS.get(i).y - POINTS.get(i - 1).y);
+
+            length *= PATH_LENGTH_FACTOR;
+        }
+
+        double time;
+
+        if (length >= velocity * velocity / acceleration) // Reaches max velocity
+            time = length / velocity + velocity / acceleration;
+        else
+            time = 2 * Math.sqrt(length / acceleration);
+
+        time += acceleration / jerk;
+
+        long segments = (long) Math.ceil(time / dt) + 1;
+        int trajectories = driveBase == DriveBase.SWERVE ? 5 : 3;
+
+        return segments * SEGMENT_BYTES * trajectories;
+    }
+
+    /**
+     * Cancels the generation in progress, if any, from another thread.
+     * Generation stops at the next step, and fails with a {@link GenerationAbortedException}.
+     * Without a time budget, the native spline fitting itself runs to completion before stopping.
+     */
+    public void cancelGeneration() {
+        cancelled = true;
+
+        Future<?> task = generation;
+
+        if (task != null)
+            task.cancel(true);
+    }
+
+    private void checkCancelled() throws GenerationAbortedException {
+        if (cancelled)
+            throw new GenerationAbortedException(GenerationAbortedException.Reason.CANCELLED, "Generation was cancelled");
+    }
+
+    /**
+     * Applies the drive base modifier to the given source trajectory.
+     *
+     * @param src the source trajectory to modify
+     * @return the front-left, front-right, back-left and back-right trajectories, in that order.
+     *         Tank drive uses front-left and front-right for left and right, and leaves the back trajectories null.
+     */
+    private Trajectory[] modify(Trajectory src) {
+        Metrics.Span span = Metrics.begin(Metrics.Phase.MODIFY);
+        Trajectory[] wheels = applyModifier(src);
+
+        span.end(0, (long) src.length() * (driveBase == DriveBase.SWERVE ? 4 : 2), 0);
+
+        return wheels;
+    }
+
+    private Trajectory[] applyModifier(Trajectory src) {
+        if (driveBase == DriveBase.SWERVE) {
+            SwerveModifier swerve = new SwerveModifier(src);
+
+            // There is literally no other swerve mode other than the default can someone please explain this to me
+            swerve.modify(wheelBaseW, wheelBaseD, SwerveModifier.Mode.SWERVE_DEFAULT);
+
+            return new Trajectory[] {
+                    swerve.getFrontLeftTrajectory(),
+                    swerve.getFrontRightTrajectory(),
+                    swerve.getBackLeftTrajectory(),
+                    swerve.getBackRightTrajectory()
+            };
+        } else { // By default, treat everything as tank drive.
+            TankModifier tank = new TankModifier(src);
+            tank.modify(wheelBaseW);
+
+            return new Trajectory[] {
+                    tank.getLeftTrajectory(),
+                    tank.getRightTrajectory(),
+                    null,
+                    null
+            };
+        }
+    }
+
+    public double getTimeStep() {
+        return timeStep;
+    }
+
+    public void setTimeStep(double timeStep) {
+        this.timeStep = timeStep;
+    }
+
+    public double getVelocity() {
+        return units.fromMeters(velocity);
+    }
+
+    public void setVelocity(double velocity) {
+        this.velocity = units.toMeters(velocity);
+    }
+
+    public double getAcceleration() {
+        return units.fromMeters(acceleration);
+    }
+
+    public void setAcceleration(double acceleration) {
+        this.acceleration = units.toMeters(acceleration);
+    }
+
+    public DriveBase getDriveBase() {
+        return driveBase;
+    }
+
+    public void setDriveBase(DriveBase driveBase) {
+        this.driveBase = driveBase;
+    }
+
+    public FitMethod getFitMethod() {
+        return fitMethod;
+    }
+
+    public void setFitMethod(FitMethod fitMethod) {
+        this.fitMethod = fitMethod;
+    }
+
+    public Units getUnits() {
+        return units;
+    }
+
+    /**
+     * Sets the display units.
+     * Values are always stored in meters, so nothing needs to be converted or regenerated.
+     *
+     * @param u the units to use for all getters, setters, saving and exporting
+     */
+    public void setUnits(Units u) {
+        units = u;
+    }
+
+    public double getJerk() {
+        return units.fromMeters(jerk);
+    }
+
+    public void setJerk(double jerk) {
+        this.jerk = units.toMeters(jerk);
+    }
+
+    public double getWheelBaseW() {
+        return units.fromMeters(wheelBaseW);
+    }
+
+    public void setWheelBaseW(double wheelBaseW) {
+        this.wheelBaseW = units.toMeters(wheelBaseW);
+    }
+
+    public double getWheelBaseD() {
+        return units.fromMeters(wheelBaseD);
+    }
+
+    public void setWheelBaseD(double wheelBaseD) {
+        this.wheelBaseD = units.toMeters(wheelBaseD);
+    }
+
+    public double getRobotWidth() {
+        return units.fromMeters(robotWidth);
+    }
+
+    public void setRobotWidth(double robotWidth) {
+        this.robotWidth = units.toMeters(robotWidth);
+    }
+
+    public double getRobotDepth() {
+        return units.fromMeters(robotDepth);
+    }
+
+    public void setRobotDepth(double robotDepth) {
+        this.robotDepth = units.toMeters(robotDepth);
+    }
+
+    public GenerationBudget getGenerationBudget() {
+        return budget;
+    }
+
+    /**
+     * Sets the time and memory limits for generating trajectories.
+     *
+     * @param budget the budget to generate with, or {@link GenerationBudget#UNLIMITED}
+     */
+    public void setGenerationBudget(GenerationBudget budget) {
+        this.budget = budget == null ? GenerationBudget.UNLIMITED : budget;
+    }
+
+    /**
+     * Sets whether or not to write a spatial index next to each exported trajectory.
+     * Each index is written as {@code name_source.spatial}, {@code name_left.spatial}, etc., in the exported units.
+     *
+     * @param exportSpatialIndex whether or not to export spatial indices
+     * @see SpatialIndex#read(File)
+     */
+    public void setExportSpatialIndex(boolean exportSpatialIndex) {
+        this.exportSpatialIndex = exportSpatialIndex;
+    }
+
+    /**
+     * Sets the tolerance to compress exported trajectories within.
+     * Compressed files only keep the segments needed to reconstruct the rest within the tolerance,
+     * and must be restored with {@link TrajectoryCompressor#decompress(Trajectory)} before following them.
+     *
+     * @param compression the tolerance, in the current units, or null to export every segment
+     */
+    public void setCompression(TrajectoryCompressor.Tolerance compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Gets how well each file written by the last export compressed.
+     *
+     * @return the compression result of each file, by file name; empty if compression is off
+     */
+    public Map<String, TrajectoryCompressor.Result> getCompressionResults() {
+        return Collections.unmodifiableMap(compressionResults);
+    }
+
+    public KeepOutZones getKeepOutZones() {
+        return keepOutZones;
+    }
+
+    /**
+     * Sets the zones of the field to keep the robot out of.
+     *
+     * @param keepOutZones the zones, or null to not check
+     * @see #checkKeepOut()
+     */
+    public void setKeepOutZones(KeepOutZones keepOutZones) {
+        this.keepOutZones = keepOutZones;
+    }
+
+    /**
+     * Sweeps the robot's footprint along the path to find where it first enters a keep-out zone.
+     * This only needs the waypoints, not the generated trajectories. Splines that haven't changed since the last
+     * check reuse their result, so checking after every edit is cheap.
+     *
+     * @return the first collision, in meters, or null if the path stays clear or there are no zones
+     */
+    public KeepOutChecker.Collision checkKeepOut() {
+        if (keepOutZones == null || POINTS.size() < 2)
+            return null;
+
+        if (keepOutChecker == null || !keepOutChecker.isFor(keepOutZones, robotWidth, robotDepth))
+            keepOutChecker = new KeepOutChecker(keepOutZones, robotWidth, robotDepth);
+
+        return keepOutChecker.check(POINTS, fitMethod);
+    }
+
+    public boolean hasWorkingProject() {
+        return workingProject != null;
+    }
+
+    /**
+     * Gets the list of waypoints.
+     * Waypoint coordinates are always in meters; use {@link Units#fromMeters(double)} to display them.
+     *
+     * @return the list of waypoints, in meters
+     */
+    public List<Waypoint> getWaypointsList() {
+        return POINTS;
+    }
+
+    // Trajectories are always in meters; use Units.getScale() to display them
+
+    public Trajectory getSourceTrajectory() {
+        return source;
+    }
+
+    public Trajectory getFrontLeftTrajectory() {
+        return fl;
+    }
+
+    public Trajectory getFrontRightTrajectory() {
+        return fr;
+    }
+
+    public Trajectory getBackLeftTrajectory() {
+        return bl;
+    }
+
+    public Trajectory getBackRightTrajectory() {
+        return br;
+    }
+
+    // Indices for looking up the trajectories by time or distance; null if not generated yet
+
+    public TrajectoryIndex getSourceIndex() {
+        return index(0, source);
+    }
+
+    public TrajectoryIndex getFrontLeftIndex() {
+        return index(1, fl);
+    }
+
+    public TrajectoryIndex getFrontRightIndex() {
+        return index(2, fr);
+    }
+
+    public TrajectoryIndex getBackLeftIndex() {
+        return index(3, bl);
+    }
+
+    public TrajectoryIndex getBackRightIndex() {
+        return index(4, br);
+    }
+
+    // Indices for finding the closest point on each trajectory's path; null if not generated yet
+
+    public SpatialIndex getSourceSpatialIndex() {
+        return spatialIndex(0, source);
+    }
+
+    public SpatialIndex getFrontLeftSpatialIndex() {
+        return spatialIndex(1, fl);
+    }
+
+    public SpatialIndex getFrontRightSpatialIndex() {
+        return spatialIndex(2, fr);
+    }
+
+    public SpatialIndex getBackLeftSpatialIndex() {
+        return spatialIndex(3, bl);
+    }
+
+    public SpatialIndex getBackRightSpatialIndex() {
+        return spatialIndex(4, br);
+    }
+
+    /**
+     * Gets the index over a trajectory, rebuilding it if the trajectory was regenerated since.
+     */
+    private TrajectoryIndex index(int slot, Trajectory t) {
+        if (t == null || t.length() == 0)
+            return null;
+
+        TrajectoryIndex index = indices[slot];
+
+        if (index == null || !index.isOf(t)) {
+            index = new TrajectoryIndex(t);
+            indices[slot] = index;
+        }
+
+        return index;
+    }
+
+    /**
+     * Gets the spatial index over a trajectory, rebuilding it if the trajectory was regenerated since.
+     */
+    private SpatialIndex spatialIndex(int slot, Trajectory t) {
+        if (t == null || t.length() == 0)
+            return null;
+
+        SpatialIndex index = spatialIndices[slot];
+
+        if (index == null || !index.isOf(t)) {
+            index = new SpatialIndex(t);
+            spatialIndices[slot] = index;
+        }
+
+        return index;
+    }
+
+}
@@ -0,0 +1,259 @@
+package com.jtulayan.ui.cli;
+
+import com.jtulayan.main.GenerationBudget;
+import com.jtulayan.main.Pathplanner;
+import com.jtulayan.util.TrajectoryCompressor;
+import com.jtulayan.util.WaypointValidator;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exports projects through a load, generate and write pipeline.
+ * <p>
+ * Each stage runs on its own thread(s) and hands projects to the next stage through a bounded queue.
+ * A full queue blocks the stage before it, so at most a fixed amount of projects are in memory at once,
+ * no matter how many are exported. Trajectories are released as soon as they are written.
+ */
+public class ExportPipeline {
+    // Marks the end of the input; one is sent per generator thread
+    private static final Job END = new Job(null);
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int queueSize = 4;
+    private GenerationBudget budget = GenerationBudget.UNLIMITED;
+    private boolean exportSpatialIndex;
+    private TrajectoryCompressor.Tolerance compression;
+
+    private final AtomicInteger exported = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Sets the capacity of each queue between stages.
+     *
+     * @param queueSize the amount of projects that can wait for the next stage
+     */
+    public void setQueueSize(int queueSize) {
+        this.queueSize = Math.max(1, queueSize);
+    }
+
+    public void setGenerationBudget(GenerationBudget budget) {
+        this.budget = budget;
+    }
+
+    public void setExportSpatialIndex(boolean exportSpatialIndex) {
+        this.exportSpatialIndex = exportSpatialIndex;
+    }
+
+    public void setCompression(TrajectoryCompressor.Tolerance compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Exports every project and reports the peak heap usage.
+     *
+     * @param in  the file paths for all mpg projects to export
+     * @param out the output directory to export all trajectory files
+     * @param ext the file extension to export the trajectories as
+     * @throws InterruptedException if interrupted while waiting for the pipeline to finish
+     */
+    public void run(String[] in, String out, String ext) throws InterruptedException {
+        File exportDir = new File(out);
+        BlockingQueue<Job> loaded = new ArrayBlockingQueue<>(queueSize);
+        BlockingQueue<Job> generated = new ArrayBlockingQueue<>(queueSize);
+        List<Thread> stages = new ArrayList<>();
+
+        exportDir.mkdirs();
+        exported.set(0);
+        failed.set(0);
+        resetPeakHeapUsage();
+
+        long start = System.nanoTime();
+
+        System.out.println("Exporting " + in.length + " files!");
+
+        stages.add(new Thread(() -> load(in, loaded), "Pipeline Loader"));
+
+        for (int i = 0; i < threads; i++)
+            stages.add(new Thread(() -> generate(loaded, generated), "Pipeline Generator"));
+
+        stages.add(new Thread(() -> write(generated, exportDir, "." + ext), "Pipeline Writer"));
+
+        for (Thread t : stages)
+            t.start();
+
+        try {
+            for (Thread t : stages)
+                t.join();
+        } finally {
+            for (Thread t : stages)
+                t.interrupt();
+        }
+
+        System.out.println(String.format(
+                "Exported %d of %d files in %d ms, %d failed",
+                exported.get(), in.length, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), failed.get()
+        ));
+        System.out.println(String.format(
+                "Peak heap usage: %.1f MB of %.1f MB max",
+                getPeakHeapUsage() / 1e6, Runtime.getRuntime().maxMemory() / 1e6
+        ));
+    }
+
+    private void load(String[] in, BlockingQueue<Job> loaded) {
+        try {
+            for (String projectPath : in) {
+                File projectFile = new File(projectPath);
+                Job job = new Job(projectFile);
+
+                try {
+                    job.backend.setGenerationBudget(budget);
+                    job.backend.setExportSpatialIndex(exportSpatialIndex);
+                    job.backend.setCompression(compression);
+                    job.backend.loadProject(projectFile);
+
+                    if (!job.backend.hasWorkingProject()) {
+                        fail(projectFile, "not a project file");
+                        continue;
+                    }
+
+                    if (job.backend.getWaypointsSize() < 2) {
+                        fail(projectFile, "less than 2 waypoints");
+                        continue;
+                    }
+
+                    WaypointValidator.Problem problem = WaypointValidator.findFirst(job.backend.getWaypointsList());
+
+                    if (problem != null) {
+                        fail(projectFile, problem.toString());
+                        continue;
+                    }
+                } catch (Throwable e) {
+                    // Errors too, so the loader always reaches its end markers
+                    fail(projectFile, MPGenCLI.describeFailure(e));
+                    continue;
+                }
+
+                // Blocks while the generators are behind
+                loaded.put(job);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Always stop the generators, even if loading died
+            for (int i = 0; i < threads; i++)
+                putEnd(loaded);
+        }
+    }
+
+    private void generate(BlockingQueue<Job> loaded, BlockingQueue<Job> generated) {
+        try {
+            Job job;
+
+            while ((job = loaded.take()) != END) {
+                try {
+                    job.backend.updateTrajectories();
+                } catch (Throwable e) {
+                    // Errors too, e.g. a missing native library; a dead generator would leave the loader blocked
+                    fail(job.project, MPGenCLI.describeFailure(e));
+                    job.backend.releaseTrajectories();
+                    continue;
+                }
+
+                // Blocks while the writer is behind
+                generated.put(job);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            putEnd(generated);
+        }
+    }
+
+    private void write(BlockingQueue<Job> generated, File exportDir, String ext) {
+        int running = threads;
+
+        try {
+            while (running > 0) {
+                Job job = generated.take();
+
+                if (job == END) {
+                    running--;
+                    continue;
+                }
+
+                String exportName = job.project.getName().replaceFirst("\\.[^.]*$", "").trim();
+
+                try {
+                    job.backend.writeTrajectories(new File(exportDir, exportName), ext);
+                    exported.incrementAndGet();
+                    MPGenCLI.printCompressionResults(job.backend);
+                } catch (Throwable e) {
+                    // Errors too; a dead writer would leave the generators blocked
+                    fail(job.project, MPGenCLI.describeFailure(e));
+                } finally {
+                    job.backend.releaseTrajectories();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void putEnd(BlockingQueue<Job> queue) {
+        try {
+            queue.put(END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void fail(File project, String reason) {
+        failed.incrementAndGet();
+        System.out.println("Failed to export " + project + ": " + reason + "! Skipping....");
+    }
+
+    private static void resetPeakHeapUsage() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            if (pool.getType() == MemoryType.HEAP)
+                pool.resetPeakUsage();
+    }
+
+    /**
+     * Gets the peak heap usage since the last reset.
+     * Pools peak at different times, so this is an upper bound on the actual high-water mark.
+     *
+     * @return the sum of the peak usage of each heap pool, in bytes
+     */
+    private static long getPeakHeapUsage() {
+        long peak = 0;
+
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            if (pool.getType() == MemoryType.HEAP)
+                peak += pool.getPeakUsage().getUsed();
+
+        return peak;
+    }
+
+    private static class Job {
+        final File project;
+        final Pathplanner backend;
+
+        Job(File project) {
+            this.project = project;
+            this.backend = project == null ? null : new Pathplanner();
+        }
+    }
+}
@@ -0,0 +1,402 @@
+package com.jtulayan.ui.cli;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.jtulayan.main.GenerationBudget;
+import com.jtulayan.main.Pathplanner;
+import com.jtulayan.util.WaypointValidator;
+import jaci.pathfinder.Trajectory;
+import jaci.pathfinder.Waypoint;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Long-running generation server, so callers only pay JVM startup and JIT warmup once.
+ * <p>
+ * Requests and responses are JSON objects, one per line, read from stdin or a localhost socket.
+ * A request either names a project file or gives the waypoints and configuration inline:
+ * <pre>
+ * {"id": "a", "project": "autos/left.xml", "output": {"path": "out/left", "ext": "csv"}}
+ * {"id": "b", "config": {"units": "METRIC", "velocity": 2}, "waypoints": [{"x": 0, "y": 0, "angle": 0}, ...]}
+ * {"command": "shutdown"}
+ * </pre>
+ * Inline waypoint angles are in degrees; everything else is in the request's units.
+ * Without an output, the trajectories are only generated.
+ * Requests are processed concurrently, so responses can arrive out of order; use the id to match them up.
+ */
+public class GenerationDaemon {
+    private static final Gson GSON = new Gson();
+
+    private final int threads;
+    private final ExecutorService executor;
+
+    // Limits requests waiting for or in generation; readers block when it runs out,
+    // which pushes back on the client instead of queueing without bound
+    private final Semaphore slots;
+
+    private GenerationBudget budget = GenerationBudget.UNLIMITED;
+
+    private volatile boolean running = true;
+    private ServerSocket server;
+
+    /**
+     * Creates a daemon.
+     *
+     * @param threads   the amount of requests to generate at once
+     * @param queueSize the amount of requests that can wait for a free thread
+     */
+    public GenerationDaemon(int threads, int queueSize) {
+        this.threads = Math.max(1, threads);
+
+        slots = new Semaphore(this.threads + Math.max(0, queueSize));
+        executor = Executors.newFixedThreadPool(this.threads, r -> {
+            Thread t = new Thread(r, "Generation Worker");
+
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Sets the time and memory limits for generating each request.
+     * Requests that exceed them are answered with an error, and their worker moves on to the next request.
+     *
+     * @param budget the budget to generate each request with
+     */
+    public void setGenerationBudget(GenerationBudget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Serves requests from the given streams until the input ends or a shutdown is requested.
+     * Returns once every accepted request has been answered.
+     *
+     * @param in  the stream to read requests from
+     * @param out the stream to write responses to
+     * @throws IOException          if reading the requests fails
+     * @throws InterruptedException if interrupted while waiting for requests to finish
+     */
+    public void serve(InputStream in, OutputStream out) throws IOException, InterruptedException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        ResponseWriter writer = new ResponseWriter(out);
+        String line;
+
+        // Only track this stream's requests, so one connection doesn't wait on another
+        Phaser pending = new Phaser(1);
+
+        while (running && (line = reader.readLine()) != null) {
+            if (!line.trim().isEmpty())
+                accept(line, writer, pending);
+        }
+
+        pending.arriveAndAwaitAdvance();
+    }
+
+    /**
+     * Serves requests over a socket bound to localhost until a shutdown is requested.
+     * Each connection is read on its own thread; generation shares the same pool.
+     *
+     * @param port the port to listen on, or 0 to pick a free port
+     * @throws IOException if the socket can't be opened
+     */
+    public void listen(int port) throws IOException {
+        server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        System.out.println("Listening on " + server.getInetAddress().getHostAddress() + ":" + server.getLocalPort());
+
+        try {
+            while (running) {
+                Socket socket = server.accept();
+                Thread t = new Thread(() -> serveConnection(socket), "Daemon Connection");
+
+                t.setDaemon(true);
+                t.start();
+            }
+        } catch (IOException e) {
+            // Closed by a shutdown request
+            if (running)
+                throw e;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void shutdown() {
+        running = false;
+        executor.shutdown();
+
+        if (server != null) {
+            try {
+                server.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void serveConnection(Socket socket) {
+        try (Socket s = socket) {
+            serve(s.getInputStream(), s.getOutputStream());
+        } catch (IOException | InterruptedException e) {
+            System.err.println("Connection closed: " + e.getMessage());
+        }
+    }
+
+    private void accept(String line, ResponseWriter writer, Phaser pending) throws InterruptedException {
+        long received = System.nanoTime();
+        Request request;
+
+        try {
+            request = GSON.fromJson(line, Request.class);
+        } catch (JsonParseException e) {
+            writer.write(Response.error(null, "Malformed request: " + e.getMessage()));
+            return;
+        }
+
+        if (request == null)
+            return;
+
+        if (request.command != null) {
+            handleCommand(request, writer);
+            return;
+        }
+
+        slots.acquire();
+        pending.register();
+
+        try {
+            executor.execute(() -> {
+                try {
+                    writer.write(process(request, received));
+                } finally {
+                    slots.release();
+                    pending.arriveAndDeregister();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            slots.release();
+            pending.arriveAndDeregister();
+            writer.write(Response.error(request.id, "Daemon is shutting down"));
+        }
+    }
+
+    private void handleCommand(Request request, ResponseWriter writer) {
+        switch (request.command) {
+            case "ping":
+                writer.write(Response.ok(request.id));
+            break;
+            case "shutdown":
+                writer.write(Response.ok(request.id));
+                shutdown();
+            break;
+            default:
+                writer.write(Response.error(request.id, "Unknown command: " + request.command));
+        }
+    }
+
+    /**
+     * Loads, generates and writes a single request on the current thread.
+     *
+     * @param request  the request to process
+     * @param received when the request was read, from {@link System#nanoTime()}
+     * @return the response to send back
+     */
+    private Response process(Request request, long received) {
+        Response response = Response.ok(request.id);
+        Timings timings = new Timings();
+        long start = System.nanoTime();
+
+        response.timings = timings;
+        timings.queuedMs = toMillis(start - received);
+
+        try {
+            Pathplanner backend = load(request);
+            long loaded = System.nanoTime();
+
+            backend.setGenerationBudget(budget);
+
+            if (backend.getWaypointsSize() < 2)
+                throw new IllegalArgumentException("At least 2 waypoints are needed to generate a trajectory");
+
+            WaypointValidator.Problem problem = WaypointValidator.findFirst(backend.getWaypointsList());
+
+            if (problem != null)
+                throw new IllegalArgumentException(problem.toString());
+
+            backend.updateTrajectories();
+            long generated = System.nanoTime();
+
+            Trajectory source = backend.getSourceTrajectory();
+
+            response.segments = source.length();
+            response.duration = (source.length() - 1) * backend.getTimeStep();
+
+            if (request.output != null && request.output.path != null) {
+                File parentPath = new File(request.output.path).getAbsoluteFile();
+
+                parentPath.getParentFile().mkdirs();
+                backend.writeTrajectories(parentPath, "." + request.output.ext);
+            }
+
+            long written = System.nanoTime();
+
+            timings.loadMs = toMillis(loaded - start);
+            timings.generateMs = toMillis(generated - loaded);
+            timings.writeMs = toMillis(written - generated);
+        } catch (Throwable e) {
+            // Errors too, e.g. a missing native library or running out of memory; the client still needs a response
+            response = Response.error(request.id, e.getClass().getSimpleName() + ": " + e.getMessage());
+            response.timings = timings;
+        }
+
+        timings.totalMs = toMillis(System.nanoTime() - received);
+
+        return response;
+    }
+
+    /**
+     * Creates a backend from the request's project file and/or inline configuration and waypoints.
+     * Inline values override the project's.
+     */
+    private static Pathplanner load(Request request) throws Exception {
+        Pathplanner backend = new Pathplanner();
+
+        if (request.project != null) {
+            File projectFile = new File(request.project);
+
+            backend.loadProject(projectFile);
+
+            if (!backend.hasWorkingProject())
+                throw new FileNotFoundException("Failed to load " + projectFile);
+        }
+
+        Config config = request.config;
+
+        if (config != null) {
+            // Units first, since the other values are given in them
+            if (config.units != null)
+                backend.setUnits(Pathplanner.Units.valueOf(config.units.toUpperCase()));
+            if (config.dt != null)
+                backend.setTimeStep(config.dt);
+            if (config.velocity != null)
+                backend.setVelocity(config.velocity);
+            if (config.acceleration != null)
+                backend.setAcceleration(config.acceleration);
+            if (config.jerk != null)
+                backend.setJerk(config.jerk);
+            if (config.wheelBaseW != null)
+                backend.setWheelBaseW(config.wheelBaseW);
+            if (config.wheelBaseD != null)
+                backend.setWheelBaseD(config.wheelBaseD);
+            if (config.fitMethod != null)
+                backend.setFitMethod(Trajectory.FitMethod.valueOf(config.fitMethod.toUpperCase()));
+            if (config.driveBase != null)
+                backend.setDriveBase(Pathplanner.DriveBase.valueOf(config.driveBase.toUpperCase()));
+        }
+
+        if (request.waypoints != null) {
+            Pathplanner.Units units = backend.getUnits();
+            List<Waypoint> points = backend.getWaypointsList();
+
+            points.clear();
+            for (WaypointSpec w : request.waypoints)
+                points.add(new Waypoint(units.toMeters(w.x), units.toMeters(w.y), Math.toRadians(w.angle)));
+        }
+
+        return backend;
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / 1e4) / 100.0;
+    }
+
+    /**
+     * Writes one response per line.
+     * Shared by every worker answering requests from the same stream.
+     */
+    private static class ResponseWriter {
+        private final PrintWriter out;
+
+        ResponseWriter(OutputStream out) {
+            this.out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+        }
+
+        synchronized void write(Response response) {
+            out.println(GSON.toJson(response));
+            out.flush();
+        }
+    }
+
+    // Protocol objects, mapped to and from JSON by Gson
+
+    private static class Request {
+        String id;
+        String command;
+        String project;
+        Config config;
+        List<WaypointSpec> waypoints;
+        Output output;
+    }
+
+    private static class Config {
+        String units;
+        String fitMethod;
+        String driveBase;
+        Double dt;
+        Double velocity;
+        Double acceleration;
+        Double jerk;
+        Double wheelBaseW;
+        Double wheelBaseD;
+    }
+
+    private static class WaypointSpec {
+        double x;
+        double y;
+        double angle;
+    }
+
+    private static class Output {
+        String path;
+        String ext = "csv";
+    }
+
+    private static class Response {
+        String id;
+        String status;
+        String error;
+        Integer segments;
+        Double duration;
+        Timings timings;
+
+        static Response ok(String id) {
+            Response r = new Response();
+
+            r.id = id;
+            r.status = "ok";
+            return r;
+        }
+
+        static Response error(String id, String error) {
+            Response r = new Response();
+
+            r.id = id;
+            r.status = "error";
+            r.error = error;
+            return r;
+        }
+    }
+
+    private static class Timings {
+        double queuedMs;
+        double loadMs;
+        double generateMs;
+        double writeMs;
+        double totalMs;
+    }
+}
@@ -0,0 +1,106 @@
+package com.jtulayan.ui.cli;
+
+import com.jtulayan.main.Pathplanner;
+import com.jtulayan.util.KeepOutChecker;
+import com.jtulayan.util.KeepOutZones;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks many projects against the keep-out zones of a field, without generating them.
+ * Each project's path is swept with its own robot dimensions on a pool of threads; results are printed in the order
+ * the projects were given, followed by a summary.
+ */
+public class KeepOutCheck {
+    private final KeepOutZones zones;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Creates a check.
+     *
+     * @param zones the zones to check every project against
+     */
+    public KeepOutCheck(KeepOutZones zones) {
+        this.zones = zones;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Checks every project, and prints where each one first enters a zone.
+     *
+     * @param in the file paths for all projects to check
+     * @throws InterruptedException if interrupted while waiting for the checks to finish
+     */
+    public void run(String[] in) throws InterruptedException {
+        AtomicInteger workers = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "Keep-Out Check " + workers.incrementAndGet());
+
+            t.setDaemon(true);
+            return t;
+        });
+        List<Future<String>> results = new ArrayList<>();
+        int collisions = 0, failures = 0;
+        long start = System.nanoTime();
+
+        try {
+            for (String path : in)
+                results.add(pool.submit(() -> check(new File(path))));
+
+            for (int i = 0; i < in.length; i++) {
+                String result;
+
+                try {
+                    result = results.get(i).get();
+                } catch (ExecutionException e) {
+                    result = "failed to check: " + e.getCause();
+                }
+
+                if (result == null)
+                    continue;
+
+                if (result.startsWith("failed"))
+                    failures++;
+                else
+                    collisions++;
+
+                System.out.println(new File(in[i]).getName() + " " + result);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        System.out.println(String.format("Checked %d projects against %d zones in %.1f ms: %d clear, %d enter a zone, %d failed",
+                in.length, zones.size(), (System.nanoTime() - start) / 1e6, in.length - collisions - failures, collisions, failures));
+    }
+
+    /**
+     * Checks one project.
+     *
+     * @return a description of where the robot enters a zone, or null if the path stays clear
+     */
+    private String check(File project) throws Exception {
+        Pathplanner backend = new Pathplanner();
+
+        backend.loadProject(project);
+
+        if (!backend.hasWorkingProject())
+            return "failed to load";
+
+        backend.setKeepOutZones(zones);
+
+        KeepOutChecker.Collision collision = backend.checkKeepOut();
+
+        return collision == null ? null : "robot " + collision.describe(backend.getUnits().getScale());
+    }
+}
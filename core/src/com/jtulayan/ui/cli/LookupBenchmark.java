@@ -0,0 +1,207 @@
+package com.jtulayan.ui.cli;
+
+import com.jtulayan.util.SpatialIndex;
+import com.jtulayan.util.TrajectoryIndex;
+import jaci.pathfinder.Trajectory;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Measures trajectory lookups by time and distance, with a {@link TrajectoryIndex} against a linear scan,
+ * and closest point lookups with a {@link SpatialIndex} against checking every line.
+ * The trajectory is built in Java, so this runs without the native generator.
+ */
+public class LookupBenchmark {
+    // An S-curve across the field; more segments just means a smaller time step
+    private static final double DURATION = 5;
+    private static final double MAX_VELOCITY = 3;
+    private static final double MAX_ACCELERATION = 2;
+    private static final double AMPLITUDE = 1.5;
+    private static final double WAVELENGTH = 1.5;
+
+    // How far off the path to look up the closest point, at most
+    private static final double MAX_OFFSET = 0.5;
+
+    private static final int QUERIES = 1 << 16;
+    private static final int ROUNDS = 5;
+
+    // Only HotSpot-based JVMs can measure allocation per thread; null elsewhere
+    private final com.sun.management.ThreadMXBean threadBean =
+            ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean
+                    ? (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean() : null;
+
+    // Keeps the JIT from removing lookups whose results are unused
+    private double sink;
+
+    /**
+     * Runs the benchmark and prints the lookup rates.
+     *
+     * @param segments the length of the trajectory to look up
+     */
+    public void run(int segments) {
+        Trajectory t = buildTrajectory(Math.max(2, segments));
+        TrajectoryIndex index = new TrajectoryIndex(t);
+        Random random = new Random(42);
+        double[] times = new double[QUERIES];
+        double[] distances = new double[QUERIES];
+
+        for (int i = 0; i < QUERIES; i++) {
+            times[i] = random.nextDouble() * index.getDuration();
+            distances[i] = random.nextDouble() * index.getLength();
+        }
+
+        System.out.println("Looking up " + QUERIES + " random states in " + t.length() + " segments, best of " + ROUNDS + " rounds");
+
+        TrajectoryIndex.State state = new TrajectoryIndex.State();
+
+        report("Index by time", measure(() -> {
+            for (double time : times)
+                sink += index.sampleTime(time, state).x;
+        }));
+        report("Index by distance", measure(() -> {
+            for (double distance : distances)
+                sink += index.sampleDistance(distance, state).x;
+        }));
+
+        // A linear scan is much slower; measure fewer queries so long trajectories finish in time
+        int scanned = Math.max(1, Math.min(QUERIES, (int) (2e8 / t.length() / ROUNDS)));
+
+        report("Scan by distance", measure(() -> {
+            for (int i = 0; i < scanned; i++)
+                sink += scanDistance(t, distances[i]);
+        }), scanned);
+
+        SpatialIndex spatial = new SpatialIndex(t);
+        SpatialIndex.Nearest nearest = new SpatialIndex.Nearest();
+        double[] px = new double[QUERIES];
+        double[] py = new double[QUERIES];
+
+        for (int i = 0; i < QUERIES; i++) {
+            px[i] = random.nextDouble() * index.getLength();
+            py[i] = curve(px[i]) + (random.nextDouble() * 2 - 1) * MAX_OFFSET;
+        }
+
+        report("Nearest in tree", measure(() -> {
+            for (int i = 0; i < QUERIES; i++)
+                sink += spatial.nearest(px[i], py[i], nearest).distance;
+        }));
+        report("Lookahead in tree", measure(() -> {
+            for (int i = 0; i < QUERIES; i++)
+                sink += spatial.lookahead(px[i], py[i], 0.5, nearest).x;
+        }));
+        report("Nearest by scan", measure(() -> {
+            for (int i = 0; i < scanned; i++)
+                sink += spatial.nearestBruteForce(px[i], py[i], nearest).distance;
+        }), scanned);
+
+        if (sink == 42)
+            System.out.println(); // Never happens; only reads the sink
+    }
+
+    private Measurement measure(Runnable queries) {
+        Measurement best = null;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long allocated = allocatedBytes();
+            long start = System.nanoTime();
+
+            queries.run();
+
+            // Read both before allocating the measurement
+            long nanos = System.nanoTime() - start;
+            allocated = allocatedBytes() - allocated;
+
+            Measurement m = new Measurement(nanos, allocated);
+
+            if (best == null || m.nanos < best.nanos)
+                best = m;
+        }
+
+        return best;
+    }
+
+    private static void report(String name, Measurement m) {
+        report(name, m, QUERIES);
+    }
+
+    private static void report(String name, Measurement m, int queries) {
+        System.out.println(String.format("%-18s %8.2f M queries/s %8.1f ns/query %10d bytes allocated",
+                name, queries / (m.nanos / 1e3), (double) m.nanos / queries, m.allocated));
+    }
+
+    /**
+     * Finds the x position at a distance the way callers did before indexing: walking the segments from the start.
+     */
+    private static double scanDistance(Trajectory t, double distance) {
+        for (int i = 1; i < t.length(); i++) {
+            Trajectory.Segment a = t.get(i - 1), b = t.get(i);
+
+            if (b.position >= distance) {
+                double span = b.position - a.position;
+                double f = span > 0 ? (distance - a.position) / span : 0;
+
+                return a.x + (b.x - a.x) * f;
+            }
+        }
+
+        return t.get(t.length() - 1).x;
+    }
+
+    /**
+     * Builds a trajectory along an S-curve with a trapezoidal velocity profile.
+     * The x position follows the distance traveled, so the path is a little longer than the segments' positions.
+     */
+    private static Trajectory buildTrajectory(int segments) {
+        double dt = DURATION / (segments - 1);
+        double duration = DURATION;
+        double ramp = Math.min(MAX_VELOCITY / MAX_ACCELERATION, duration / 2);
+        double cruise = MAX_ACCELERATION * ramp;
+        Trajectory.Segment[] segs = new Trajectory.Segment[segments];
+        double position = 0;
+
+        for (int i = 0; i < segments; i++) {
+            double time = i * dt;
+            double velocity, acceleration;
+
+            if (time < ramp) {
+                velocity = MAX_ACCELERATION * time;
+                acceleration = MAX_ACCELERATION;
+            } else if (time > duration - ramp) {
+                velocity = MAX_ACCELERATION * (duration - time);
+                acceleration = -MAX_ACCELERATION;
+            } else {
+                velocity = cruise;
+                acceleration = 0;
+            }
+
+            if (i > 0)
+                position += (velocity + segs[i - 1].velocity) / 2 * dt;
+
+            double slope = AMPLITUDE / WAVELENGTH * Math.cos(position / WAVELENGTH);
+
+            segs[i] = new Trajectory.Segment(dt, position, curve(position),
+                    position, velocity, acceleration, 0, Math.atan(slope));
+        }
+
+        return new Trajectory(segs);
+    }
+
+    private static double curve(double x) {
+        return AMPLITUDE * Math.sin(x / WAVELENGTH);
+    }
+
+    private long allocatedBytes() {
+        return threadBean == null ? 0 : threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static class Measurement {
+        final long nanos;
+        final long allocated;
+
+        Measurement(long nanos, long allocated) {
+            this.nanos = nanos;
+            this.allocated = allocated;
+        }
+    }
+}
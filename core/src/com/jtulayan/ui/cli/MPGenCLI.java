@@ -0,0 +1,590 @@
+package com.jtulayan.ui.cli;
+
+import com.jtulayan.main.GenerationAbortedException;
+import com.jtulayan.main.GenerationBudget;
+import com.jtulayan.main.PathChain;
+import com.jtulayan.main.Pathplanner;
+import com.jtulayan.util.TrajectoryCompressor;
+import com.jtulayan.util.TrajectoryResampler;
+import com.jtulayan.util.WaypointValidator;
+import jaci.pathfinder.Pathfinder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Helper class to interface with the MPG via CLI
+ */
+public class MPGenCLI {
+    // How long a project file must go without changes before it's regenerated in watch mode
+    private static final long WATCH_DEBOUNCE_MS = 250;
+
+    private Pathplanner backend;
+
+    // Time steps to resample the trajectories to, or null to use each project's own time step
+    private double[] timeSteps;
+    private boolean verifyResample;
+
+    private GenerationBudget budget = GenerationBudget.UNLIMITED;
+
+    private boolean exportSpatialIndex;
+    private TrajectoryCompressor.Tolerance compression;
+
+    // Whether to export each segment of a chain to its own files, rather than one stitched trajectory
+    private boolean splitChains;
+
+    private boolean watch;
+
+    // Chains that list each project, by the project's absolute path, so watch mode can restitch them when it changes.
+    // Updated whenever a chain is exported
+    private final Map<Path, Set<Path>> chainsByProject = new ConcurrentHashMap<>();
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    // Renders a preview image next to each export, or null to not render them.
+    // Previews render on their own pool while the next project generates; see awaitPreviews()
+    private PreviewRenderer previews;
+    private ThreadPoolExecutor previewPool;
+    private final List<Future<?>> pendingPreviews = new ArrayList<>();
+
+    public MPGenCLI() {
+        backend = new Pathplanner();
+    }
+
+    /**
+     * Sets the time steps to export each trajectory at.
+     * Each project is generated once and resampled to each time step.
+     *
+     * @param timeSteps the time steps to export, in seconds, or null to use each project's own time step
+     */
+    public void setTimeSteps(double[] timeSteps) {
+        this.timeSteps = timeSteps;
+    }
+
+    /**
+     * Sets whether or not to report the error of resampled trajectories against direct generation.
+     *
+     * @param verifyResample whether or not to compare resampled trajectories against direct generation
+     */
+    public void setVerifyResample(boolean verifyResample) {
+        this.verifyResample = verifyResample;
+    }
+
+    /**
+     * Sets the time and memory limits for generating each project.
+     * Projects that exceed them are reported as failed, and the rest of the batch carries on.
+     *
+     * @param budget the budget to generate each project with
+     */
+    public void setGenerationBudget(GenerationBudget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Sets whether or not to write a spatial index next to each exported trajectory.
+     *
+     * @param exportSpatialIndex whether or not to export spatial indices
+     */
+    public void setExportSpatialIndex(boolean exportSpatialIndex) {
+        this.exportSpatialIndex = exportSpatialIndex;
+    }
+
+    /**
+     * Sets the tolerance to compress exported trajectories within.
+     *
+     * @param compression the tolerance, in each project's units, or null to export every segment
+     */
+    public void setCompression(TrajectoryCompressor.Tolerance compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Sets the renderer for a PNG preview of each exported project, written next to its trajectories
+     * as {@code name.png}. Previews are rendered in parallel, on as many threads as set with {@link #setThreads(int)}.
+     *
+     * @param previews the renderer to use, or null to not render previews
+     */
+    public void setPreviews(PreviewRenderer previews) {
+        this.previews = previews;
+    }
+
+    /**
+     * Sets whether to export each segment of a chain to its own files.
+     * Either way, every segment is generated as part of the whole chain, so they line up with each other.
+     *
+     * @param splitChains whether or not to write every segment's trajectories separately
+     */
+    public void setSplitChains(boolean splitChains) {
+        this.splitChains = splitChains;
+    }
+
+    /**
+     * Sets whether or not to keep watching the input directory after exporting it.
+     *
+     * @param watch whether or not to regenerate projects whenever their files change
+     */
+    public void setWatch(boolean watch) {
+        this.watch = watch;
+    }
+
+    /**
+     * Sets the amount of threads used to regenerate changed projects in watch mode.
+     *
+     * @param threads the amount of threads to use
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Generates all trajectories in the input directory and saves them to the output directory.
+     * In watch mode, this then keeps regenerating projects as they change, and never returns.
+     *
+     * @param in  the input directory containing all mpg projects
+     * @param out the output directory to export all trajectory files
+     * @param ext the file extension to export the trajectories as
+     */
+    public void export(String in, String out, String ext) {
+        try {
+            export(listProjects(in, true), out, ext);
+
+            if (watch)
+                watch(new File(in), new File(out), ext);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Watches the input directory and regenerates each project whose file is created or modified,
+     * along with every chain exported so far that lists it. Only changes inside the input directory are seen.
+     * Saving a project usually fires several events, so each project is only regenerated
+     * once its file has been quiet for {@link #WATCH_DEBOUNCE_MS}.
+     *
+     * @param inputDir  the directory containing all mpg projects
+     * @param exportDir the output directory to export all trajectory files
+     * @param ext       the file extension to export the trajectories as
+     * @throws IOException          if the directory can't be watched
+     * @throws InterruptedException if interrupted while waiting for changes
+     */
+    private void watch(File inputDir, File exportDir, String ext) throws IOException, InterruptedException {
+        ScheduledExecutorService pool = Executors.newScheduledThreadPool(threads, r -> {
+            Thread t = new Thread(r, "Watch Export");
+
+            t.setDaemon(true);
+            return t;
+        });
+
+        // Latest scheduled export and the time of the first change not yet exported, by project
+        Map<Path, ScheduledFuture<?>> pending = new ConcurrentHashMap<>();
+        Map<Path, Long> changedAt = new ConcurrentHashMap<>();
+
+        // Locks so the same project is never exported by two threads at once
+        Map<Path, Object> locks = new ConcurrentHashMap<>();
+
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            Path dir = inputDir.toPath();
+
+            dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            System.out.println("Watching " + inputDir.getAbsolutePath() + " for changes...");
+
+            while (true) {
+                WatchKey key = watcher.take();
+
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        System.out.println("Missed file changes; save the affected projects again to regenerate them");
+                        continue;
+                    }
+
+                    Path changed = dir.resolve((Path) event.context()).toAbsolutePath().normalize();
+
+                    if (!isProjectFile(changed.toString()) && !isChainFile(changed.toString()))
+                        continue;
+
+                    // Chains are stitched from their projects, so they change along with them
+                    List<Path> affected = new ArrayList<>();
+
+                    affected.add(changed);
+                    affected.addAll(chainsByProject.getOrDefault(changed, Collections.emptySet()));
+
+                    for (Path project : affected) {
+                        changedAt.putIfAbsent(project, System.nanoTime());
+
+                        // Restart the quiet period
+                        ScheduledFuture<?> previous = pending.put(project, pool.schedule(() -> {
+                            synchronized (locks.computeIfAbsent(project, p -> new Object())) {
+                                exportChanged(project, changedAt.remove(project), exportDir, ext);
+                            }
+                        }, WATCH_DEBOUNCE_MS, TimeUnit.MILLISECONDS));
+
+                        if (previous != null)
+                            previous.cancel(false);
+                    }
+                }
+
+                if (!key.reset()) {
+                    System.out.println("Can't watch " + inputDir.getAbsolutePath() + " anymore! Stopping....");
+                    break;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Exports a changed project on its own backend, logging the latency from the change to the files being written.
+     */
+    private void exportChanged(Path project, Long changedAt, File exportDir, String ext) {
+        long start = System.nanoTime();
+
+        try {
+            if (exportProject(new Pathplanner(), project.toString(), exportDir, ext)) {
+                long end = System.nanoTime();
+
+                System.out.println(String.format(
+                        "Regenerated %s in %d ms (%d ms after change)",
+                        project.getFileName(),
+                        TimeUnit.NANOSECONDS.toMillis(end - start),
+                        TimeUnit.NANOSECONDS.toMillis(end - (changedAt == null ? start : changedAt))
+                ));
+            }
+        } catch (Exception e) {
+            // Likely saved halfway through; the next write triggers another export
+            System.out.println("Failed to regenerate " + project.getFileName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Lists all project files in the given directory.
+     *
+     * @param in the directory containing all mpg projects
+     * @return the absolute file paths of every project in the directory
+     */
+    public static String[] listProjects(String in) {
+        return listProjects(in, false);
+    }
+
+    /**
+     * Lists all project files, and optionally all chain files, in the given directory.
+     *
+     * @param in     the directory containing all mpg projects
+     * @param chains whether or not to list chain files too; only exports can handle them
+     * @return the absolute file paths of every project in the directory
+     */
+    public static String[] listProjects(String in, boolean chains) {
+        File inputDir = new File(in);
+
+        if (inputDir.exists() && inputDir.isDirectory()) {
+            // Get all project files inside the directory
+            // We need to re-loop through each file since this method only gets file names.
+            File[] files = inputDir.listFiles((File dir, String name) -> isProjectFile(name) || (chains && isChainFile(name)));
+            String[] paths = new String[files.length];
+
+            // Append the full file path to the file
+            for (int i = 0; i < files.length; i++)
+                paths[i] = files[i].getAbsolutePath();
+
+            return paths;
+        } else {
+            throw new IllegalArgumentException("Invalid import directory!");
+        }
+    }
+
+    /**
+     * Generates all trajectories from each specified project and saves them to the output directory
+     *
+     * @param in  the file paths for all mpg projects to export
+     * @param out the output directory to export all trajectory files
+     * @param ext the file extension to export the trajectories as
+     */
+    public void export(String[] in, String out, String ext) {
+        File exportDir = new File(out);
+        List<String> failures = new ArrayList<>();
+
+        if (!exportDir.isDirectory() && !exportDir.mkdirs())
+            throw new IllegalArgumentException("Invalid export directory!");
+
+        System.out.println("Exporting " + in.length + " files!");
+        for (String projectDir : in) {
+            // Clear backend
+            backend.resetValues();
+            backend.clearPoints();
+            backend.clearWorkingFiles();
+
+            // One bad project shouldn't stop the rest of the batch
+            try {
+                exportProject(backend, projectDir, exportDir, ext);
+            } catch (Exception e) {
+                String failure = projectDir + ": " + describeFailure(e);
+
+                System.out.println("Failed to export " + failure);
+                failures.add(failure);
+            }
+        }
+
+        awaitPreviews();
+
+        if (!failures.isEmpty()) {
+            System.out.println(failures.size() + " of " + in.length + " files failed to export:");
+
+            for (String failure : failures)
+                System.out.println("    " + failure);
+        }
+    }
+
+    /**
+     * Describes why a project failed to export.
+     *
+     * @param e the exception the export failed with
+     * @return a short description of the failure, including whether it exceeded its budget
+     */
+    static String describeFailure(Throwable e) {
+        if (e instanceof GenerationAbortedException)
+            return ((GenerationAbortedException) e).getReason() + " - " + e.getMessage();
+
+        return e.getClass().getSimpleName() + " - " + e.getMessage();
+    }
+
+    /**
+     * Loads a single project and exports its trajectories with the given backend.
+     * Chains are exported on their own backends instead; see {@link #exportChain(String, File, String)}.
+     *
+     * @param backend    the backend to load the project into; should be cleared beforehand
+     * @param projectDir the file path of the project to export
+     * @param exportDir  the output directory to export the trajectory files
+     * @param ext        the file extension to export the trajectories as
+     * @return whether or not trajectories were written
+     * @throws Exception if the project can't be loaded or generated
+     */
+    boolean exportProject(Pathplanner backend, String projectDir, File exportDir, String ext) throws Exception {
+        if (isChainFile(projectDir))
+            return exportChain(projectDir, exportDir, ext);
+
+        if (isProjectFile(projectDir)) {
+            File curProj = new File(projectDir);
+            String exportName = curProj.getName();
+            exportName = exportName.substring(0, exportName.lastIndexOf('.')).trim();
+
+            System.out.println("Loading " + exportName + "...");
+            backend.setGenerationBudget(budget);
+            backend.setExportSpatialIndex(exportSpatialIndex);
+            backend.setCompression(compression);
+            backend.loadProject(curProj);
+
+            if (backend.hasWorkingProject()) {
+                if (backend.getWaypointsSize() > 1) {
+                    // Fail fast on waypoints that can't be generated properly
+                    WaypointValidator.Problem problem = WaypointValidator.findFirst(backend.getWaypointsList());
+
+                    if (problem != null)
+                        throw new Pathfinder.GenerationException(problem.toString());
+
+                    System.out.println("Exporting " + curProj + "...");
+
+                    if (timeSteps != null) {
+                        List<TrajectoryResampler.ResampleError> errors = backend.exportTrajectories(
+                                new File(exportDir, exportName), "." + ext, timeSteps, verifyResample
+                        );
+
+                        for (TrajectoryResampler.ResampleError error : errors)
+                            System.out.println("Resample error " + error);
+                    } else {
+                        backend.exportTrajectories(new File(exportDir, exportName), "." + ext);
+                    }
+
+                    printCompressionResults(backend);
+
+                    if (previews != null)
+                        submitPreview(backend, exportName, new File(exportDir, exportName + ".png"));
+
+                    // Don't keep this project's trajectories alive while loading the next one
+                    backend.releaseTrajectories();
+
+                    return true;
+                } else {
+                    System.out.println("Project " + curProj + " has less than 2 waypoints! Skipping....");
+                    System.out.println(backend.getWaypointsList());
+                }
+            } else {
+                System.out.println("Failed to load " + curProj + "! Skipping....");
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Loads a chain and exports its stitched trajectories, or each of its segments' trajectories if splitting chains.
+     *
+     * @param chainDir  the file path of the chain to export
+     * @param exportDir the output directory to export the trajectory files
+     * @param ext       the file extension to export the trajectories as
+     * @return whether or not trajectories were written
+     * @throws Exception if the chain or one of its projects can't be loaded, or it can't be generated
+     */
+    private boolean exportChain(String chainDir, File exportDir, String ext) throws Exception {
+        if (timeSteps != null)
+            throw new IllegalArgumentException("Chains can't be resampled to other time steps!");
+
+        File curChain = new File(chainDir);
+        String exportName = curChain.getName();
+        exportName = exportName.substring(0, exportName.lastIndexOf('.')).trim();
+
+        // Remember the chain's projects before loading them, so it's restitched once a missing or broken one is fixed
+        Path chainPath = curChain.toPath().toAbsolutePath().normalize();
+
+        for (Set<Path> chains : chainsByProject.values())
+            chains.remove(chainPath);
+
+        for (File project : PathChain.listProjects(curChain))
+            chainsByProject.computeIfAbsent(project.toPath().normalize(), p -> ConcurrentHashMap.newKeySet()).add(chainPath);
+
+        PathChain chain = new PathChain();
+
+        System.out.println("Loading chain " + exportName + "...");
+        chain.load(curChain);
+        chain.setThreads(threads);
+        chain.setGenerationBudget(budget);
+        chain.setExportSpatialIndex(exportSpatialIndex);
+        chain.setCompression(compression);
+
+        System.out.println("Exporting " + curChain + " (" + chain.size() + " segments)...");
+
+        Pathplanner combined = chain.generate();
+
+        if (splitChains)
+            chain.exportSegments(new File(exportDir, exportName), "." + ext);
+        else
+            chain.exportTrajectories(new File(exportDir, exportName), "." + ext);
+
+        double dt = combined.getTimeStep();
+
+        for (int i = 0; i < chain.size(); i++) {
+            System.out.println(String.format("    %d. %s (%s): %.2f s",
+                    i + 1, chain.getSegmentName(i), chain.getJoint(i), chain.getSegmentLength(i) * dt));
+        }
+
+        printCompressionResults(chain.getCompressionResults());
+
+        if (previews != null)
+            submitPreview(combined, exportName, new File(exportDir, exportName + ".png"));
+
+        chain.releaseTrajectories();
+
+        return true;
+    }
+
+    /**
+     * Queues a preview of the backend's trajectories to be rendered in the background.
+     * The queue is bounded, so if rendering falls behind, the exporting thread renders the preview itself
+     * rather than keeping every project's trajectories in memory.
+     */
+    private void submitPreview(Pathplanner backend, String name, File out) {
+        // The snapshot keeps the trajectories after the backend releases them
+        Pathplanner snapshot = new Pathplanner(backend);
+
+        snapshot.copyTrajectories(backend);
+
+        Runnable render = () -> {
+            try {
+                previews.render(snapshot, name, out);
+                System.out.println("Rendered preview " + out);
+            } catch (IOException e) {
+                System.out.println("Failed to render preview " + out + "! " + e.getMessage());
+            }
+        };
+
+        synchronized (pendingPreviews) {
+            if (previewPool == null) {
+                AtomicInteger workers = new AtomicInteger();
+
+                previewPool = new ThreadPoolExecutor(
+                        threads, threads, 0, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(threads * 4),
+                        r -> {
+                            Thread t = new Thread(r, "Preview Renderer " + workers.incrementAndGet());
+
+                            t.setDaemon(true);
+                            return t;
+                        },
+                        new ThreadPoolExecutor.CallerRunsPolicy()
+                );
+            }
+
+            // Watch mode never waits for its previews; forget the ones already done
+            pendingPreviews.removeIf(Future::isDone);
+            pendingPreviews.add(previewPool.submit(render));
+        }
+    }
+
+    /**
+     * Waits for all queued previews to be rendered.
+     */
+    void awaitPreviews() {
+        List<Future<?>> pending;
+
+        synchronized (pendingPreviews) {
+            pending = new ArrayList<>(pendingPreviews);
+            pendingPreviews.clear();
+        }
+
+        for (Future<?> preview : pending) {
+            try {
+                preview.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                System.out.println("Failed to render a preview! " + e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Prints how well each file written by the backend's last export compressed, if compression is on.
+     *
+     * @param backend the backend that exported the files
+     */
+    static void printCompressionResults(Pathplanner backend) {
+        printCompressionResults(backend.getCompressionResults());
+    }
+
+    private static void printCompressionResults(Map<String, TrajectoryCompressor.Result> results) {
+        for (Map.Entry<String, TrajectoryCompressor.Result> entry : results.entrySet())
+            System.out.println("Compressed " + new File(entry.getKey()).getName() + ": " + entry.getValue());
+    }
+
+    /**
+     * Checks whether or not the file name represents a project file.
+     *
+     * @param filename the name of the file to test against
+     * @return whether or not the filename has the project extension, specified in {@link Pathplanner}
+     */
+    private static boolean isProjectFile(String filename) {
+        return Pathplanner.PROJECT_EXTENSION.equals(
+                filename.substring(filename.lastIndexOf('.') + 1)
+        );
+    }
+
+    /**
+     * Checks whether or not the file name represents a chain of projects.
+     *
+     * @param filename the name of the file to test against
+     * @return whether or not the filename has the chain extension, specified in {@link PathChain}
+     */
+    private static boolean isChainFile(String filename) {
+        return PathChain.CHAIN_EXTENSION.equals(
+                filename.substring(filename.lastIndexOf('.') + 1)
+        );
+    }
+}
@@ -0,0 +1,284 @@
+package com.jtulayan.ui.cli;
+
+import com.jtulayan.main.GenerationBudget;
+import com.jtulayan.main.Pathplanner;
+import com.jtulayan.util.WaypointValidator;
+import com.opencsv.CSVWriter;
+import jaci.pathfinder.Trajectory;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sweeps velocity, acceleration, jerk and time step over a grid for each project,
+ * generating every configuration in parallel to find the fastest feasible profile.
+ * Results are streamed to a CSV file as they complete, so memory use does not grow with the grid size.
+ */
+public class ParameterSweep {
+    private static final String[] HEADER = {
+            "project", "velocity", "acceleration", "jerk", "dt", "status", "time", "max_wheel_velocity"
+    };
+
+    // Ranges to sweep; null uses the project's own value
+    private Range velocity;
+    private Range acceleration;
+    private Range jerk;
+    private Range timeStep;
+
+    private double maxWheelVelocity = Double.POSITIVE_INFINITY;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private GenerationBudget budget = GenerationBudget.UNLIMITED;
+
+    private CSVWriter writer;
+    private Map<String, Result> fastest;
+
+    public void setVelocity(Range velocity) {
+        this.velocity = velocity;
+    }
+
+    public void setAcceleration(Range acceleration) {
+        this.acceleration = acceleration;
+    }
+
+    public void setJerk(Range jerk) {
+        this.jerk = jerk;
+    }
+
+    public void setTimeStep(Range timeStep) {
+        this.timeStep = timeStep;
+    }
+
+    /**
+     * Sets the maximum allowed wheel velocity.
+     * Configurations with any wheel exceeding this are reported as infeasible.
+     *
+     * @param maxWheelVelocity the maximum wheel velocity, in each project's units
+     */
+    public void setMaxWheelVelocity(double maxWheelVelocity) {
+        this.maxWheelVelocity = maxWheelVelocity;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Sets the time and memory limits for generating each configuration.
+     * Configurations that exceed them are reported as failed.
+     *
+     * @param budget the budget to generate each configuration with
+     */
+    public void setGenerationBudget(GenerationBudget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Runs the sweep over every project and writes one CSV row per configuration.
+     *
+     * @param in  the file paths for all projects to sweep
+     * @param out the CSV file to write results to
+     * @throws IOException          if the results file can't be written
+     * @throws InterruptedException if interrupted while waiting for the sweep to finish
+     */
+    public void run(String[] in, File out) throws IOException, InterruptedException {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 4),
+                new ThreadPoolExecutor.CallerRunsPolicy() // Back-pressure: don't queue the whole grid
+        );
+
+        fastest = new ConcurrentHashMap<>();
+
+        try (CSVWriter csv = new CSVWriter(new FileWriter(out))) {
+            writer = csv;
+            writer.writeNext(HEADER);
+
+            for (String projectPath : in) {
+                File projectFile = new File(projectPath);
+                // Keyed by the path as given, so projects with the same name in different directories stay apart
+                String project = projectFile.getPath();
+                Pathplanner base = new Pathplanner();
+
+                try {
+                    base.loadProject(projectFile);
+                } catch (Exception e) {
+                    System.out.println("Failed to load " + projectFile + "! Skipping....");
+                    continue;
+                }
+
+                // Every configuration is copied from the base, budget included
+                base.setGenerationBudget(budget);
+
+                if (!base.hasWorkingProject() || base.getWaypointsSize() < 2) {
+                    System.out.println("Project " + projectFile + " can't be generated! Skipping....");
+                    continue;
+                }
+
+                // Every configuration would fail the same way
+                WaypointValidator.Problem problem = WaypointValidator.findFirst(base.getWaypointsList());
+
+                if (problem != null) {
+                    System.out.println("Project " + projectFile + " has invalid waypoints! " + problem + " Skipping....");
+                    continue;
+                }
+
+                System.out.println("Sweeping " + project + "...");
+
+                for (double v : values(velocity, base.getVelocity()))
+                    for (double a : values(acceleration, base.getAcceleration()))
+                        for (double j : values(jerk, base.getJerk()))
+                            for (double dt : values(timeStep, base.getTimeStep()))
+                                executor.execute(() -> evaluate(project, base, v, a, j, dt));
+            }
+
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (Map.Entry<String, Result> entry : fastest.entrySet())
+            System.out.println("Fastest feasible profile for " + entry.getKey() + ": " + entry.getValue());
+
+        System.out.println("Sweep results written to " + out);
+    }
+
+    /**
+     * Generates one configuration and records the result.
+     */
+    private void evaluate(String project, Pathplanner base, double v, double a, double j, double dt) {
+        Pathplanner backend = new Pathplanner(base);
+        Result result = new Result(v, a, j, dt);
+
+        backend.setVelocity(v);
+        backend.setAcceleration(a);
+        backend.setJerk(j);
+        backend.setTimeStep(dt);
+
+        try {
+            backend.updateTrajectories();
+
+            Pathplanner.Units units = backend.getUnits();
+            Trajectory source = backend.getSourceTrajectory();
+
+            result.time = (source.length() - 1) * dt;
+            result.maxWheelVelocity = units.fromMeters(Math.max(
+                    Math.max(maxVelocity(backend.getFrontLeftTrajectory()), maxVelocity(backend.getFrontRightTrajectory())),
+                    Math.max(maxVelocity(backend.getBackLeftTrajectory()), maxVelocity(backend.getBackRightTrajectory()))
+            ));
+            result.status = result.maxWheelVelocity > maxWheelVelocity ? "infeasible" : "ok";
+        } catch (Throwable e) {
+            // Any failure gets its row, Errors included, so the grid stays complete and one bad point can't stop the sweep
+            result.status = "failed";
+        }
+
+        if ("ok".equals(result.status))
+            fastest.merge(project, result, (r1, r2) -> r1.time <= r2.time ? r1 : r2);
+
+        synchronized (writer) {
+            writer.writeNext(new String[] {
+                    project, "" + v, "" + a, "" + j, "" + dt, result.status, "" + result.time, "" + result.maxWheelVelocity
+            });
+        }
+    }
+
+    private static double maxVelocity(Trajectory t) {
+        double max = 0;
+
+        if (t != null)
+            for (Trajectory.Segment seg : t.segments)
+                max = Math.max(max, Math.abs(seg.velocity));
+
+        return max;
+    }
+
+    private static double[] values(Range range, double fallback) {
+        return range == null ? new double[] { fallback } : range.values();
+    }
+
+    /**
+     * An inclusive range of values to sweep, with a fixed step.
+     */
+    public static class Range {
+        private final double min;
+        private final double max;
+        private final double step;
+
+        public Range(double min, double max, double step) {
+            if (step <= 0 || max < min)
+                throw new IllegalArgumentException("Invalid sweep range!");
+
+            this.min = min;
+            this.max = max;
+            this.step = step;
+        }
+
+        /**
+         * Parses a range in the format {@code min:max:step}, or a single value.
+         *
+         * @param spec the range to parse
+         * @return the parsed range
+         */
+        public static Range parse(String spec) {
+            String[] parts = spec.trim().split(":");
+
+            if (parts.length == 1) {
+                double val = Double.parseDouble(parts[0]);
+
+                return new Range(val, val, 1);
+            } else if (parts.length == 3) {
+                return new Range(
+                        Double.parseDouble(parts[0]),
+                        Double.parseDouble(parts[1]),
+                        Double.parseDouble(parts[2])
+                );
+            }
+
+            throw new IllegalArgumentException("Sweep ranges must be in the format min:max:step!");
+        }
+
+        public double[] values() {
+            // Count the steps up front so floating-point error doesn't add or drop the last value
+            int count = (int) Math.floor((max - min) / step + 1e-9) + 1;
+            double[] vals = new double[count];
+
+            for (int i = 0; i < count; i++)
+                vals[i] = min + i * step;
+
+            return vals;
+        }
+    }
+
+    private static class Result {
+        final double velocity;
+        final double acceleration;
+        final double jerk;
+        final double dt;
+
+        String status;
+        double time;
+        double maxWheelVelocity;
+
+        Result(double velocity, double acceleration, double jerk, double dt) {
+            this.velocity = velocity;
+            this.acceleration = acceleration;
+            this.jerk = jerk;
+            this.dt = dt;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "velocity=%s, acceleration=%s, jerk=%s, dt=%s, time=%.3f s, max wheel velocity=%.3f",
+                    velocity, acceleration, jerk, dt, time, maxWheelVelocity
+            );
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package com.jtulayan.ui.cli;
+
+import com.jtulayan.main.Pathplanner;
+import jaci.pathfinder.Trajectory;
+import jaci.pathfinder.Waypoint;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Renders a preview image of a project's trajectories without a display, e.g. to review exported paths.
+ * <p>
+ * The image shows the field with its overlay, the waypoints, and the source and wheel paths, with a plot of each
+ * wheel's velocity below it. It is drawn with Java2D straight from the trajectories' segments, so it needs neither
+ * JavaFX nor a display; the field and colors match the editor's charts. A renderer only holds its settings,
+ * and can render several previews at once on different threads.
+ */
+public class PreviewRenderer {
+    // Field size in each unit, same as the position chart
+    private static final double[] FIELD_WIDTH = { 32, 10 };
+    private static final double[] FIELD_HEIGHT = { 27, 8.23 };
+
+    // Space around and between the plots, in pixels
+    private static final int MARGIN_LEFT = 60, MARGIN_RIGHT = 20, MARGIN_TOP = 40, MARGIN_BOTTOM = 40, GAP = 50;
+
+    private static final int VELOCITY_HEIGHT = 200;
+
+    // Target amount of labeled grid lines along each axis
+    private static final int TICKS = 8;
+
+    private static final Color
+        GRID = new Color(220, 220, 220),
+        AXIS = new Color(90, 90, 90),
+        SOURCE = Color.ORANGE,
+        WAYPOINT = new Color(230, 120, 0);
+
+    // Wheel colors, in the order front-left, front-right, back-left, back-right; tank only has the first two
+    private static final Color[] TANK_WHEELS = { Color.MAGENTA, new Color(0, 150, 170) };
+    private static final Color[] SWERVE_WHEELS = { Color.RED, new Color(255, 130, 0), Color.BLUE, new Color(0, 150, 170) };
+    private static final String[] TANK_NAMES = { "Left", "Right" };
+    private static final String[] SWERVE_NAMES = { "Front Left", "Front Right", "Back Left", "Back Right" };
+
+    private int width = 960;
+    private BufferedImage overlay;
+
+    /**
+     * Sets the width of the rendered images.
+     * The height follows from the field's aspect ratio.
+     *
+     * @param width the width, in pixels
+     */
+    public void setWidth(int width) {
+        if (width < 2 * (MARGIN_LEFT + MARGIN_RIGHT))
+            throw new IllegalArgumentException("Preview width must be at least " + 2 * (MARGIN_LEFT + MARGIN_RIGHT) + "!");
+
+        this.width = width;
+    }
+
+    /**
+     * Sets the image to draw as the field, stretched over the position plot like the editor's overlay.
+     *
+     * @param file the image file, or null to draw a blank field
+     * @throws IOException if the image can't be read
+     */
+    public void setOverlay(File file) throws IOException {
+        if (file == null) {
+            overlay = null;
+            return;
+        }
+
+        BufferedImage image = ImageIO.read(file);
+
+        if (image == null)
+            throw new IOException("Can't read the overlay image " + file + "!");
+
+        // Copied into a plain RGB image, so drawing it from several threads never converts it on the fly
+        overlay = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+
+        Graphics2D g = overlay.createGraphics();
+
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+    }
+
+    /**
+     * Renders a preview of a backend's generated trajectories to a PNG file.
+     *
+     * @param backend the backend to render; its trajectories must be generated
+     * @param title   the title to show above the preview, e.g. the project name
+     * @param out     the PNG file to write
+     * @throws IOException if the image can't be written
+     */
+    public void render(Pathplanner backend, String title, File out) throws IOException {
+        ImageIO.write(render(backend, title), "png", out);
+    }
+
+    /**
+     * Renders a preview of a backend's generated trajectories.
+     *
+     * @param backend the backend to render; its trajectories must be generated
+     * @param title   the title to show above the preview, e.g. the project name
+     * @return the rendered image
+     */
+    public BufferedImage render(Pathplanner backend, String title) {
+        Pathplanner.Units units = backend.getUnits();
+        double scale = units.getScale();
+        String unit = units == Pathplanner.Units.METRIC ? "m" : "ft";
+        double fieldWidth = FIELD_WIDTH[units.ordinal()], fieldHeight = FIELD_HEIGHT[units.ordinal()];
+
+        int plotWidth = width - MARGIN_LEFT - MARGIN_RIGHT;
+        int plotHeight = (int) Math.round(plotWidth * fieldHeight / fieldWidth);
+        int height = MARGIN_TOP + plotHeight + GAP + VELOCITY_HEIGHT + MARGIN_BOTTOM;
+
+        boolean swerve = backend.getDriveBase() == Pathplanner.DriveBase.SWERVE;
+        Trajectory source = backend.getSourceTrajectory();
+        Trajectory[] wheels = swerve
+                ? new Trajectory[] { backend.getFrontLeftTrajectory(), backend.getFrontRightTrajectory(),
+                                     backend.getBackLeftTrajectory(), backend.getBackRightTrajectory() }
+                : new Trajectory[] { backend.getFrontLeftTrajectory(), backend.getFrontRightTrajectory() };
+        Color[] colors = swerve ? SWERVE_WHEELS : TANK_WHEELS;
+        String[] names = swerve ? SWERVE_NAMES : TANK_NAMES;
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+
+        // Title
+        g.setColor(Color.BLACK);
+        g.setFont(g.getFont().deriveFont(Font.BOLD, 14f));
+
+        if (source != null && source.length() > 0) {
+            title += String.format("  -  %.2f s, %d segments, %s, %s", (source.length() - 1) * source.get(0).dt,
+                    source.length(), capitalize(backend.getDriveBase().name()),
+                    backend.getFitMethod() == Trajectory.FitMethod.HERMITE_QUINTIC ? "Quintic" : "Cubic");
+        }
+
+        g.drawString(title, MARGIN_LEFT, MARGIN_TOP - 14);
+        g.setFont(g.getFont().deriveFont(Font.PLAIN, 11f));
+
+        // Position plot
+        Plot position = new Plot(MARGIN_LEFT, MARGIN_TOP, plotWidth, plotHeight, 0, fieldWidth, 0, fieldHeight);
+
+        if (overlay != null)
+            g.drawImage(overlay, position.left, position.top, position.width, position.height, null);
+
+        position.drawAxes(g, "X-Position (" + unit + ")", "Y-Position (" + unit + ")", overlay == null);
+
+        Shape clip = g.getClip();
+
+        g.clipRect(position.left, position.top, position.width + 1, position.height + 1);
+        g.setStroke(new BasicStroke(1.5f));
+
+        for (int w = 0; w < wheels.length; w++)
+            drawPath(g, position, wheels[w], scale, colors[w]);
+
+        g.setStroke(new BasicStroke(2f));
+        drawPath(g, position, source, scale, SOURCE);
+        drawWaypoints(g, position, backend, scale);
+        g.setClip(clip);
+
+        // Velocity plot
+        double duration = 0, minVelocity = 0, maxVelocity = 0;
+
+        for (Trajectory t : wheels) {
+            if (t == null || t.length() == 0)
+                continue;
+
+            duration = Math.max(duration, (t.length() - 1) * t.get(0).dt);
+
+            for (Trajectory.Segment seg : t.segments) {
+                minVelocity = Math.min(minVelocity, seg.velocity * scale);
+                maxVelocity = Math.max(maxVelocity, seg.velocity * scale);
+            }
+        }
+
+        double padding = Math.max(maxVelocity - minVelocity, 1e-3) * 0.05;
+        Plot velocity = new Plot(MARGIN_LEFT, MARGIN_TOP + plotHeight + GAP, plotWidth, VELOCITY_HEIGHT,
+                0, Math.max(duration, 1e-3), minVelocity - (minVelocity < 0 ? padding : 0), maxVelocity + padding);
+
+        velocity.drawAxes(g, "Time (s)", "Velocity (" + unit + "/s)", true);
+        g.clipRect(velocity.left, velocity.top, velocity.width + 1, velocity.height + 1);
+        g.setStroke(new BasicStroke(1.5f));
+
+        for (int w = 0; w < wheels.length; w++)
+            drawVelocity(g, velocity, wheels[w], scale, colors[w]);
+
+        g.setClip(clip);
+        drawLegend(g, velocity, names, colors);
+        g.dispose();
+
+        return image;
+    }
+
+    private static void drawPath(Graphics2D g, Plot plot, Trajectory t, double scale, Color color) {
+        if (t == null || t.length() == 0)
+            return;
+
+        Trajectory.Segment[] segments = t.segments;
+        Path2D.Double path = new Path2D.Double(Path2D.WIND_NON_ZERO, segments.length);
+
+        path.moveTo(plot.x(segments[0].x * scale), plot.y(segments[0].y * scale));
+
+        for (int i = 1; i < segments.length; i++)
+            path.lineTo(plot.x(segments[i].x * scale), plot.y(segments[i].y * scale));
+
+        g.setColor(color);
+        g.draw(path);
+    }
+
+    private static void drawVelocity(Graphics2D g, Plot plot, Trajectory t, double scale, Color color) {
+        if (t == null || t.length() == 0)
+            return;
+
+        Trajectory.Segment[] segments = t.segments;
+        Path2D.Double path = new Path2D.Double(Path2D.WIND_NON_ZERO, segments.length);
+        double dt = segments[0].dt;
+
+        path.moveTo(plot.x(0), plot.y(segments[0].velocity * scale));
+
+        for (int i = 1; i < segments.length; i++)
+            path.lineTo(plot.x(i * dt), plot.y(segments[i].velocity * scale));
+
+        g.setColor(color);
+        g.draw(path);
+    }
+
+    /**
+     * Draws each waypoint as a dot, with a line pointing along its heading.
+     */
+    private static void drawWaypoints(Graphics2D g, Plot plot, Pathplanner backend, double scale) {
+        g.setStroke(new BasicStroke(1.5f));
+
+        for (Waypoint w : backend.getWaypointsList()) {
+            double x = plot.x(w.x * scale), y = plot.y(w.y * scale);
+
+            // The y axis points down on screen
+            g.setColor(WAYPOINT);
+            g.draw(new Line2D.Double(x, y, x + 14 * Math.cos(w.angle), y - 14 * Math.sin(w.angle)));
+            g.setColor(Color.WHITE);
+            g.fill(new Ellipse2D.Double(x - 4, y - 4, 8, 8));
+            g.setColor(WAYPOINT);
+            g.draw(new Ellipse2D.Double(x - 4, y - 4, 8, 8));
+        }
+    }
+
+    private static void drawLegend(Graphics2D g, Plot plot, String[] names, Color[] colors) {
+        FontMetrics metrics = g.getFontMetrics();
+        int x = plot.left + plot.width - 10;
+        int legendWidth = 0;
+
+        for (String name : names)
+            legendWidth += metrics.stringWidth(name) + 36;
+
+        // Keep the legend readable over the lines
+        g.setColor(Color.WHITE);
+        g.fillRect(x - legendWidth + 8, plot.top + 4, legendWidth, 16);
+
+        for (int i = names.length - 1; i >= 0; i--) {
+            x -= metrics.stringWidth(names[i]);
+            g.setColor(AXIS);
+            g.drawString(names[i], x, plot.top + 16);
+            x -= 22;
+            g.setColor(colors[i]);
+            g.fillRect(x, plot.top + 8, 16, 8);
+            x -= 14;
+        }
+    }
+
+    private static String capitalize(String name) {
+        return name.charAt(0) + name.substring(1).toLowerCase();
+    }
+
+    /**
+     * Chooses a grid spacing of 1, 2 or 5 times a power of 10 that splits a range into about the given amount of steps.
+     */
+    private static double niceStep(double range, int steps) {
+        double raw = range / steps;
+        double power = Math.pow(10, Math.floor(Math.log10(raw)));
+        double fraction = raw / power;
+
+        return (fraction < 1.5 ? 1 : fraction < 3.5 ? 2 : fraction < 7.5 ? 5 : 10) * power;
+    }
+
+    /**
+     * A rectangle of the image mapped to a range of values.
+     */
+    private static class Plot {
+        final int left, top, width, height;
+        final double minX, maxX, minY, maxY;
+
+        Plot(int left, int top, int width, int height, double minX, double maxX, double minY, double maxY) {
+            this.left = left;
+            this.top = top;
+            this.width = width;
+            this.height = height;
+            this.minX = minX;
+            this.maxX = maxX;
+            this.minY = minY;
+            this.maxY = maxY;
+        }
+
+        double x(double value) {
+            return left + (value - minX) / (maxX - minX) * width;
+        }
+
+        double y(double value) {
+            return top + height - (value - minY) / (maxY - minY) * height;
+        }
+
+        /**
+         * Draws the frame, labeled grid lines and axis titles.
+         *
+         * @param grid whether or not to draw the grid lines across the plot, rather than only ticks at its edges
+         */
+        void drawAxes(Graphics2D g, String xTitle, String yTitle, boolean grid) {
+            FontMetrics metrics = g.getFontMetrics();
+            double xStep = niceStep(maxX - minX, TICKS), yStep = niceStep(maxY - minY, TICKS);
+
+            g.setStroke(new BasicStroke(1f));
+
+            for (double v = Math.ceil(minX / xStep) * xStep; v <= maxX + 1e-9; v += xStep) {
+                int x = (int) Math.round(x(v));
+                String label = format(v, xStep);
+
+                g.setColor(GRID);
+                g.drawLine(x, grid ? top : top + height - 4, x, top + height);
+                g.setColor(AXIS);
+                g.drawString(label, x - metrics.stringWidth(label) / 2, top + height + metrics.getAscent() + 4);
+            }
+
+            for (double v = Math.ceil(minY / yStep) * yStep; v <= maxY + 1e-9; v += yStep) {
+                int y = (int) Math.round(y(v));
+                String label = format(v, yStep);
+
+                g.setColor(v == 0 && minY < 0 ? AXIS : GRID);
+                g.drawLine(left, y, grid || v == 0 ? left + width : left + 4, y);
+                g.setColor(AXIS);
+                g.drawString(label, left - metrics.stringWidth(label) - 6, y + metrics.getAscent() / 2 - 1);
+            }
+
+            g.setColor(AXIS);
+            g.drawRect(left, top, width, height);
+            g.drawString(xTitle, left + (width - metrics.stringWidth(xTitle)) / 2, top + height + 2 * metrics.getHeight() + 6);
+
+            Graphics2D rotated = (Graphics2D) g.create();
+
+            rotated.rotate(-Math.PI / 2);
+            rotated.drawString(yTitle, -(top + (height + metrics.stringWidth(yTitle)) / 2), left - 42);
+            rotated.dispose();
+        }
+
+        private static String format(double value, double step) {
+            if (Math.abs(value) < step * 1e-6)
+                value = 0;
+
+            return step >= 1 ? String.format("%.0f", value) : String.format("%." + (int) Math.ceil(-Math.log10(step)) + "f", value);
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.jtulayan.ui.cli;
+
+import com.jtulayan.main.Pathplanner;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVWriter;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits a batch export across several processes, possibly on different machines sharing an output directory.
+ * <p>
+ * Projects can be partitioned up front with {@link #shard(String[], int, int)}, and/or claimed one at a time
+ * through lock files in a shared claim directory. A claim is a {@code name.claim} file created exclusively,
+ * which is moved to {@code name.done} once the project is finished. Claims left behind by a crashed process
+ * are reclaimed once they are older than the claim timeout. In the rare case that a live claim is taken over,
+ * the project is just exported twice with identical output.
+ * <p>
+ * Each process can write a CSV report of its projects, and {@link #mergeReports(String[], File)} combines them.
+ */
+public class ShardedExport {
+    private static final String[] HEADER = { "project", "status", "owner", "time_ms", "message" };
+
+    private static final String
+        STATUS_EXPORTED = "exported",
+        STATUS_SKIPPED = "skipped",
+        STATUS_FAILED = "failed";
+
+    private final MPGenCLI gen;
+
+    // Identifies this process in claims and reports
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+
+    private Path claimDir;
+    private long claimTimeout = TimeUnit.MINUTES.toMillis(5);
+    private File report;
+
+    /**
+     * Creates a sharded export.
+     *
+     * @param gen the CLI generator to export each project with
+     */
+    public ShardedExport(MPGenCLI gen) {
+        this.gen = gen;
+    }
+
+    /**
+     * Sets the shared directory to claim projects in.
+     *
+     * @param claimDir the claim directory, or null to export every project without claiming it
+     */
+    public void setClaimDir(File claimDir) {
+        this.claimDir = claimDir == null ? null : claimDir.toPath();
+    }
+
+    /**
+     * Sets how old a claim must be before it's considered abandoned.
+     * This should be well above the time needed to export a single project.
+     *
+     * @param claimTimeout the claim timeout, in milliseconds
+     */
+    public void setClaimTimeout(long claimTimeout) {
+        this.claimTimeout = claimTimeout;
+    }
+
+    public void setReport(File report) {
+        this.report = report;
+    }
+
+    /**
+     * Gets the projects belonging to one shard.
+     * Projects are sorted by file name and dealt out round-robin,
+     * so every process given the same project list gets a disjoint, stable share of it.
+     *
+     * @param projects the file paths of every project
+     * @param index    the shard to get, from 0 to {@code count - 1}
+     * @param count    the total amount of shards
+     * @return the file paths of the projects in the shard
+     */
+    public static String[] shard(String[] projects, int index, int count) {
+        if (count < 1 || index < 0 || index >= count)
+            throw new IllegalArgumentException("Invalid shard " + index + "/" + count + "!");
+
+        String[] sorted = projects.clone();
+        List<String> shard = new ArrayList<>();
+
+        Arrays.sort(sorted, Comparator.comparing((String p) -> new File(p).getName()).thenComparing(p -> p));
+
+        for (int i = index; i < sorted.length; i += count)
+            shard.add(sorted[i]);
+
+        return shard.toArray(new String[0]);
+    }
+
+    /**
+     * Exports every project that this process manages to claim.
+     *
+     * @param in  the file paths for all mpg projects to export
+     * @param out the output directory to export all trajectory files
+     * @param ext the file extension to export the trajectories as
+     * @throws IOException if the claim directory or report can't be written
+     */
+    public void run(String[] in, String out, String ext) throws IOException {
+        File exportDir = new File(out);
+        int exported = 0;
+        int failed = 0;
+
+        exportDir.mkdirs();
+
+        if (claimDir != null)
+            Files.createDirectories(claimDir);
+
+        try (CSVWriter writer = report == null ? null : new CSVWriter(new FileWriter(report))) {
+            if (writer != null)
+                writer.writeNext(HEADER);
+
+            System.out.println("Exporting up to " + in.length + " files as " + owner + "!");
+            for (String projectPath : in) {
+                String name = new File(projectPath).getName();
+
+                if (claimDir != null && !claim(name))
+                    continue;
+
+                long start = System.nanoTime();
+                String status;
+                String message = "";
+
+                try {
+                    status = gen.exportProject(new Pathplanner(), projectPath, exportDir, ext)
+                            ? STATUS_EXPORTED : STATUS_SKIPPED;
+                } catch (Exception e) {
+                    status = STATUS_FAILED;
+                    message = MPGenCLI.describeFailure(e);
+                    System.out.println("Failed to export " + projectPath + "! " + message);
+                }
+
+                // Failures are marked done too; another process would fail the same way
+                if (claimDir != null)
+                    release(name);
+
+                if (STATUS_EXPORTED.equals(status))
+                    exported++;
+                else if (STATUS_FAILED.equals(status))
+                    failed++;
+
+                if (writer != null) {
+                    writer.writeNext(new String[] {
+                            name, status, owner, "" + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), message
+                    });
+                    writer.flush();
+                }
+            }
+        }
+
+        gen.awaitPreviews();
+
+        System.out.println("Exported " + exported + " files, " + failed + " failed");
+    }
+
+    /**
+     * Tries to claim a project.
+     *
+     * @param name the file name of the project
+     * @return whether or not this process now owns the project
+     * @throws IOException if the claim directory can't be accessed
+     */
+    private boolean claim(String name) throws IOException {
+        Path claim = claimDir.resolve(name + ".claim");
+        Path done = claimDir.resolve(name + ".done");
+
+        if (Files.exists(done))
+            return false;
+
+        if (!tryCreate(claim)) {
+            if (!reclaimIfStale(name, claim) || !tryCreate(claim))
+                return false;
+        }
+
+        // The previous owner may have finished between the checks
+        if (Files.exists(done)) {
+            Files.deleteIfExists(claim);
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Atomically creates a claim file, failing if it already exists.
+     */
+    private boolean tryCreate(Path claim) throws IOException {
+        try {
+            Files.write(claim, owner.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE_NEW);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Removes a claim if it's older than the claim timeout.
+     * The claim is moved aside first, so that only one process can take it over.
+     *
+     * @return whether or not the stale claim was removed
+     */
+    private boolean reclaimIfStale(String name, Path claim) throws IOException {
+        String staleOwner;
+
+        try {
+            if (System.currentTimeMillis() - Files.getLastModifiedTime(claim).toMillis() < claimTimeout)
+                return false;
+
+            staleOwner = new String(Files.readAllBytes(claim), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return true; // Released in the meantime
+        }
+
+        Path moved = claimDir.resolve(name + ".claim." + UUID.randomUUID() + ".stale");
+
+        try {
+            Files.move(claim, moved, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            return false; // Another process reclaimed it first
+        }
+
+        String movedOwner = new String(Files.readAllBytes(moved), StandardCharsets.UTF_8);
+
+        if (!movedOwner.equals(staleOwner)) {
+            // Someone claimed it again after we checked; give it back if nobody else has
+            if (!Files.exists(claim))
+                Files.move(moved, claim, StandardCopyOption.ATOMIC_MOVE);
+            else
+                Files.deleteIfExists(moved);
+
+            return false;
+        }
+
+        Files.deleteIfExists(moved);
+        System.out.println("Reclaimed stale claim on " + name + " from " + staleOwner);
+
+        return true;
+    }
+
+    /**
+     * Marks a claimed project as done.
+     */
+    private void release(String name) throws IOException {
+        try {
+            Files.move(claimDir.resolve(name + ".claim"), claimDir.resolve(name + ".done"),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (NoSuchFileException e) {
+            // Taken over by another process, which will mark it done itself
+        }
+    }
+
+    /**
+     * Combines the reports of several processes into one, with one row per project.
+     * If a project was handled more than once, a successful export takes precedence.
+     *
+     * @param reports the report files to merge
+     * @param out     the file to write the merged report to
+     * @throws IOException if a report can't be read or the merged report can't be written
+     */
+    public static void mergeReports(String[] reports, File out) throws IOException {
+        Map<String, String[]> rows = new TreeMap<>();
+        Map<String, Integer> counts = new TreeMap<>();
+
+        for (String path : reports) {
+            try (CSVReader reader = new CSVReader(new FileReader(path.trim()))) {
+                String[] row;
+
+                reader.readNext(); // Header
+
+                while ((row = reader.readNext()) != null) {
+                    if (row.length < HEADER.length)
+                        continue;
+
+                    String[] previous = rows.get(row[0]);
+
+                    if (previous == null || !STATUS_EXPORTED.equals(previous[1]))
+                        rows.put(row[0], row);
+                }
+            }
+        }
+
+        try (CSVWriter writer = new CSVWriter(new FileWriter(out))) {
+            writer.writeNext(HEADER);
+
+            for (String[] row : rows.values()) {
+                writer.writeNext(row);
+                counts.merge(row[1], 1, Integer::sum);
+            }
+        }
+
+        System.out.println("Merged " + reports.length + " reports into " + out + ": " + rows.size() + " projects " + counts);
+    }
+}
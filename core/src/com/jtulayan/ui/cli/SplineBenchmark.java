@@ -0,0 +1,90 @@
+package com.jtulayan.ui.cli;
+
+import com.jtulayan.util.HermiteSplines;
+import jaci.pathfinder.Pathfinder;
+import jaci.pathfinder.Trajectory.FitMethod;
+import jaci.pathfinder.Waypoint;
+
+/**
+ * Measures integrating spline lengths with the batch kernels of {@link HermiteSplines},
+ * against evaluating one sample at a time with its scalar methods.
+ * The splines are evaluated in Java, so this runs without the native generator.
+ */
+public class SplineBenchmark {
+    // A path weaving across the field, in meters and radians
+    private static final Waypoint[] POINTS = {
+            new Waypoint(0.5, 4, 0),
+            new Waypoint(3, 5.5, Pathfinder.d2r(30)),
+            new Waypoint(5.5, 4, Pathfinder.d2r(-60)),
+            new Waypoint(7, 1.5, Pathfinder.d2r(-20)),
+            new Waypoint(9.5, 2, Pathfinder.d2r(45)),
+            new Waypoint(11, 5, Pathfinder.d2r(60)),
+            new Waypoint(13.5, 6.5, 0),
+            new Waypoint(15.5, 5, Pathfinder.d2r(-70))
+    };
+
+    private static final int ROUNDS = 5;
+
+    // Keeps the JIT from removing integrations whose results are unused
+    private double sink;
+
+    /**
+     * Runs the benchmark and prints the integration rates.
+     *
+     * @param samples the amount of samples to integrate each spline with
+     */
+    public void run(int samples) {
+        samples = Math.max(1, samples);
+
+        // Compile both paths for both fits before measuring either
+        for (FitMethod method : FitMethod.values()) {
+            HermiteSplines splines = new HermiteSplines(POINTS, method);
+
+            for (int round = 0; round < ROUNDS; round++) {
+                sink += splines.length(samples);
+
+                for (int i = 0; i < splines.size(); i++)
+                    sink += splines.arcLengthScalar(i, samples);
+            }
+        }
+
+        System.out.println("Integrating " + (POINTS.length - 1) + " splines with " + samples + " samples each, best of " + ROUNDS + " rounds");
+
+        for (FitMethod method : FitMethod.values()) {
+            HermiteSplines splines = new HermiteSplines(POINTS, method);
+            int n = samples;
+            double batch = splines.length(n);
+            double scalar = 0;
+
+            for (int i = 0; i < splines.size(); i++)
+                scalar += splines.arcLengthScalar(i, n);
+
+            long batchNanos = measure(() -> sink += splines.length(n));
+            long scalarNanos = measure(() -> {
+                for (int i = 0; i < splines.size(); i++)
+                    sink += splines.arcLengthScalar(i, n);
+            });
+            long total = (long) splines.size() * (samples + 1);
+
+            System.out.println(String.format("%-16s batch %8.2f M samples/s    scalar %8.2f M samples/s    %.2fx    length %.6f m (differs by %.1e)",
+                    method, total / (batchNanos / 1e3), total / (scalarNanos / 1e3),
+                    (double) scalarNanos / batchNanos, batch, Math.abs(batch - scalar) / scalar));
+        }
+
+        if (sink == 42)
+            System.out.println(); // Never happens; only reads the sink
+    }
+
+    private static long measure(Runnable integration) {
+        long best = Long.MAX_VALUE;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+
+            integration.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        return best;
+    }
+}
@@ -0,0 +1,453 @@
+package com.jtulayan.ui.cli;
+
+import com.jtulayan.main.Pathplanner;
+import com.jtulayan.util.WaypointValidator;
+import jaci.pathfinder.Trajectory;
+import jaci.pathfinder.Waypoint;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates and exports random, but plausible, paths to measure tail latency, allocation and failure rate.
+ * <p>
+ * Every case is a random set of waypoints on the field, generated and exported once for each combination
+ * of drive base and fit method. Cases are seeded from the run's seed and their index, so a failing case
+ * can be reproduced with the same seed no matter how many threads ran it.
+ * Waypoints that the {@link WaypointValidator} rejects are counted, but not generated,
+ * since every other entry point rejects them too.
+ */
+public class StressTest {
+    // Field size, in feet; same as the position chart
+    private static final double FIELD_WIDTH = 32;
+    private static final double FIELD_HEIGHT = 27;
+
+    // Keep waypoints at least this far from the field walls, in feet
+    private static final double FIELD_MARGIN = 1.5;
+
+    // Distance between consecutive waypoints, in feet
+    private static final double MIN_STEP = 3;
+    private static final double MAX_STEP = 10;
+
+    // Largest random turn between consecutive waypoints, and largest heading error relative to the path
+    private static final double MAX_TURN = Math.toRadians(75);
+    private static final double MAX_HEADING_NOISE = Math.toRadians(30);
+
+    // Only print this many failures, so a broken build doesn't flood the output
+    private static final int MAX_FAILURES_SHOWN = 10;
+
+    private static final Combination[] COMBINATIONS;
+
+    static {
+        List<Combination> combinations = new ArrayList<>();
+
+        for (Pathplanner.DriveBase driveBase : Pathplanner.DriveBase.values())
+            for (Trajectory.FitMethod fitMethod : Trajectory.FitMethod.values())
+                combinations.add(new Combination(driveBase, fitMethod));
+
+        COMBINATIONS = combinations.toArray(new Combination[0]);
+    }
+
+    // Only HotSpot-based JVMs can measure allocation per thread; null elsewhere
+    private final com.sun.management.ThreadMXBean threadBean =
+            ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean
+                    ? (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean() : null;
+
+    private long seed = System.nanoTime();
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int warmup = 50;
+    private int minWaypoints = 2;
+    private int maxWaypoints = 8;
+    private String ext = "csv";
+
+    private final AtomicInteger failuresShown = new AtomicInteger();
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Sets the amount of cases to run before measuring, so the JIT has compiled the hot path.
+     *
+     * @param warmup the amount of unmeasured cases
+     */
+    public void setWarmup(int warmup) {
+        this.warmup = Math.max(0, warmup);
+    }
+
+    /**
+     * Sets the range of waypoint counts to generate.
+     *
+     * @param min the least amount of waypoints in a case, at least 2
+     * @param max the most amount of waypoints in a case
+     */
+    public void setWaypointRange(int min, int max) {
+        if (min < 2 || max < min)
+            throw new IllegalArgumentException("Invalid waypoint range " + min + "-" + max + "!");
+
+        this.minWaypoints = min;
+        this.maxWaypoints = max;
+    }
+
+    public void setExtension(String ext) {
+        this.ext = ext;
+    }
+
+    /**
+     * Runs the given amount of cases, and prints the results of each combination.
+     *
+     * @param cases the amount of random cases to measure
+     * @throws IOException          if the temporary export directory can't be created
+     * @throws InterruptedException if interrupted while waiting for the cases to finish
+     * @throws ExecutionException   if a case dies with an unexpected error
+     */
+    public void run(int cases) throws IOException, InterruptedException, ExecutionException {
+        File exportDir = Files.createTempDirectory("pathplanner-stress").toFile();
+        AtomicInteger workers = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "Stress Worker " + workers.incrementAndGet());
+
+            t.setDaemon(true);
+            return t;
+        });
+
+        if (threadBean != null && threadBean.isThreadAllocatedMemorySupported())
+            threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        failuresShown.set(0);
+
+        System.out.println("Stress testing " + cases + " cases with seed " + seed + " on " + threads + " threads...");
+
+        try {
+            // Warmup cases are seeded from negative indices, so they never repeat a measured case
+            runCases(executor, exportDir, -warmup, 0, null);
+
+            Result[] results = new Result[COMBINATIONS.length];
+
+            for (int c = 0; c < results.length; c++)
+                results[c] = new Result(cases);
+
+            long start = System.nanoTime();
+
+            runCases(executor, exportDir, 0, cases, results);
+
+            System.out.println(String.format("Finished in %.1f s", (System.nanoTime() - start) / 1e9));
+
+            for (int c = 0; c < results.length; c++)
+                System.out.println(results[c].summary(COMBINATIONS[c]));
+        } finally {
+            executor.shutdownNow();
+            deleteAll(exportDir);
+        }
+    }
+
+    /**
+     * Runs cases {@code from} (inclusive) to {@code to} (exclusive) in parallel.
+     *
+     * @param results the results to record into, indexed by combination; null to discard them
+     */
+    private void runCases(ExecutorService executor, File exportDir, int from, int to, Result[] results)
+            throws InterruptedException, ExecutionException {
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = from; i < to; i++) {
+            int index = i;
+
+            futures.add(executor.submit(() -> runCase(index, exportDir, results)));
+        }
+
+        // Also makes every recorded result visible to this thread
+        for (Future<?> future : futures)
+            future.get();
+    }
+
+    private void runCase(int index, File exportDir, Result[] results) {
+        List<Waypoint> points = randomWaypoints(new Random(caseSeed(index)));
+        WaypointValidator.Problem problem = WaypointValidator.findFirst(points);
+
+        if (problem != null) {
+            if (results != null)
+                for (Result result : results)
+                    result.rejected[index] = true;
+
+            return;
+        }
+
+        // Each worker overwrites its own files, so the disk use doesn't grow with the amount of cases
+        File parentPath = new File(exportDir, Thread.currentThread().getName().replace(' ', '_'));
+        long threadId = Thread.currentThread().getId();
+
+        for (int c = 0; c < COMBINATIONS.length; c++) {
+            Pathplanner backend = new Pathplanner();
+
+            backend.setDriveBase(COMBINATIONS[c].driveBase);
+            backend.setFitMethod(COMBINATIONS[c].fitMethod);
+            backend.getWaypointsList().addAll(points);
+
+            long allocatedBefore = allocatedBytes(threadId);
+            long start = System.nanoTime();
+            long generated;
+            long written;
+
+            try {
+                backend.updateTrajectories();
+                generated = System.nanoTime();
+
+                backend.writeTrajectories(parentPath, "." + ext);
+                written = System.nanoTime();
+            } catch (Exception e) {
+                if (results != null) {
+                    results[c].failed[index] = true;
+                    showFailure(index, COMBINATIONS[c], points, e);
+                }
+
+                continue;
+            }
+
+            long allocated = allocatedBytes(threadId) - allocatedBefore;
+
+            if (results != null) {
+                results[c].generateNanos[index] = generated - start;
+                results[c].writeNanos[index] = written - generated;
+                results[c].allocatedBytes[index] = allocated;
+            }
+        }
+    }
+
+    /**
+     * Creates a random path across the field.
+     * Each waypoint continues roughly in the direction of the last, with its heading loosely following the path.
+     * Headings are deliberately noisy, so some cases are invalid, like a hastily edited project would be.
+     *
+     * @param random the random source of the case
+     * @return the waypoints, in meters and radians
+     */
+    List<Waypoint> randomWaypoints(Random random) {
+        int count = minWaypoints + random.nextInt(maxWaypoints - minWaypoints + 1);
+        double[] x = new double[count];
+        double[] y = new double[count];
+
+        x[0] = uniform(random, FIELD_MARGIN, FIELD_WIDTH - FIELD_MARGIN);
+        y[0] = uniform(random, FIELD_MARGIN, FIELD_HEIGHT - FIELD_MARGIN);
+
+        double direction = uniform(random, -Math.PI, Math.PI);
+        int placed = 1;
+
+        while (placed < count) {
+            boolean inside = false;
+
+            // Turn until the next waypoint lands on the field; give up on this path length if it never does
+            for (int attempt = 0; attempt < 20 && !inside; attempt++) {
+                double turn = attempt == 0 ? MAX_TURN : Math.PI;
+                double nextDirection = direction + uniform(random, -turn, turn);
+                double step = uniform(random, MIN_STEP, MAX_STEP);
+                double nx = x[placed - 1] + step * Math.cos(nextDirection);
+                double ny = y[placed - 1] + step * Math.sin(nextDirection);
+
+                inside = nx >= FIELD_MARGIN && nx <= FIELD_WIDTH - FIELD_MARGIN
+                        && ny >= FIELD_MARGIN && ny <= FIELD_HEIGHT - FIELD_MARGIN;
+
+                if (inside) {
+                    x[placed] = nx;
+                    y[placed] = ny;
+                    direction = nextDirection;
+                }
+            }
+
+            if (!inside)
+                break;
+
+            placed++;
+        }
+
+        // Boxed into a corner before the second waypoint; start over
+        if (placed < 2)
+            return randomWaypoints(random);
+
+        Pathplanner.Units units = Pathplanner.Units.IMPERIAL;
+        List<Waypoint> points = new ArrayList<>(placed);
+
+        for (int i = 0; i < placed; i++) {
+            // Head between the directions from the previous waypoint and to the next one
+            double hx = 0, hy = 0;
+
+            if (i > 0) {
+                double d = Math.hypot(x[i] - x[i - 1], y[i] - y[i - 1]);
+
+                hx += (x[i] - x[i - 1]) / d;
+                hy += (y[i] - y[i - 1]) / d;
+            }
+
+            if (i + 1 < placed) {
+                double d = Math.hypot(x[i + 1] - x[i], y[i + 1] - y[i]);
+
+                hx += (x[i + 1] - x[i]) / d;
+                hy += (y[i + 1] - y[i]) / d;
+            }
+
+            double heading = Math.atan2(hy, hx) + uniform(random, -MAX_HEADING_NOISE, MAX_HEADING_NOISE);
+
+            points.add(new Waypoint(units.toMeters(x[i]), units.toMeters(y[i]), heading));
+        }
+
+        return points;
+    }
+
+    private long caseSeed(int index) {
+        // Spread consecutive indices over the seed space
+        return seed + index * 0x9E3779B97F4A7C15L;
+    }
+
+    private static double uniform(Random random, double min, double max) {
+        return min + random.nextDouble() * (max - min);
+    }
+
+    /**
+     * Gets the bytes allocated by a thread so far, or 0 if the JVM doesn't track it.
+     */
+    private long allocatedBytes(long threadId) {
+        return threadBean == null ? 0 : Math.max(0, threadBean.getThreadAllocatedBytes(threadId));
+    }
+
+    private void showFailure(int index, Combination combination, List<Waypoint> points, Exception e) {
+        int shown = failuresShown.incrementAndGet();
+
+        if (shown > MAX_FAILURES_SHOWN)
+            return;
+
+        StringBuilder waypoints = new StringBuilder();
+        Pathplanner.Units units = Pathplanner.Units.IMPERIAL;
+
+        for (Waypoint w : points)
+            waypoints.append(String.format(" (%.2f, %.2f, %.1f)",
+                    units.fromMeters(w.x), units.fromMeters(w.y), Math.toDegrees(w.angle)));
+
+        System.out.println("Case " + index + " failed with " + combination + ": " + MPGenCLI.describeFailure(e)
+                + "\n    Waypoints (ft, ft, deg):" + waypoints);
+
+        if (shown == MAX_FAILURES_SHOWN)
+            System.out.println("Not showing any more failures....");
+    }
+
+    private static void deleteAll(File dir) {
+        File[] files = dir.listFiles();
+
+        if (files != null)
+            for (File f : files)
+                f.delete();
+
+        dir.delete();
+    }
+
+    private static class Combination {
+        final Pathplanner.DriveBase driveBase;
+        final Trajectory.FitMethod fitMethod;
+
+        Combination(Pathplanner.DriveBase driveBase, Trajectory.FitMethod fitMethod) {
+            this.driveBase = driveBase;
+            this.fitMethod = fitMethod;
+        }
+
+        @Override
+        public String toString() {
+            return driveBase + "/" + fitMethod;
+        }
+    }
+
+    /**
+     * Measurements of one combination, indexed by case.
+     * Each case is only written by the thread running it.
+     */
+    private static class Result {
+        final long[] generateNanos;
+        final long[] writeNanos;
+        final long[] allocatedBytes;
+        final boolean[] rejected;
+        final boolean[] failed;
+
+        Result(int cases) {
+            generateNanos = new long[cases];
+            writeNanos = new long[cases];
+            allocatedBytes = new long[cases];
+            rejected = new boolean[cases];
+            failed = new boolean[cases];
+        }
+
+        String summary(Combination combination) {
+            int cases = rejected.length;
+            int rejectedCount = 0;
+            int failedCount = 0;
+
+            for (int i = 0; i < cases; i++) {
+                if (rejected[i])
+                    rejectedCount++;
+                else if (failed[i])
+                    failedCount++;
+            }
+
+            int generated = cases - rejectedCount - failedCount;
+            long[] generate = new long[generated];
+            long[] write = new long[generated];
+            long allocated = 0;
+
+            for (int i = 0, j = 0; i < cases; i++) {
+                if (rejected[i] || failed[i])
+                    continue;
+
+                generate[j] = generateNanos[i];
+                write[j] = writeNanos[i];
+                allocated += allocatedBytes[i];
+                j++;
+            }
+
+            Arrays.sort(generate);
+            Arrays.sort(write);
+
+            int attempted = cases - rejectedCount;
+
+            return String.format(
+                    "%s: %d cases, %d rejected as invalid, %d failed (%.2f%%)%n" +
+                    "    Generate: %s%n" +
+                    "    Export:   %s%n" +
+                    "    Allocated %.1f KB per generation",
+                    combination, cases, rejectedCount, failedCount,
+                    attempted == 0 ? 0 : 100.0 * failedCount / attempted,
+                    percentiles(generate), percentiles(write),
+                    generated == 0 ? 0 : allocated / 1e3 / generated
+            );
+        }
+
+        private static String percentiles(long[] sorted) {
+            if (sorted.length == 0)
+                return "no samples";
+
+            return String.format("p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, max %.2f ms",
+                    percentile(sorted, 0.5) / 1e6, percentile(sorted, 0.95) / 1e6,
+                    percentile(sorted, 0.99) / 1e6, sorted[sorted.length - 1] / 1e6);
+        }
+
+        /**
+         * Gets a percentile by the nearest-rank method.
+         */
+        private static long percentile(long[] sorted, double p) {
+            int rank = (int) Math.ceil(p * sorted.length);
+
+            return sorted[Math.max(0, rank - 1)];
+        }
+    }
+}
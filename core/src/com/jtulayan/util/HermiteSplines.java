@@ -0,0 +1,275 @@
+package com.jtulayan.util;
+
+import jaci.pathfinder.Trajectory.FitMethod;
+import jaci.pathfinder.Waypoint;
+
+/**
+ * The Hermite splines that the generator fits between consecutive waypoints, evaluated in Java.
+ * <p>
+ * Each spline is fit the way the native generator fits it: in a frame along the line between its waypoints,
+ * as a polynomial y(x) for x from 0 to that line's length, with slopes at both ends set by the waypoints' angles.
+ * {@link FitMethod#HERMITE_CUBIC} fits a cubic, and {@link FitMethod#HERMITE_QUINTIC} a quintic with zero
+ * curvature at both ends; both are stored as the quintic {@code a x^5 + b x^4 + c x^3 + d x^2 + e x}.
+ * <p>
+ * Coefficients are stored in flat arrays, one entry per spline. The batch methods run a plain counted loop
+ * over arrays of spline parameters with no calls or branches in it, so the JIT can unroll and vectorize it;
+ * arc length integration runs them a block of samples at a time, and sums each block with independent
+ * accumulators so the additions don't wait on each other. The single-parameter methods are the scalar
+ * reference that the batch methods must agree with.
+ * <p>
+ * Splines are immutable once fit, and can be evaluated from several threads at once.
+ */
+public class HermiteSplines {
+    // Samples integrated at a time; small enough that a block's arrays stay in the L1 cache
+    private static final int BLOCK = 256;
+
+    private final int size;
+
+    // Polynomial coefficients of each spline, in its own frame
+    private final double[] a, b, c, d, e;
+
+    // Length of the line between each spline's waypoints, and the frame it is fit in
+    private final double[] knot;
+    private final double[] offsetX, offsetY;
+    private final double[] cos, sin;
+
+    /**
+     * Fits a spline between each pair of consecutive waypoints.
+     *
+     * @param points the waypoints, in meters and radians
+     * @param method the kind of spline to fit
+     */
+    public HermiteSplines(Waypoint[] points, FitMethod method) {
+        size = Math.max(0, points.length - 1);
+        a = new double[size];
+        b = new double[size];
+        c = new double[size];
+        d = new double[size];
+        e = new double[size];
+        knot = new double[size];
+        offsetX = new double[size];
+        offsetY = new double[size];
+        cos = new double[size];
+        sin = new double[size];
+
+        for (int i = 0; i < size; i++) {
+            Waypoint p0 = points[i], p1 = points[i + 1];
+            double angle = Math.atan2(p1.y - p0.y, p1.x - p0.x);
+            double k = Math.hypot(p1.x - p0.x, p1.y - p0.y);
+            double slope0 = Math.tan(angleDifference(p0.angle, angle));
+            double slope1 = Math.tan(angleDifference(p1.angle, angle));
+
+            knot[i] = k;
+            offsetX[i] = p0.x;
+            offsetY[i] = p0.y;
+            cos[i] = Math.cos(angle);
+            sin[i] = Math.sin(angle);
+            e[i] = slope0;
+
+            if (method == FitMethod.HERMITE_QUINTIC) {
+                a[i] = -3 * (slope0 + slope1) / (k * k * k * k);
+                b[i] = (8 * slope0 + 7 * slope1) / (k * k * k);
+                c[i] = -(6 * slope0 + 4 * slope1) / (k * k);
+            } else {
+                c[i] = (slope0 + slope1) / (k * k);
+                d[i] = -(2 * slope0 + slope1) / k;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the length of the line between a spline's waypoints.
+     *
+     * @param spline the index of the spline
+     * @return the distance between its waypoints, in meters
+     */
+    public double getKnotDistance(int spline) {
+        return knot[spline];
+    }
+
+    /**
+     * Gets the slope of a spline in its own frame.
+     *
+     * @param spline the index of the spline
+     * @param t      how far along the spline, from 0 to 1
+     * @return dy/dx along the line between its waypoints
+     */
+    public double derivative(int spline, double t) {
+        double x = t * knot[spline];
+
+        return (5 * a[spline] * x + 4 * b[spline]) * x * x * x + (3 * c[spline] * x + 2 * d[spline]) * x + e[spline];
+    }
+
+    /**
+     * Gets a point on a spline.
+     *
+     * @param spline the index of the spline
+     * @param t      how far along the spline, from 0 to 1
+     * @param out    an array to write x and y into, in meters
+     * @return {@code out}, for chaining
+     */
+    public double[] evaluate(int spline, double t, double[] out) {
+        double x = t * knot[spline];
+        double y = (a[spline] * x + b[spline]) * x * x * x * x + (c[spline] * x + d[spline]) * x * x + e[spline] * x;
+
+        out[0] = x * cos[spline] - y * sin[spline] + offsetX[spline];
+        out[1] = x * sin[spline] + y * cos[spline] + offsetY[spline];
+
+        return out;
+    }
+
+    /**
+     * Gets the slope of a spline at many parameters at once.
+     *
+     * @param spline the index of the spline
+     * @param t      how far along the spline each parameter is, from 0 to 1
+     * @param out    the array to write each slope into
+     * @param count  the amount of parameters
+     */
+    public void derivatives(int spline, double[] t, double[] out, int count) {
+        double k = knot[spline];
+        double a5 = 5 * a[spline], b4 = 4 * b[spline], c3 = 3 * c[spline], d2 = 2 * d[spline], e1 = e[spline];
+
+        for (int i = 0; i < count; i++) {
+            double x = t[i] * k;
+
+            out[i] = (a5 * x + b4) * x * x * x + (c3 * x + d2) * x + e1;
+        }
+    }
+
+    /**
+     * Gets points on a spline at many parameters at once.
+     *
+     * @param spline the index of the spline
+     * @param t      how far along the spline each parameter is, from 0 to 1
+     * @param outX   the array to write each x into, in meters
+     * @param outY   the array to write each y into, in meters
+     * @param count  the amount of parameters
+     */
+    public void evaluate(int spline, double[] t, double[] outX, double[] outY, int count) {
+        double k = knot[spline];
+        double a0 = a[spline], b0 = b[spline], c0 = c[spline], d0 = d[spline], e0 = e[spline];
+        double cs = cos[spline], sn = sin[spline], ox = offsetX[spline], oy = offsetY[spline];
+
+        for (int i = 0; i < count; i++) {
+            double x = t[i] * k;
+            double x2 = x * x;
+            double y = (a0 * x + b0) * x2 * x2 + (c0 * x + d0) * x2 + e0 * x;
+
+            outX[i] = x * cs - y * sn + ox;
+            outY[i] = x * sn + y * cs + oy;
+        }
+    }
+
+    /**
+     * Gets the direction of a spline at many parameters at once.
+     *
+     * @param spline the index of the spline
+     * @param t      how far along the spline each parameter is, from 0 to 1
+     * @param out    the array to write each heading into, in radians
+     * @param count  the amount of parameters
+     */
+    public void headings(int spline, double[] t, double[] out, int count) {
+        double angle = Math.atan2(sin[spline], cos[spline]);
+
+        derivatives(spline, t, out, count);
+
+        for (int i = 0; i < count; i++)
+            out[i] = angle + Math.atan(out[i]);
+    }
+
+    /**
+     * Integrates the length of a spline with the trapezoidal rule.
+     *
+     * @param spline  the index of the spline
+     * @param samples the amount of intervals to integrate over
+     * @return the spline's length, in meters
+     */
+    public double arcLength(int spline, int samples) {
+        double[] t = new double[BLOCK];
+        double[] f = new double[BLOCK];
+        double step = 1.0 / samples;
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+
+        for (int from = 0; from <= samples; from += BLOCK) {
+            int count = Math.min(BLOCK, samples + 1 - from);
+
+            for (int i = 0; i < count; i++)
+                t[i] = (from + i) * step;
+
+            derivatives(spline, t, f, count);
+
+            for (int i = 0; i < count; i++)
+                f[i] = Math.sqrt(1 + f[i] * f[i]);
+
+            int i = 0;
+
+            // Four independent sums, so each addition doesn't wait on the one before it
+            for (; i + 3 < count; i += 4) {
+                s0 += f[i];
+                s1 += f[i + 1];
+                s2 += f[i + 2];
+                s3 += f[i + 3];
+            }
+
+            for (; i < count; i++)
+                s0 += f[i];
+        }
+
+        // The trapezoidal rule counts both ends half
+        double ends = Math.sqrt(1 + square(derivative(spline, 0))) + Math.sqrt(1 + square(derivative(spline, 1)));
+
+        return (s0 + s1 + s2 + s3 - ends / 2) * step * knot[spline];
+    }
+
+    /**
+     * Integrates the length of a spline one sample at a time, with the scalar methods.
+     * This is the reference the batch kernels are checked and measured against.
+     *
+     * @param spline  the index of the spline
+     * @param samples the amount of intervals to integrate over
+     * @return the spline's length, in meters
+     */
+    public double arcLengthScalar(int spline, int samples) {
+        double sum = 0;
+        double last = Math.sqrt(1 + square(derivative(spline, 0)));
+
+        for (int i = 1; i <= samples; i++) {
+            double next = Math.sqrt(1 + square(derivative(spline, (double) i / samples)));
+
+            sum += (last + next) / 2;
+            last = next;
+        }
+
+        return sum / samples * knot[spline];
+    }
+
+    /**
+     * Integrates the length of the whole path.
+     *
+     * @param samples the amount of intervals to integrate each spline over
+     * @return the sum of the splines' lengths, in meters
+     */
+    public double length(int samples) {
+        double length = 0;
+
+        for (int i = 0; i < size; i++)
+            length += arcLength(i, samples);
+
+        return length;
+    }
+
+    private static double square(double x) {
+        return x * x;
+    }
+
+    private static double angleDifference(double a, double b) {
+        double diff = a - b;
+
+        return Math.atan2(Math.sin(diff), Math.cos(diff));
+    }
+}
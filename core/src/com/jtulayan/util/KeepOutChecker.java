@@ -0,0 +1,395 @@
+package com.jtulayan.util;
+
+import jaci.pathfinder.Trajectory.FitMethod;
+import jaci.pathfinder.Waypoint;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sweeps the robot's footprint along a path to find where it first enters a keep-out zone.
+ * <p>
+ * The footprint is a rectangle centered on the path, facing along it. It is placed at closely spaced points of the
+ * splines the generator fits, and the convex hull of each consecutive pair of footprints is tested against the
+ * zones, so the robot can't slip past a corner between two placements. Points are spaced by both distance and
+ * turning, so the hull stays close to the footprint's actual sweep on tight turns.
+ * <p>
+ * Splines only depend on their two waypoints, so each spline's result is kept and reused until one of them moves.
+ * Dragging a waypoint only rechecks the two splines next to it. A checker is for one set of zones and one footprint,
+ * and isn't thread safe; create one per thread.
+ */
+public class KeepOutChecker {
+    // Most distance between placements, as a fraction of the footprint's smaller side
+    private static final double STEP_FRACTION = 0.25;
+
+    // Most turning between placements; a corner at radius r bulges out of the hull by r (1 - cos(turn / 2))
+    private static final double MAX_TURN = Math.toRadians(4);
+
+    // Samples used to measure each spline's length and turning before sweeping it
+    private static final int SURVEY_SAMPLES = 64;
+
+    // Most placements per spline, so a degenerate spline can't stall the check
+    private static final int MAX_PLACEMENTS = 100_000;
+
+    // Placements evaluated at a time
+    private static final int BLOCK = 256;
+
+    private final KeepOutZones zones;
+    private final double width;
+    private final double depth;
+
+    // Result of each spline of the last check, by its waypoints
+    private Map<SplineKey, SplineResult> results = new HashMap<>();
+    private int rechecked;
+
+    // Scratch arrays, reused between splines
+    private final double[] t = new double[BLOCK + 1];
+    private final double[] px = new double[BLOCK + 1], py = new double[BLOCK + 1], heading = new double[BLOCK + 1];
+    private final double[] cornersX = new double[8], cornersY = new double[8];
+    private final double[] hullX = new double[9], hullY = new double[9];
+
+    /**
+     * Creates a checker.
+     *
+     * @param zones the zones to keep out of
+     * @param width the width of the robot, across its heading, in meters
+     * @param depth the depth of the robot, along its heading, in meters
+     */
+    public KeepOutChecker(KeepOutZones zones, double width, double depth) {
+        if (!(width > 0) || !(depth > 0))
+            throw new IllegalArgumentException("The robot's width and depth must be positive!");
+
+        this.zones = zones;
+        this.width = width;
+        this.depth = depth;
+    }
+
+    /**
+     * Checks whether this checker can be reused for other zones or another footprint.
+     *
+     * @return true if it checks against the same zones with the same footprint
+     */
+    public boolean isFor(KeepOutZones zones, double width, double depth) {
+        return this.zones == zones && this.width == width && this.depth == depth;
+    }
+
+    /**
+     * Gets the amount of splines the last check had to sweep, rather than reusing their earlier result.
+     *
+     * @return the amount of splines swept
+     */
+    public int getRecheckedSplines() {
+        return rechecked;
+    }
+
+    /**
+     * Finds where the robot first enters a keep-out zone when following the path through the given waypoints.
+     *
+     * @param points the waypoints, in meters and radians
+     * @param method the kind of spline the path is fit with
+     * @return the first collision along the path, or null if the robot stays clear of every zone
+     */
+    public Collision check(List<Waypoint> points, FitMethod method) {
+        Waypoint[] array = points.toArray(new Waypoint[0]);
+        HermiteSplines splines = new HermiteSplines(array, method);
+        Map<SplineKey, SplineResult> current = new HashMap<>();
+        Collision first = null;
+        double distance = 0;
+
+        rechecked = 0;
+
+        for (int i = 0; i < splines.size(); i++) {
+            SplineKey key = new SplineKey(array[i], array[i + 1], method);
+            SplineResult result = current.get(key);
+
+            if (result == null)
+                result = results.get(key);
+
+            if (result == null) {
+                result = sweep(splines, i);
+                rechecked++;
+            }
+
+            current.put(key, result);
+
+            if (first == null && result.zone >= 0)
+                first = new Collision(i, zones.getName(result.zone), result.x, result.y, result.heading, distance + result.distance);
+
+            distance += result.length;
+        }
+
+        // Only keep the current splines, so the results can't grow while editing
+        results = current;
+
+        return first;
+    }
+
+    /**
+     * Sweeps the footprint along one spline.
+     */
+    private SplineResult sweep(HermiteSplines splines, int spline) {
+        SplineResult result = new SplineResult();
+        double distance = 0;
+        boolean first = true;
+
+        result.length = splines.arcLength(spline, SURVEY_SAMPLES);
+
+        int placements = countPlacements(splines, spline, result.length);
+
+        for (int from = 0; from <= placements; from += BLOCK) {
+            // Each block starts with the last placement of the one before it
+            int start = from == 0 ? 0 : from - 1;
+            int count = Math.min(placements, from + BLOCK - 1) - start + 1;
+
+            for (int i = 0; i < count; i++)
+                t[i] = (double) (start + i) / placements;
+
+            splines.evaluate(spline, t, px, py, count);
+            splines.headings(spline, t, heading, count);
+
+            for (int i = first ? 0 : 1; i < count; i++) {
+                int previous = Math.max(0, i - 1);
+
+                distance += Math.hypot(px[i] - px[previous], py[i] - py[previous]);
+
+                if (!zones.mayOverlap(Math.min(px[i], px[previous]) - depth - width, Math.min(py[i], py[previous]) - depth - width,
+                        Math.max(px[i], px[previous]) + depth + width, Math.max(py[i], py[previous]) + depth + width))
+                    continue;
+
+                placeFootprint(px[previous], py[previous], heading[previous], 0);
+                placeFootprint(px[i], py[i], heading[i], 4);
+
+                int zone = zones.findOverlap(hullX, hullY, hull());
+
+                if (zone >= 0) {
+                    result.zone = zone;
+                    result.x = px[i];
+                    result.y = py[i];
+                    result.heading = heading[i];
+                    result.distance = distance;
+                    return result;
+                }
+            }
+
+            first = false;
+        }
+
+        return result;
+    }
+
+    /**
+     * Chooses how many placements a spline needs to stay within both the distance and turning limits.
+     */
+    private int countPlacements(HermiteSplines splines, int spline, double length) {
+        double[] survey = new double[SURVEY_SAMPLES + 1];
+        double[] angles = new double[SURVEY_SAMPLES + 1];
+        double turning = 0;
+
+        for (int i = 0; i <= SURVEY_SAMPLES; i++)
+            survey[i] = (double) i / SURVEY_SAMPLES;
+
+        splines.headings(spline, survey, angles, SURVEY_SAMPLES + 1);
+
+        for (int i = 1; i <= SURVEY_SAMPLES; i++)
+            turning += Math.abs(angles[i] - angles[i - 1]);
+
+        double step = STEP_FRACTION * Math.min(width, depth);
+        double placements = Math.max(length / step, turning / MAX_TURN);
+
+        if (!Double.isFinite(placements))
+            return MAX_PLACEMENTS;
+
+        return (int) Math.max(1, Math.min(MAX_PLACEMENTS, Math.ceil(placements)));
+    }
+
+    /**
+     * Writes the corners of the footprint at a pose into the corner arrays, starting at an offset.
+     */
+    private void placeFootprint(double x, double y, double angle, int offset) {
+        double cos = Math.cos(angle), sin = Math.sin(angle);
+        double fx = cos * depth / 2, fy = sin * depth / 2;
+        double sx = -sin * width / 2, sy = cos * width / 2;
+
+        cornersX[offset] = x + fx + sx;
+        cornersY[offset] = y + fy + sy;
+        cornersX[offset + 1] = x + fx - sx;
+        cornersY[offset + 1] = y + fy - sy;
+        cornersX[offset + 2] = x - fx - sx;
+        cornersY[offset + 2] = y - fy - sy;
+        cornersX[offset + 3] = x - fx + sx;
+        cornersY[offset + 3] = y - fy + sy;
+    }
+
+    /**
+     * Computes the convex hull of the 8 corners with Andrew's monotone chain.
+     *
+     * @return the amount of vertices written to the hull arrays, counterclockwise
+     */
+    private int hull() {
+        // Insertion sort by x, then y; there are only 8 points
+        for (int i = 1; i < 8; i++) {
+            double x = cornersX[i], y = cornersY[i];
+            int j = i - 1;
+
+            for (; j >= 0 && (cornersX[j] > x || (cornersX[j] == x && cornersY[j] > y)); j--) {
+                cornersX[j + 1] = cornersX[j];
+                cornersY[j + 1] = cornersY[j];
+            }
+
+            cornersX[j + 1] = x;
+            cornersY[j + 1] = y;
+        }
+
+        int k = 0;
+
+        // Lower hull, then upper hull
+        for (int i = 0; i < 8; i++) {
+            while (k >= 2 && turn(k, cornersX[i], cornersY[i]) <= 0)
+                k--;
+
+            hullX[k] = cornersX[i];
+            hullY[k++] = cornersY[i];
+        }
+
+        for (int i = 6, lower = k + 1; i >= 0; i--) {
+            while (k >= lower && turn(k, cornersX[i], cornersY[i]) <= 0)
+                k--;
+
+            hullX[k] = cornersX[i];
+            hullY[k++] = cornersY[i];
+        }
+
+        // The last point repeats the first
+        return k - 1;
+    }
+
+    private double turn(int k, double x, double y) {
+        return (hullX[k - 1] - hullX[k - 2]) * (y - hullY[k - 2]) - (hullY[k - 1] - hullY[k - 2]) * (x - hullX[k - 2]);
+    }
+
+    /**
+     * The result of sweeping one spline.
+     */
+    private static class SplineResult {
+        // Index of the first zone entered, or -1 if none
+        int zone = -1;
+
+        // Where the zone was entered, and how far along the spline
+        double x, y, heading;
+        double distance;
+
+        // Length of the spline
+        double length;
+    }
+
+    /**
+     * Identifies a spline by its waypoints, which are all that its shape depends on.
+     */
+    private static class SplineKey {
+        private final double x0, y0, angle0, x1, y1, angle1;
+        private final FitMethod method;
+
+        SplineKey(Waypoint from, Waypoint to, FitMethod method) {
+            x0 = from.x;
+            y0 = from.y;
+            angle0 = from.angle;
+            x1 = to.x;
+            y1 = to.y;
+            angle1 = to.angle;
+            this.method = method;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SplineKey))
+                return false;
+
+            SplineKey k = (SplineKey) o;
+
+            return x0 == k.x0 && y0 == k.y0 && angle0 == k.angle0
+                    && x1 == k.x1 && y1 == k.y1 && angle1 == k.angle1 && method == k.method;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = method.hashCode();
+
+            for (double d : new double[] { x0, y0, angle0, x1, y1, angle1 })
+                hash = 31 * hash + Double.hashCode(d);
+
+            return hash;
+        }
+    }
+
+    /**
+     * Where the robot first enters a keep-out zone.
+     */
+    public static class Collision {
+        private final int spline;
+        private final String zone;
+        private final double x, y, heading;
+        private final double distance;
+
+        Collision(int spline, String zone, double x, double y, double heading, double distance) {
+            this.spline = spline;
+            this.zone = zone;
+            this.x = x;
+            this.y = y;
+            this.heading = heading;
+            this.distance = distance;
+        }
+
+        /**
+         * Gets which spline the collision is on.
+         *
+         * @return the index of the waypoint the spline starts at
+         */
+        public int getSpline() {
+            return spline;
+        }
+
+        public String getZone() {
+            return zone;
+        }
+
+        // Where the robot is when it enters the zone, in meters and radians
+
+        public double getX() {
+            return x;
+        }
+
+        public double getY() {
+            return y;
+        }
+
+        public double getHeading() {
+            return heading;
+        }
+
+        /**
+         * Gets how far along the path the collision is.
+         *
+         * @return the distance from the first waypoint, in meters
+         */
+        public double getDistance() {
+            return distance;
+        }
+
+        /**
+         * Describes the collision in other units.
+         *
+         * @param scale the factor to convert meters to the units to describe it in
+         * @return a description of the collision
+         */
+        public String describe(double scale) {
+            return String.format("enters keep-out zone %s at (%.2f, %.2f), %.2f along the path between waypoints %d and %d",
+                    zone, x * scale, y * scale, distance * scale, spline + 1, spline + 2);
+        }
+
+        @Override
+        public String toString() {
+            return describe(1);
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package com.jtulayan.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Polygons of a field that the robot must stay out of, e.g. field elements and other alliances' zones.
+ * <p>
+ * Zones are read from a text file with one polygon per line, as {@code name,x1,y1,x2,y2,x3,y3,...}.
+ * A line {@code units,imperial} or {@code units,metric} sets the units of the lines after it; metric by default.
+ * Blank lines and lines starting with {@code #} are ignored.
+ * <p>
+ * Zones are bucketed into a uniform grid by their bounding boxes, so a query only tests the few zones
+ * whose cells it overlaps. A field has few zones and a fixed size, so a grid is as fast as a tree here
+ * and much simpler. Zones are immutable once read, and can be queried from several threads at once.
+ */
+public class KeepOutZones {
+    // Target amount of cells along the longer side of the grid
+    private static final int GRID_SIZE = 32;
+
+    private final String[] names;
+
+    // Vertices of each zone, in meters
+    private final double[][] xs, ys;
+
+    // Bounding box of each zone as min x, min y, max x, max y
+    private final double[] boxes;
+
+    // The grid covers the zones' bounding box; cell (i, j) holds the zones listed from cellStart[j * columns + i]
+    private final double gridX, gridY, cellSize;
+    private final int columns, rows;
+    private final int[] cellStart;
+    private final int[] cellZones;
+
+    /**
+     * Creates keep-out zones from polygons.
+     *
+     * @param names the name of each zone
+     * @param xs    the x of each zone's vertices, in meters
+     * @param ys    the y of each zone's vertices, in meters
+     */
+    public KeepOutZones(List<String> names, List<double[]> xs, List<double[]> ys) {
+        int n = names.size();
+
+        this.names = names.toArray(new String[0]);
+        this.xs = xs.toArray(new double[0][]);
+        this.ys = ys.toArray(new double[0][]);
+        boxes = new double[4 * n];
+
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+
+        for (int k = 0; k < n; k++) {
+            if (this.xs[k].length < 3 || this.xs[k].length != this.ys[k].length)
+                throw new IllegalArgumentException("Keep-out zone " + this.names[k] + " needs at least 3 vertices!");
+
+            double[] box = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+
+            for (int v = 0; v < this.xs[k].length; v++) {
+                box[0] = Math.min(box[0], this.xs[k][v]);
+                box[1] = Math.min(box[1], this.ys[k][v]);
+                box[2] = Math.max(box[2], this.xs[k][v]);
+                box[3] = Math.max(box[3], this.ys[k][v]);
+            }
+
+            System.arraycopy(box, 0, boxes, 4 * k, 4);
+            minX = Math.min(minX, box[0]);
+            minY = Math.min(minY, box[1]);
+            maxX = Math.max(maxX, box[2]);
+            maxY = Math.max(maxY, box[3]);
+        }
+
+        if (n == 0) {
+            gridX = gridY = 0;
+            cellSize = 1;
+            columns = rows = 1;
+            cellStart = new int[2];
+            cellZones = new int[0];
+            return;
+        }
+
+        gridX = minX;
+        gridY = minY;
+        cellSize = Math.max(Math.max(maxX - minX, maxY - minY) / GRID_SIZE, 1e-6);
+        columns = Math.min(GRID_SIZE, (int) ((maxX - minX) / cellSize)) + 1;
+        rows = Math.min(GRID_SIZE, (int) ((maxY - minY) / cellSize)) + 1;
+        cellStart = new int[columns * rows + 1];
+
+        // Count the zones in each cell, so that each cell's zones can be stored right after the previous cell's
+        for (int k = 0; k < n; k++)
+            for (int j = row(boxes[4 * k + 1]); j <= row(boxes[4 * k + 3]); j++)
+                for (int i = column(boxes[4 * k]); i <= column(boxes[4 * k + 2]); i++)
+                    cellStart[j * columns + i + 1]++;
+
+        for (int c = 0; c < columns * rows; c++)
+            cellStart[c + 1] += cellStart[c];
+
+        int[] fill = Arrays.copyOf(cellStart, cellStart.length);
+
+        cellZones = new int[cellStart[columns * rows]];
+
+        for (int k = 0; k < n; k++)
+            for (int j = row(boxes[4 * k + 1]); j <= row(boxes[4 * k + 3]); j++)
+                for (int i = column(boxes[4 * k]); i <= column(boxes[4 * k + 2]); i++)
+                    cellZones[fill[j * columns + i]++] = k;
+    }
+
+    /**
+     * Reads keep-out zones from a file.
+     *
+     * @param file the file to read; see the class description for its format
+     * @return the zones in the file
+     * @throws IOException if the file can't be read or has an invalid line
+     */
+    public static KeepOutZones read(File file) throws IOException {
+        List<String> names = new ArrayList<>();
+        List<double[]> xs = new ArrayList<>();
+        List<double[]> ys = new ArrayList<>();
+        double scale = 1;
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            int number = 0;
+
+            while ((line = reader.readLine()) != null) {
+                number++;
+                line = line.trim();
+
+                if (line.isEmpty() || line.startsWith("#"))
+                    continue;
+
+                String[] cells = line.split(",");
+
+                if (cells[0].trim().equalsIgnoreCase("units") && cells.length == 2) {
+                    scale = parseScale(cells[1].trim());
+
+                    if (Double.isNaN(scale))
+                        throw new IOException("Unknown units on line " + number + " of " + file + "!");
+
+                    continue;
+                }
+
+                if (cells.length < 7 || cells.length % 2 == 0)
+                    throw new IOException("Line " + number + " of " + file + " must be name,x1,y1,x2,y2,x3,y3,...!");
+
+                int vertices = (cells.length - 1) / 2;
+                double[] x = new double[vertices], y = new double[vertices];
+
+                try {
+                    for (int v = 0; v < vertices; v++) {
+                        x[v] = Double.parseDouble(cells[1 + 2 * v].trim()) / scale;
+                        y[v] = Double.parseDouble(cells[2 + 2 * v].trim()) / scale;
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid vertex on line " + number + " of " + file + "!");
+                }
+
+                names.add(cells[0].trim());
+                xs.add(x);
+                ys.add(y);
+            }
+        }
+
+        return new KeepOutZones(names, xs, ys);
+    }
+
+    private static double parseScale(String units) {
+        switch (units.toLowerCase()) {
+            case "metric":
+            case "m":
+                return 1;
+            case "imperial":
+            case "ft":
+                return Mathf.METERS_TO_FT;
+            default:
+                return Double.NaN;
+        }
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String getName(int zone) {
+        return names[zone];
+    }
+
+    /**
+     * Gets the x of a zone's vertices.
+     *
+     * @param zone the index of the zone
+     * @return the x of each vertex, in meters; must not be modified
+     */
+    public double[] getXs(int zone) {
+        return xs[zone];
+    }
+
+    /**
+     * Gets the y of a zone's vertices.
+     *
+     * @param zone the index of the zone
+     * @return the y of each vertex, in meters; must not be modified
+     */
+    public double[] getYs(int zone) {
+        return ys[zone];
+    }
+
+    /**
+     * Checks whether a box could overlap any zone, without testing the zones' shapes.
+     *
+     * @return true if the box overlaps the bounding box of every zone combined
+     */
+    public boolean mayOverlap(double minX, double minY, double maxX, double maxY) {
+        return names.length > 0 && maxX >= gridX && maxY >= gridY
+                && minX <= gridX + columns * cellSize && minY <= gridY + rows * cellSize;
+    }
+
+    /**
+     * Finds a zone that a convex polygon overlaps.
+     *
+     * @param x     the x of the polygon's vertices, in meters, in order around it
+     * @param y     the y of the polygon's vertices, in meters
+     * @param count the amount of vertices
+     * @return the lowest index of a zone it overlaps, or -1 if it doesn't overlap any
+     */
+    public int findOverlap(double[] x, double[] y, int count) {
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+
+        for (int v = 0; v < count; v++) {
+            minX = Math.min(minX, x[v]);
+            minY = Math.min(minY, y[v]);
+            maxX = Math.max(maxX, x[v]);
+            maxY = Math.max(maxY, y[v]);
+        }
+
+        if (!mayOverlap(minX, minY, maxX, maxY))
+            return -1;
+
+        int found = -1;
+
+        // A zone spanning several cells is listed in each of them; testing it again is cheaper than tracking it
+        for (int j = row(minY); j <= row(maxY); j++) {
+            for (int i = column(minX); i <= column(maxX); i++) {
+                int cell = j * columns + i;
+
+                for (int e = cellStart[cell]; e < cellStart[cell + 1]; e++) {
+                    int k = cellZones[e];
+                    int b = 4 * k;
+
+                    if ((found >= 0 && k >= found)
+                            || boxes[b] > maxX || boxes[b + 2] < minX || boxes[b + 1] > maxY || boxes[b + 3] < minY)
+                        continue;
+
+                    if (overlaps(k, x, y, count))
+                        found = k;
+                }
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Checks whether a zone overlaps a convex polygon.
+     * They overlap if an edge of one crosses an edge of the other, or if one is entirely inside the other.
+     */
+    private boolean overlaps(int zone, double[] x, double[] y, int count) {
+        double[] zx = xs[zone], zy = ys[zone];
+        int n = zx.length;
+
+        for (int a = 0; a < n; a++) {
+            int b = a + 1 == n ? 0 : a + 1;
+
+            for (int c = 0; c < count; c++) {
+                int d = c + 1 == count ? 0 : c + 1;
+
+                if (segmentsCross(zx[a], zy[a], zx[b], zy[b], x[c], y[c], x[d], y[d]))
+                    return true;
+            }
+        }
+
+        return contains(zx, zy, n, x[0], y[0]) || containsConvex(x, y, count, zx[0], zy[0]);
+    }
+
+    /**
+     * Checks whether a point is inside a polygon, by counting the edges a ray to its right crosses.
+     */
+    private static boolean contains(double[] x, double[] y, int count, double px, double py) {
+        boolean inside = false;
+
+        for (int a = 0, b = count - 1; a < count; b = a++) {
+            if ((y[a] > py) != (y[b] > py) && px < (x[b] - x[a]) * (py - y[a]) / (y[b] - y[a]) + x[a])
+                inside = !inside;
+        }
+
+        return inside;
+    }
+
+    /**
+     * Checks whether a point is inside a convex polygon, by checking that it is on the same side of every edge.
+     */
+    private static boolean containsConvex(double[] x, double[] y, int count, double px, double py) {
+        boolean left = false, right = false;
+
+        for (int a = 0; a < count; a++) {
+            int b = a + 1 == count ? 0 : a + 1;
+            double cross = cross(x[a], y[a], x[b], y[b], px, py);
+
+            left |= cross > 0;
+            right |= cross < 0;
+        }
+
+        return !(left && right);
+    }
+
+    /**
+     * Checks whether segment ab touches segment cd.
+     */
+    private static boolean segmentsCross(double ax, double ay, double bx, double by,
+                                         double cx, double cy, double dx, double dy) {
+        double d1 = cross(cx, cy, dx, dy, ax, ay);
+        double d2 = cross(cx, cy, dx, dy, bx, by);
+        double d3 = cross(ax, ay, bx, by, cx, cy);
+        double d4 = cross(ax, ay, bx, by, dx, dy);
+
+        if (((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0)) && ((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0)))
+            return true;
+
+        // Touching or collinear
+        return (d1 == 0 && onSegment(cx, cy, dx, dy, ax, ay))
+                || (d2 == 0 && onSegment(cx, cy, dx, dy, bx, by))
+                || (d3 == 0 && onSegment(ax, ay, bx, by, cx, cy))
+                || (d4 == 0 && onSegment(ax, ay, bx, by, dx, dy));
+    }
+
+    private static boolean onSegment(double ax, double ay, double bx, double by, double px, double py) {
+        return Math.min(ax, bx) <= px && px <= Math.max(ax, bx) && Math.min(ay, by) <= py && py <= Math.max(ay, by);
+    }
+
+    /**
+     * Gets the z of the cross product of ab and ap; positive if p is left of ab.
+     */
+    private static double cross(double ax, double ay, double bx, double by, double px, double py) {
+        return (bx - ax) * (py - ay) - (by - ay) * (px - ax);
+    }
+
+    private int column(double x) {
+        return Math.max(0, Math.min(columns - 1, (int) Math.floor((x - gridX) / cellSize)));
+    }
+
+    private int row(double y) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor((y - gridY) / cellSize)));
+    }
+}
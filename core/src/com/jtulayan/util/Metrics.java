@@ -0,0 +1,203 @@
+package com.jtulayan.util;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lightweight registry of timings and counters for the hot paths of loading, generating, displaying and exporting.
+ * Recording is thread safe and lock free, so it's cheap enough to leave on all the time.
+ * When available, every phase is also emitted as a JDK Flight Recorder event.
+ */
+public class Metrics {
+    public enum Phase {
+        LOAD_PROJECT("Load"),
+        IMPORT_LOG("Import"),
+        COMPARE_LOG("Compare"),
+        GENERATE_SOURCE("Generate"),
+        MODIFY("Modify"),
+        STITCH("Stitch"),
+        BUILD_SERIES("Series"),
+        REPOPULATE_CHART("Chart"),
+        WRITE_EXPORT("Write");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final Map<Phase, Stats> STATS = new EnumMap<>(Phase.class);
+
+    // Flight Recorder is only in OpenJDK 8u262 and later, so don't load any of its classes without it
+    private static final boolean JFR_AVAILABLE = isClassAvailable("jdk.jfr.Event");
+
+    static {
+        for (Phase phase : Phase.values())
+            STATS.put(phase, new Stats());
+    }
+
+    private Metrics() {
+        // Do not instantiate
+    }
+
+    /**
+     * Starts timing a phase.
+     *
+     * @param phase the phase to time
+     * @return the span to end once the phase is done
+     */
+    public static Span begin(Phase phase) {
+        return new Span(phase, JFR_AVAILABLE ? com.jtulayan.util.jfr.PhaseEvent.begin(phase) : null);
+    }
+
+    public static Stats get(Phase phase) {
+        return STATS.get(phase);
+    }
+
+    public static void reset() {
+        for (Stats stats : STATS.values())
+            stats.reset();
+    }
+
+    public static boolean isJfrAvailable() {
+        return JFR_AVAILABLE;
+    }
+
+    /**
+     * Formats the metrics of every phase that was recorded, one per line.
+     *
+     * @return the formatted metrics
+     */
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+
+        for (Phase phase : Phase.values()) {
+            Stats stats = STATS.get(phase);
+            long count = stats.getCount();
+
+            if (count == 0)
+                continue;
+
+            sb.append(String.format(
+                    "%-9s %7d calls  %10.3f ms total  %8.3f ms mean  %8.3f ms max  %10d waypoints  %12d segments  %12d bytes%n",
+                    phase.getLabel(), count,
+                    stats.getTotalNanos() / 1e6, stats.getTotalNanos() / 1e6 / count, stats.getMaxNanos() / 1e6,
+                    stats.getWaypoints(), stats.getSegments(), stats.getBytes()
+            ));
+        }
+
+        return sb.toString();
+    }
+
+    private static boolean isClassAvailable(String name) {
+        try {
+            Class.forName(name, false, Metrics.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * A phase being timed.
+     */
+    public static class Span {
+        private final Phase phase;
+        private final Object event;
+        private final long start = System.nanoTime();
+
+        private Span(Phase phase, Object event) {
+            this.phase = phase;
+            this.event = event;
+        }
+
+        public void end() {
+            end(0, 0, 0);
+        }
+
+        /**
+         * Stops timing the phase and records it.
+         *
+         * @param waypoints the amount of waypoints handled
+         * @param segments  the amount of trajectory segments handled
+         * @param bytes     the amount of bytes read or written
+         */
+        public void end(long waypoints, long segments, long bytes) {
+            STATS.get(phase).record(System.nanoTime() - start, waypoints, segments, bytes);
+
+            if (event != null)
+                com.jtulayan.util.jfr.PhaseEvent.end(event, waypoints, segments, bytes);
+        }
+    }
+
+    /**
+     * Accumulated metrics of a single phase.
+     */
+    public static class Stats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder waypoints = new LongAdder();
+        private final LongAdder segments = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+
+        private volatile long lastNanos;
+
+        void record(long nanos, long waypoints, long segments, long bytes) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            this.waypoints.add(waypoints);
+            this.segments.add(segments);
+            this.bytes.add(bytes);
+
+            lastNanos = nanos;
+        }
+
+        void reset() {
+            count.reset();
+            totalNanos.reset();
+            maxNanos.reset();
+            waypoints.reset();
+            segments.reset();
+            bytes.reset();
+
+            lastNanos = 0;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        public long getLastNanos() {
+            return lastNanos;
+        }
+
+        public long getWaypoints() {
+            return waypoints.sum();
+        }
+
+        public long getSegments() {
+            return segments.sum();
+        }
+
+        public long getBytes() {
+            return bytes.sum();
+        }
+    }
+}
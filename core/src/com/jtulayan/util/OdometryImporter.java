@@ -0,0 +1,240 @@
+package com.jtulayan.util;
+
+import jaci.pathfinder.Waypoint;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns a recorded odometry log into the fewest waypoints that follow it within a tolerance.
+ * Only the x and y columns of the log are used; see {@link OdometryLog} for its format.
+ * <p>
+ * Samples are decimated as the log is read, so memory use doesn't grow with the size of the log.
+ * Decimation keeps a wedge of directions from the last waypoint that pass within the tolerance of every sample
+ * since; once a sample falls outside of it, the sample before it becomes the next waypoint.
+ * Headings aren't taken from the log, since a robot can drive backwards;
+ * each waypoint points halfway between the directions from the previous waypoint and to the next one.
+ */
+public class OdometryImporter {
+    private final double tolerance;
+
+    private int xColumn = -1;
+    private int yColumn = -1;
+
+    // Decimation state; see accept()
+    private boolean started;
+    private double anchorX, anchorY;
+    private double lastX, lastY;
+    private boolean hasLast;
+    private double reference;
+    private double wedgeLow, wedgeHigh;
+    private double farthest;
+    private double endX, endY;
+
+    // Waypoints emitted so far; the newest one's heading is set once the one after it is known
+    private final List<Waypoint> points = new ArrayList<>();
+
+    private long rows;
+    private long samples;
+
+    /**
+     * Creates an importer.
+     *
+     * @param tolerance the largest distance between the log and the lines between waypoints, in the log's units
+     */
+    public OdometryImporter(double tolerance) {
+        if (!(tolerance > 0))
+            throw new IllegalArgumentException("The tolerance must be positive!");
+
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Sets which columns hold the x and y positions, instead of finding them from the header.
+     *
+     * @param xColumn the index of the x column, counting from 0
+     * @param yColumn the index of the y column, counting from 0
+     */
+    public void setColumns(int xColumn, int yColumn) {
+        if (xColumn < 0 || yColumn < 0 || xColumn == yColumn)
+            throw new IllegalArgumentException("Invalid log columns " + xColumn + ", " + yColumn + "!");
+
+        this.xColumn = xColumn;
+        this.yColumn = yColumn;
+    }
+
+    /**
+     * Gets the amount of rows read by the last import after the header, including skipped rows.
+     *
+     * @return the amount of rows
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Gets the amount of samples read by the last import.
+     *
+     * @return the amount of rows with a valid position
+     */
+    public long getSamples() {
+        return samples;
+    }
+
+    /**
+     * Reads a log and decimates it into waypoints.
+     *
+     * @param log the CSV log to read
+     * @return the waypoints, in the log's units and radians
+     * @throws IOException if the log can't be read, or has no usable samples
+     */
+    public List<Waypoint> read(File log) throws IOException {
+        OdometryLog reader = new OdometryLog(log);
+
+        reset();
+
+        if (xColumn >= 0) {
+            reader.setColumn(OdometryLog.X, xColumn);
+            reader.setColumn(OdometryLog.Y, yColumn);
+        }
+
+        rows = reader.scan(values -> {
+            samples++;
+            accept(values[OdometryLog.X], values[OdometryLog.Y]);
+            return true;
+        });
+
+        if (!started)
+            throw new IOException("No positions found in " + log + "!");
+
+        finish();
+
+        return new ArrayList<>(points);
+    }
+
+    private void reset() {
+        started = false;
+        hasLast = false;
+        points.clear();
+        rows = 0;
+        samples = 0;
+    }
+
+    /**
+     * Decimates one sample.
+     * A line from the anchor passes within the tolerance of a sample at distance d and direction a
+     * if its direction is within asin(tolerance / d) of a. The wedge is the intersection of those ranges
+     * for every sample since the anchor, so any direction left in it is close enough to all of them.
+     */
+    private void accept(double x, double y) {
+        endX = x;
+        endY = y;
+
+        if (!started) {
+            started = true;
+            emit(x, y);
+            return;
+        }
+
+        double dx = x - anchorX, dy = y - anchorY;
+        double d = Math.hypot(dx, dy);
+
+        // Any line from the anchor passes close enough to this sample
+        if (d <= tolerance)
+            return;
+
+        double direction = Math.atan2(dy, dx);
+        double spread = Math.asin(tolerance / d);
+
+        if (!hasLast) {
+            reference = direction;
+            wedgeLow = -spread;
+            wedgeHigh = spread;
+        } else {
+            double relative = angleDifference(direction, reference);
+
+            if (relative < wedgeLow || relative > wedgeHigh) {
+                // The line to this sample would miss an earlier one; end the line at the previous sample
+                endLine();
+                accept(x, y);
+                return;
+            }
+
+            wedgeLow = Math.max(wedgeLow, relative - spread);
+            wedgeHigh = Math.min(wedgeHigh, relative + spread);
+        }
+
+        farthest = hasLast ? Math.max(farthest, d) : d;
+
+        lastX = x;
+        lastY = y;
+        hasLast = true;
+    }
+
+    /**
+     * Ends the line from the anchor towards the last sample in the wedge.
+     * Noise can make the log double back, so the line is stretched to reach as far as the farthest sample did;
+     * otherwise samples past the last one could be further than the tolerance from the line's end.
+     */
+    private void endLine() {
+        double scale = farthest / Math.hypot(lastX - anchorX, lastY - anchorY);
+
+        emit(anchorX + (lastX - anchorX) * scale, anchorY + (lastY - anchorY) * scale);
+        hasLast = false;
+    }
+
+    /**
+     * Adds the end of the log as the last waypoint.
+     */
+    private void finish() {
+        // The log may end back near the anchor; keep the furthest line it drove out on
+        if (hasLast && (lastX != endX || lastY != endY))
+            endLine();
+
+        Waypoint previous = points.get(points.size() - 1);
+
+        if (Math.hypot(endX - previous.x, endY - previous.y) > tolerance)
+            emit(endX, endY);
+
+        int n = points.size();
+
+        if (n > 1)
+            points.get(n - 1).angle = direction(points.get(n - 2), points.get(n - 1));
+    }
+
+    /**
+     * Adds a waypoint and makes it the new anchor.
+     * The previous waypoint's heading is set now that both of its neighbors are known.
+     */
+    private void emit(double x, double y) {
+        Waypoint w = new Waypoint(x, y, 0);
+        int n = points.size();
+
+        points.add(w);
+        anchorX = x;
+        anchorY = y;
+
+        if (n == 1) {
+            points.get(0).angle = direction(points.get(0), w);
+        } else if (n > 1) {
+            Waypoint a = points.get(n - 2), b = points.get(n - 1);
+            double inX = b.x - a.x, inY = b.y - a.y;
+            double outX = w.x - b.x, outY = w.y - b.y;
+            double inLength = Math.hypot(inX, inY), outLength = Math.hypot(outX, outY);
+
+            b.angle = Math.atan2(inY / inLength + outY / outLength, inX / inLength + outX / outLength);
+        }
+    }
+
+    private static double direction(Waypoint from, Waypoint to) {
+        return Math.atan2(to.y - from.y, to.x - from.x);
+    }
+
+    private static double angleDifference(double a, double b) {
+        double diff = a - b;
+
+        return Math.atan2(Math.sin(diff), Math.cos(diff));
+    }
+}
@@ -0,0 +1,417 @@
+package com.jtulayan.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads the samples of a recorded odometry log without loading it into memory.
+ * <p>
+ * The log is a CSV file with a row per sample. If the first row is a header, columns are found by name:
+ * {@code x} and {@code y}, {@code time} (or {@code t}, {@code timestamp}), {@code heading} (or {@code theta},
+ * {@code angle}) in degrees, and {@code velocity} (or {@code v}, {@code speed}). A name also matches if it ends
+ * in {@code _name} or {@code .name}, e.g. {@code pose_x}. Without a header, the first two columns are x and y.
+ * Other columns are ignored, as are blank rows and rows starting with {@code #}.
+ * <p>
+ * The file is memory mapped a window at a time and parsed in place. It can be split into chunks of whole rows,
+ * which can be scanned on different threads at once.
+ */
+public class OdometryLog {
+    // Fields of a sample, as indices into the values passed to a handler
+    public static final int TIME = 0, X = 1, Y = 2, HEADING = 3, VELOCITY = 4;
+    public static final int FIELDS = 5;
+
+    // Names each field's column can have in the header
+    private static final String[][] NAMES = {
+            { "time", "t", "timestamp" },
+            { "x" },
+            { "y" },
+            { "heading", "theta", "angle" },
+            { "velocity", "v", "speed" }
+    };
+
+    // Size of each mapped window of the file; a single row must fit in one
+    private static final int WINDOW = 64 << 20;
+
+    // Powers of 10 that are exact as doubles, for parsing numbers without creating strings
+    private static final double[] POW10 = new double[23];
+
+    static {
+        POW10[0] = 1;
+
+        for (int i = 1; i < POW10.length; i++)
+            POW10[i] = POW10[i - 1] * 10;
+    }
+
+    private final File file;
+    private final long size;
+
+    // Offset of the first row after the header
+    private final long dataStart;
+
+    // Column of each field, or -1 if the log doesn't have it
+    private final int[] columns = new int[FIELDS];
+
+    /**
+     * Handles one sample at a time while scanning a log.
+     */
+    public interface SampleHandler {
+        /**
+         * Handles a sample.
+         *
+         * @param values the sample's values, indexed by field; NaN where the log doesn't have it.
+         *               The array is reused for the next sample.
+         * @return false to stop scanning
+         */
+        boolean sample(double[] values);
+    }
+
+    /**
+     * Opens a log and reads its header, if it has one.
+     *
+     * @param file the CSV log to read
+     * @throws IOException if the log can't be read
+     */
+    public OdometryLog(File file) throws IOException {
+        this.file = file;
+
+        Arrays.fill(columns, -1);
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            size = channel.size();
+
+            long start = 0;
+            long header = 0;
+
+            // Find the first row that isn't blank or a comment
+            while (start < size) {
+                long end = findLineBreak(channel, start);
+                String row = readString(channel, start, end).trim();
+
+                if (!row.isEmpty() && !row.startsWith("#")) {
+                    if (isHeader(row)) {
+                        findColumns(row);
+                        header = end + 1;
+                    }
+
+                    break;
+                }
+
+                start = end + 1;
+            }
+
+            dataStart = Math.min(header, size);
+        }
+
+        if (dataStart == 0) {
+            columns[X] = 0;
+            columns[Y] = 1;
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Gets the size of the log.
+     *
+     * @return the size of the file, in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Checks whether the log has a field.
+     *
+     * @param field the field to check, e.g. {@link #TIME}
+     * @return true if a column holds that field
+     */
+    public boolean has(int field) {
+        return columns[field] >= 0;
+    }
+
+    /**
+     * Sets which column holds a field, instead of finding it from the header.
+     *
+     * @param field  the field to set, e.g. {@link #X}
+     * @param column the index of the column, counting from 0; -1 if the log doesn't have it
+     */
+    public void setColumn(int field, int column) {
+        if (column < -1)
+            throw new IllegalArgumentException("Invalid log column " + column + "!");
+
+        columns[field] = column;
+    }
+
+    /**
+     * Splits the log into chunks of whole rows.
+     *
+     * @param parts the amount of chunks to split into, at most
+     * @return the offsets where each chunk starts, followed by the end of the log
+     * @throws IOException if the log can't be read
+     */
+    public long[] split(int parts) throws IOException {
+        long span = size - dataStart;
+
+        parts = (int) Math.max(1, Math.min(parts, span / 4096 + 1));
+
+        long[] bounds = new long[parts + 1];
+
+        bounds[0] = dataStart;
+        bounds[parts] = size;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            for (int i = 1; i < parts; i++) {
+                long target = Math.max(bounds[i - 1], dataStart + span * i / parts);
+
+                bounds[i] = nextRow(channel, target);
+            }
+        }
+
+        return bounds;
+    }
+
+    /**
+     * Scans the whole log.
+     *
+     * @param handler the handler to pass each sample to
+     * @return the amount of rows read after the header
+     * @throws IOException if the log can't be read, or has no x and y columns
+     */
+    public long scan(SampleHandler handler) throws IOException {
+        return scan(dataStart, size, handler);
+    }
+
+    /**
+     * Scans the rows that start within a range of the log.
+     * Several ranges can be scanned at once, each with its own handler.
+     *
+     * @param from    the offset of the first row, as returned by {@link #split(int)}
+     * @param to      the offset to stop at; a row that starts before it is read to its end
+     * @param handler the handler to pass each sample to
+     * @return the amount of rows read
+     * @throws IOException if the log can't be read, or has no x and y columns
+     */
+    public long scan(long from, long to, SampleHandler handler) throws IOException {
+        if (!has(X) || !has(Y))
+            throw new IOException("Can't find the x and y columns in the header of " + file + "!");
+
+        double[] values = new double[FIELDS];
+        int last = 0;
+        long rows = 0;
+
+        for (int column : columns)
+            last = Math.max(last, column);
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long offset = from;
+
+            while (offset < to) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(WINDOW, size - offset));
+                int limit = buffer.limit();
+                boolean end = offset + limit >= size;
+                int start = 0;
+
+                while (start < limit && offset + start < to) {
+                    int rowEnd = start;
+
+                    while (rowEnd < limit && buffer.get(rowEnd) != '\n')
+                        rowEnd++;
+
+                    // The row continues in the next window; map again from its start
+                    if (rowEnd == limit && !end)
+                        break;
+
+                    rows++;
+
+                    if (parseRow(buffer, start, rowEnd, last, values) && !handler.sample(values))
+                        return rows;
+
+                    start = rowEnd + 1;
+                }
+
+                if (start == 0 && offset < to)
+                    throw new IOException("Row at byte " + offset + " of " + file + " is too long!");
+
+                offset += start;
+            }
+        }
+
+        return rows;
+    }
+
+    /**
+     * Parses the columns of a row that hold a field.
+     *
+     * @return true if the row has an x and y position
+     */
+    private boolean parseRow(ByteBuffer buffer, int start, int end, int last, double[] values) {
+        Arrays.fill(values, Double.NaN);
+
+        if (start < end && buffer.get(start) == '#')
+            return false;
+
+        int column = 0;
+        int cell = start;
+
+        for (int i = start; i <= end && column <= last; i++) {
+            if (i < end && buffer.get(i) != ',')
+                continue;
+
+            for (int field = 0; field < FIELDS; field++)
+                if (columns[field] == column)
+                    values[field] = parseNumber(buffer, cell, i);
+
+            column++;
+            cell = i + 1;
+        }
+
+        return Double.isFinite(values[X]) && Double.isFinite(values[Y]);
+    }
+
+    /**
+     * Parses a decimal number from ASCII bytes.
+     * Common numbers are parsed in place; anything else falls back to {@link Double#parseDouble(String)}.
+     *
+     * @return the number, or NaN if it isn't one
+     */
+    static double parseNumber(ByteBuffer buffer, int start, int end) {
+        while (start < end && isSpace(buffer.get(start)))
+            start++;
+        while (end > start && isSpace(buffer.get(end - 1)))
+            end--;
+
+        int i = start;
+        boolean negative = false;
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+
+        if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+'))
+            negative = buffer.get(i++) == '-';
+
+        for (; i < end && isDigit(buffer.get(i)); i++, digits++)
+            mantissa = mantissa * 10 + (buffer.get(i) - '0');
+
+        if (i < end && buffer.get(i) == '.') {
+            for (i++; i < end && isDigit(buffer.get(i)); i++, digits++) {
+                mantissa = mantissa * 10 + (buffer.get(i) - '0');
+                exponent--;
+            }
+        }
+
+        // Exact only while the mantissa and power of 10 are exact doubles
+        if (i == end && digits > 0 && digits <= 15 && -exponent < POW10.length) {
+            double value = mantissa / POW10[-exponent];
+
+            return negative ? -value : value;
+        }
+
+        if (start == end)
+            return Double.NaN;
+
+        byte[] bytes = new byte[end - start];
+
+        for (int k = 0; k < bytes.length; k++)
+            bytes[k] = buffer.get(start + k);
+
+        try {
+            return Double.parseDouble(new String(bytes, StandardCharsets.US_ASCII).replace("\"", ""));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private static boolean isHeader(String row) {
+        for (char c : row.toCharArray()) {
+            // Letters other than an exponent mean it's not a number
+            if (Character.isLetter(c) && c != 'e' && c != 'E')
+                return true;
+        }
+
+        return false;
+    }
+
+    private void findColumns(String header) {
+        String[] names = header.split(",");
+
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i].trim().replace("\"", "").toLowerCase();
+
+            for (int field = 0; field < FIELDS; field++)
+                if (columns[field] < 0 && matches(name, NAMES[field]))
+                    columns[field] = i;
+        }
+    }
+
+    private static boolean matches(String name, String[] candidates) {
+        for (String candidate : candidates)
+            if (name.equals(candidate) || name.endsWith("_" + candidate) || name.endsWith("." + candidate))
+                return true;
+
+        return false;
+    }
+
+    /**
+     * Reads part of the log as a string.
+     */
+    private static String readString(FileChannel channel, long start, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(end - start, WINDOW));
+
+        while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) > 0) {
+            // Keep reading until the buffer is full
+        }
+
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Finds the first line break at or after an offset.
+     *
+     * @return the offset of the line break, or the size of the log if there is none
+     */
+    private long findLineBreak(FileChannel channel, long offset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long position = offset;
+
+        while (channel.read(buffer, position) > 0) {
+            buffer.flip();
+
+            while (buffer.hasRemaining()) {
+                if (buffer.get() == '\n')
+                    return position + buffer.position() - 1;
+            }
+
+            position += buffer.limit();
+            buffer.clear();
+        }
+
+        return size;
+    }
+
+    /**
+     * Finds the start of the first row at or after an offset.
+     */
+    private long nextRow(FileChannel channel, long offset) throws IOException {
+        if (offset <= dataStart)
+            return dataStart;
+
+        // A row starts right after a line break; check the byte before the offset too
+        return Math.min(size, findLineBreak(channel, offset - 1) + 1);
+    }
+}
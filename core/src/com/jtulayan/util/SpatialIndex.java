@@ -0,0 +1,414 @@
+package com.jtulayan.util;
+
+import jaci.pathfinder.Trajectory;
+
+import java.io.*;
+
+/**
+ * Finds the closest point on a trajectory's path to any position, e.g. for cross-track error,
+ * pure pursuit lookahead or snapping the cursor to a path.
+ * <p>
+ * The path is the polyline through the segments' positions. Consecutive lines are grouped into a balanced tree
+ * of bounding boxes, halving the range of lines at each level. Since a path rarely jumps around, the boxes stay
+ * tight, and a query only descends into boxes that could still hold a closer point than the best one found.
+ * Unlike a uniform grid, it stays fast when a small time step makes the lines very short.
+ * Queries write into a caller-owned {@link Nearest} and don't allocate anything.
+ * <p>
+ * Indices can be written next to the exported trajectories and read back without the trajectory,
+ * so a robot doesn't have to build them itself.
+ */
+public class SpatialIndex {
+    private static final int MAGIC = 0x50504749; // "PPGI"
+    private static final int VERSION = 1;
+
+    // Most lines in a leaf of the tree; checking a few lines directly beats descending further
+    private static final int LEAF_SIZE = 8;
+
+    // The trajectory this was built from; null if read from a file
+    private final Trajectory trajectory;
+
+    private final double dt;
+    private final double[] x;
+    private final double[] y;
+
+    // Distance along the path to each point
+    private final double[] distance;
+
+    // Bounding box of each tree node as min x, min y, max x, max y.
+    // Node k covers a range of lines, and its children 2k + 1 and 2k + 2 split it in half.
+    private final double[] boxes;
+
+    /**
+     * Builds an index over the path of the given trajectory.
+     *
+     * @param t the trajectory to index
+     */
+    public SpatialIndex(Trajectory t) {
+        int n = t.length();
+
+        if (n == 0)
+            throw new IllegalArgumentException("Can't index an empty trajectory!");
+
+        trajectory = t;
+        dt = t.get(0).dt;
+        x = new double[n];
+        y = new double[n];
+        distance = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            Trajectory.Segment seg = t.get(i);
+
+            x[i] = seg.x;
+            y[i] = seg.y;
+
+            if (i > 0)
+                distance[i] = distance[i - 1] + Math.hypot(x[i] - x[i - 1], y[i] - y[i - 1]);
+        }
+
+        boxes = new double[4 * nodeCount(Math.max(1, n - 1))];
+        build(0, 0, Math.max(1, n - 1));
+    }
+
+    private SpatialIndex(double dt, double[] x, double[] y, double[] distance, double[] boxes) {
+        this.trajectory = null;
+        this.dt = dt;
+        this.x = x;
+        this.y = y;
+        this.distance = distance;
+        this.boxes = boxes;
+    }
+
+    /**
+     * Counts the nodes needed for a tree over the given amount of lines.
+     */
+    private static int nodeCount(int lines) {
+        int leaves = 1;
+
+        while (leaves * LEAF_SIZE < lines)
+            leaves *= 2;
+
+        return 2 * leaves - 1;
+    }
+
+    /**
+     * Computes the bounding box of node k, covering lines lo (inclusive) to hi (exclusive).
+     */
+    private void build(int k, int lo, int hi) {
+        int b = 4 * k;
+
+        if (hi - lo <= LEAF_SIZE || 2 * k + 2 >= boxes.length / 4) {
+            double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+
+            // Line i runs from point i to point i + 1
+            for (int i = lo; i <= Math.min(hi, x.length - 1); i++) {
+                minX = Math.min(minX, x[i]);
+                minY = Math.min(minY, y[i]);
+                maxX = Math.max(maxX, x[i]);
+                maxY = Math.max(maxY, y[i]);
+            }
+
+            boxes[b] = minX;
+            boxes[b + 1] = minY;
+            boxes[b + 2] = maxX;
+            boxes[b + 3] = maxY;
+            return;
+        }
+
+        int mid = (lo + hi) >>> 1;
+        int l = 4 * (2 * k + 1), r = 4 * (2 * k + 2);
+
+        build(2 * k + 1, lo, mid);
+        build(2 * k + 2, mid, hi);
+
+        boxes[b] = Math.min(boxes[l], boxes[r]);
+        boxes[b + 1] = Math.min(boxes[l + 1], boxes[r + 1]);
+        boxes[b + 2] = Math.max(boxes[l + 2], boxes[r + 2]);
+        boxes[b + 3] = Math.max(boxes[l + 3], boxes[r + 3]);
+    }
+
+    /**
+     * Checks whether this index was built from the given trajectory.
+     *
+     * @param t the trajectory to check
+     * @return true if this index was built from that exact trajectory
+     */
+    public boolean isOf(Trajectory t) {
+        return trajectory != null && trajectory == t;
+    }
+
+    public int size() {
+        return x.length;
+    }
+
+    /**
+     * Gets the length of the path.
+     *
+     * @return the distance along the path from the first to the last segment
+     */
+    public double getLength() {
+        return distance[distance.length - 1];
+    }
+
+    /**
+     * Finds the closest point on the path to the given position.
+     *
+     * @param px  the x position
+     * @param py  the y position
+     * @param out the result to write into
+     * @return {@code out}, for chaining
+     */
+    public Nearest nearest(double px, double py, Nearest out) {
+        // Squared until the end, to avoid a square root per line
+        out.distance = Double.POSITIVE_INFINITY;
+
+        if (x.length == 1)
+            project(0, 0, px, py, out);
+        else
+            search(0, 0, x.length - 1, px, py, out);
+
+        out.distance = Math.sqrt(out.distance);
+
+        return out;
+    }
+
+    /**
+     * Searches node k, covering lines lo (inclusive) to hi (exclusive), for a closer point.
+     */
+    private void search(int k, int lo, int hi, double px, double py, Nearest out) {
+        if (hi - lo <= LEAF_SIZE || 2 * k + 2 >= boxes.length / 4) {
+            for (int i = lo; i < hi; i++)
+                project(i, i + 1, px, py, out);
+
+            return;
+        }
+
+        int mid = (lo + hi) >>> 1;
+        double left = boxDistance(2 * k + 1, px, py);
+        double right = boxDistance(2 * k + 2, px, py);
+
+        // Nearer half first, so the farther one is more likely to be skipped
+        if (left <= right) {
+            if (left <= out.distance)
+                search(2 * k + 1, lo, mid, px, py, out);
+            if (right <= out.distance)
+                search(2 * k + 2, mid, hi, px, py, out);
+        } else {
+            if (right <= out.distance)
+                search(2 * k + 2, mid, hi, px, py, out);
+            if (left <= out.distance)
+                search(2 * k + 1, lo, mid, px, py, out);
+        }
+    }
+
+    /**
+     * Gets the squared distance from the position to the bounding box of node k; 0 if inside it.
+     */
+    private double boxDistance(int k, double px, double py) {
+        int b = 4 * k;
+        double dx = Math.max(0, Math.max(boxes[b] - px, px - boxes[b + 2]));
+        double dy = Math.max(0, Math.max(boxes[b + 1] - py, py - boxes[b + 3]));
+
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Finds the closest point on the path by checking every line, for comparison with {@link #nearest}.
+     *
+     * @param px  the x position
+     * @param py  the y position
+     * @param out the result to write into
+     * @return {@code out}, for chaining
+     */
+    public Nearest nearestBruteForce(double px, double py, Nearest out) {
+        out.distance = Double.POSITIVE_INFINITY;
+
+        for (int i = 0; i < x.length - 1; i++)
+            project(i, i + 1, px, py, out);
+
+        if (x.length == 1)
+            project(0, 0, px, py, out);
+
+        out.distance = Math.sqrt(out.distance);
+
+        return out;
+    }
+
+    /**
+     * Projects the position onto the line from point a to point b, and keeps it if it's the closest yet.
+     * Compares squared distances.
+     */
+    private void project(int a, int b, double px, double py, Nearest out) {
+        double dx = x[b] - x[a], dy = y[b] - y[a];
+        double lengthSq = dx * dx + dy * dy;
+        double f = lengthSq > 0 ? ((px - x[a]) * dx + (py - y[a]) * dy) / lengthSq : 0;
+
+        f = Math.max(0, Math.min(1, f));
+
+        double nx = x[a] + dx * f, ny = y[a] + dy * f;
+        double d = (px - nx) * (px - nx) + (py - ny) * (py - ny);
+
+        // Ties go to the earlier line, so the result doesn't depend on the order lines are checked in
+        if (d < out.distance || (d == out.distance && a < out.segment)) {
+            out.set(a, f, nx, ny, distance[a] + (distance[b] - distance[a]) * f, (a + f) * dt);
+            out.distance = d;
+        }
+    }
+
+    /**
+     * Finds the lookahead point for pure pursuit: the point a given distance along the path
+     * past the point closest to the given position.
+     * The lookahead point is clamped to the end of the path.
+     *
+     * @param px        the x position
+     * @param py        the y position
+     * @param lookahead the distance along the path to look ahead
+     * @param out       the result to write into; its distance is to the closest point, not the lookahead point
+     * @return {@code out}, for chaining
+     */
+    public Nearest lookahead(double px, double py, double lookahead, Nearest out) {
+        nearest(px, py, out);
+
+        double target = Math.min(out.pathDistance + lookahead, getLength());
+        int last = x.length - 1;
+
+        if (last == 0 || target >= distance[last]) {
+            out.set(last, 0, x[last], y[last], distance[last], last * dt);
+            return out;
+        }
+
+        // The first point at or past the target; the line before it contains the target
+        int lo = out.segment + 1, hi = last;
+
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+
+            if (distance[mid] >= target)
+                hi = mid;
+            else
+                lo = mid + 1;
+        }
+
+        int i = lo - 1;
+        double span = distance[lo] - distance[i];
+        double f = span > 0 ? (target - distance[i]) / span : 0;
+
+        out.set(i, f, x[i] + (x[lo] - x[i]) * f, y[i] + (y[lo] - y[i]) * f, target, (i + f) * dt);
+
+        return out;
+    }
+
+    /**
+     * Writes this index to a file.
+     *
+     * @param file the file to write to
+     * @throws IOException if the file can't be written
+     */
+    public void write(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeDouble(dt);
+            out.writeInt(x.length);
+
+            for (int i = 0; i < x.length; i++) {
+                out.writeDouble(x[i]);
+                out.writeDouble(y[i]);
+                out.writeDouble(distance[i]);
+            }
+
+            out.writeInt(boxes.length);
+
+            for (double bound : boxes)
+                out.writeDouble(bound);
+        }
+    }
+
+    /**
+     * Reads an index written by {@link #write(File)}.
+     *
+     * @param file the file to read
+     * @return the index
+     * @throws IOException if the file can't be read or isn't an index
+     */
+    public static SpatialIndex read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException(file + " is not a spatial index!");
+
+            int version = in.readInt();
+
+            if (version != VERSION)
+                throw new IOException("Unsupported spatial index version " + version + " in " + file + "!");
+
+            double dt = in.readDouble();
+            int n = in.readInt();
+            double[] x = new double[n], y = new double[n], distance = new double[n];
+
+            for (int i = 0; i < n; i++) {
+                x[i] = in.readDouble();
+                y[i] = in.readDouble();
+                distance[i] = in.readDouble();
+            }
+
+            double[] boxes = new double[in.readInt()];
+
+            for (int i = 0; i < boxes.length; i++)
+                boxes[i] = in.readDouble();
+
+            if (n == 0 || boxes.length != 4 * nodeCount(Math.max(1, n - 1)))
+                throw new IOException(file + " is corrupted!");
+
+            return new SpatialIndex(dt, x, y, distance, boxes);
+        }
+    }
+
+    /**
+     * A point on the path.
+     * Reuse one per caller to keep queries allocation-free.
+     */
+    public static class Nearest {
+        /**
+         * The index of the segment at the start of the line containing the point.
+         */
+        public int segment;
+
+        /**
+         * How far along the line the point is, from 0 to 1.
+         */
+        public double fraction;
+
+        public double x;
+        public double y;
+
+        /**
+         * The distance from the queried position to the closest point on the path.
+         */
+        public double distance;
+
+        /**
+         * The distance along the path to the point.
+         */
+        public double pathDistance;
+
+        /**
+         * The time at the point, in seconds; use it with a {@link TrajectoryIndex} to get the full state.
+         */
+        public double time;
+
+        private void set(int segment, double fraction, double x, double y, double pathDistance, double time) {
+            this.segment = segment;
+            this.fraction = fraction;
+            this.x = x;
+            this.y = y;
+            this.pathDistance = pathDistance;
+            this.time = time;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("segment %d + %.3f: (%.3f, %.3f), %.3f away, %.3f along the path, t=%.3f",
+                    segment, fraction, x, y, distance, pathDistance, time);
+        }
+    }
+}
@@ -0,0 +1,534 @@
+package com.jtulayan.util;
+
+import jaci.pathfinder.Trajectory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares what a robot actually did, from a recorded odometry log, against the trajectory planned for it.
+ * <p>
+ * The log is aligned in time to the trajectory, either with a given offset, or by matching the time the robot
+ * first moves in the log to the time the trajectory gets as far. Each sample within the trajectory's duration is
+ * compared to the planned state at the same time, in that state's frame: along-track error is positive ahead of
+ * the plan, and cross-track error to its left. Velocity and heading come from the log if it has them,
+ * or are derived from consecutive samples otherwise. Log times are in seconds, and headings in degrees.
+ * <p>
+ * The log is split into chunks that are scanned in parallel, each keeping its own statistics and overlay.
+ * The overlay averages the samples in each of a fixed amount of time buckets,
+ * so it can be charted without drawing every sample of a long log.
+ */
+public class TrackingComparison {
+    public enum Metric {
+        ALONG_TRACK("Along-track"),
+        CROSS_TRACK("Cross-track"),
+        VELOCITY("Velocity"),
+        HEADING("Heading");
+
+        private final String label;
+
+        Metric(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final int DEFAULT_OVERLAY_POINTS = 1000;
+
+    // How far the robot has to move from its first logged position to have started, in meters
+    private static final double START_DISTANCE = 0.02;
+
+    // Chunks per thread, so threads that finish early can take more
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final TrajectoryIndex index;
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private double timeOffset = Double.NaN;
+    private int overlayPoints = DEFAULT_OVERLAY_POINTS;
+
+    /**
+     * Creates a comparison against a planned trajectory.
+     *
+     * @param planned the planned trajectory of the robot's center, in meters
+     */
+    public TrackingComparison(Trajectory planned) {
+        index = new TrajectoryIndex(planned);
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Sets the time in the log when the trajectory started, instead of finding it from when the robot first moves.
+     *
+     * @param timeOffset the log's time at the start of the trajectory, in seconds; NaN to find it
+     */
+    public void setTimeOffset(double timeOffset) {
+        this.timeOffset = timeOffset;
+    }
+
+    /**
+     * Sets how many points the overlay has, at most.
+     *
+     * @param overlayPoints the amount of time buckets to average the samples into
+     */
+    public void setOverlayPoints(int overlayPoints) {
+        this.overlayPoints = Math.max(1, overlayPoints);
+    }
+
+    /**
+     * Compares a log against the trajectory.
+     *
+     * @param log   the CSV log to compare, with a time column
+     * @param scale the amount of the log's distance units in one meter
+     * @return the comparison's statistics and overlay
+     * @throws IOException          if the log can't be read, has no time column, or the robot never moves
+     * @throws InterruptedException if interrupted while waiting for the chunks to be scanned
+     * @throws ExecutionException   if a chunk fails with an unexpected error
+     */
+    public Result compare(File log, double scale) throws IOException, InterruptedException, ExecutionException {
+        Metrics.Span span = Metrics.begin(Metrics.Phase.COMPARE_LOG);
+        OdometryLog reader = new OdometryLog(log);
+
+        if (!reader.has(OdometryLog.TIME))
+            throw new IOException("Can't find the time column in the header of " + log + "!");
+
+        double offset = Double.isNaN(timeOffset) ? findTimeOffset(reader, scale) : timeOffset;
+        int buckets = Math.min(overlayPoints, index.size());
+        long[] bounds = reader.split(threads * CHUNKS_PER_THREAD);
+        AtomicInteger workers = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "Log Comparison " + workers.incrementAndGet());
+
+            t.setDaemon(true);
+            return t;
+        });
+
+        try {
+            List<Future<Chunk>> futures = new ArrayList<>();
+
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                long from = bounds[i], to = bounds[i + 1];
+
+                futures.add(executor.submit(() -> {
+                    Chunk chunk = new Chunk(reader, offset, scale, buckets);
+
+                    chunk.rows = reader.scan(from, to, chunk);
+                    return chunk;
+                }));
+            }
+
+            Chunk total = new Chunk(reader, offset, scale, buckets);
+
+            for (Future<Chunk> future : futures) {
+                try {
+                    total.merge(future.get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException)
+                        throw (IOException) e.getCause();
+
+                    throw e;
+                }
+            }
+
+            span.end(0, index.size(), reader.getSize());
+
+            return new Result(offset, total);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Finds the log's time at the start of the trajectory, by matching when the robot first moves.
+     */
+    private double findTimeOffset(OdometryLog reader, double scale) throws IOException {
+        double[] origin = { Double.NaN, Double.NaN };
+        double[] start = { Double.NaN };
+
+        reader.scan(values -> {
+            double time = values[OdometryLog.TIME];
+
+            if (Double.isNaN(time))
+                return true;
+
+            if (Double.isNaN(origin[0])) {
+                origin[0] = values[OdometryLog.X];
+                origin[1] = values[OdometryLog.Y];
+                return true;
+            }
+
+            double moved = Math.hypot(values[OdometryLog.X] - origin[0], values[OdometryLog.Y] - origin[1]) / scale;
+
+            if (moved > START_DISTANCE) {
+                start[0] = time;
+                return false;
+            }
+
+            return true;
+        });
+
+        if (Double.isNaN(start[0]))
+            throw new IOException("The robot never moves in " + reader.getFile() + "!");
+
+        return start[0] - index.sampleDistance(START_DISTANCE, new TrajectoryIndex.State()).time;
+    }
+
+    private static double angleDifference(double a, double b) {
+        double diff = a - b;
+
+        return Math.atan2(Math.sin(diff), Math.cos(diff));
+    }
+
+    /**
+     * Compares the samples of one chunk of the log.
+     * Each chunk is scanned by a single thread; chunks are merged once they're all done.
+     */
+    private class Chunk implements OdometryLog.SampleHandler {
+        private final boolean logVelocity;
+        private final boolean logHeading;
+        private final double offset;
+        private final double scale;
+        private final TrajectoryIndex.State state = new TrajectoryIndex.State();
+
+        private final Stats[] stats = new Stats[Metric.values().length];
+
+        // Sums of the samples in each overlay bucket
+        private final int[] count;
+        private final int[] velocityCount;
+        private final double[] sumTime, sumX, sumY, sumVelocity, sumCrossTrack;
+
+        // The previous sample, to derive velocity and heading from
+        private boolean hasPrevious;
+        private double previousTime, previousX, previousY;
+
+        private long rows;
+        private long samples;
+        private long outside;
+
+        Chunk(OdometryLog reader, double offset, double scale, int buckets) {
+            this.logVelocity = reader.has(OdometryLog.VELOCITY);
+            this.logHeading = reader.has(OdometryLog.HEADING);
+            this.offset = offset;
+            this.scale = scale;
+
+            for (int i = 0; i < stats.length; i++)
+                stats[i] = new Stats();
+
+            count = new int[buckets];
+            velocityCount = new int[buckets];
+            sumTime = new double[buckets];
+            sumX = new double[buckets];
+            sumY = new double[buckets];
+            sumVelocity = new double[buckets];
+            sumCrossTrack = new double[buckets];
+        }
+
+        @Override
+        public boolean sample(double[] values) {
+            double time = values[OdometryLog.TIME];
+            double x = values[OdometryLog.X] / scale;
+            double y = values[OdometryLog.Y] / scale;
+            double velocity = Double.NaN, heading = Double.NaN;
+
+            if (Double.isNaN(time))
+                return true;
+
+            if (hasPrevious && time > previousTime) {
+                double dx = x - previousX, dy = y - previousY;
+
+                velocity = Math.hypot(dx, dy) / (time - previousTime);
+
+                if (dx != 0 || dy != 0)
+                    heading = Math.atan2(dy, dx);
+            }
+
+            hasPrevious = true;
+            previousTime = time;
+            previousX = x;
+            previousY = y;
+
+            if (logVelocity)
+                velocity = values[OdometryLog.VELOCITY] / scale;
+            if (logHeading)
+                heading = Math.toRadians(values[OdometryLog.HEADING]);
+
+            double planTime = time - offset;
+            double duration = index.getDuration();
+
+            if (planTime < 0 || planTime > duration) {
+                outside++;
+                return true;
+            }
+
+            index.sampleTime(planTime, state);
+
+            double ex = x - state.x, ey = y - state.y;
+            double cos = Math.cos(state.heading), sin = Math.sin(state.heading);
+            double crossTrack = ey * cos - ex * sin;
+
+            samples++;
+            stats[Metric.ALONG_TRACK.ordinal()].add(ex * cos + ey * sin);
+            stats[Metric.CROSS_TRACK.ordinal()].add(crossTrack);
+
+            if (Double.isFinite(velocity))
+                stats[Metric.VELOCITY.ordinal()].add(velocity - state.velocity);
+            if (Double.isFinite(heading))
+                stats[Metric.HEADING.ordinal()].add(angleDifference(heading, state.heading));
+
+            int bucket = duration > 0 ? Math.min(count.length - 1, (int) (planTime / duration * count.length)) : 0;
+
+            count[bucket]++;
+            sumTime[bucket] += planTime;
+            sumX[bucket] += x;
+            sumY[bucket] += y;
+            sumCrossTrack[bucket] += crossTrack;
+
+            if (Double.isFinite(velocity)) {
+                velocityCount[bucket]++;
+                sumVelocity[bucket] += velocity;
+            }
+
+            return true;
+        }
+
+        void merge(Chunk other) {
+            rows += other.rows;
+            samples += other.samples;
+            outside += other.outside;
+
+            for (int i = 0; i < stats.length; i++)
+                stats[i].merge(other.stats[i]);
+
+            for (int b = 0; b < count.length; b++) {
+                count[b] += other.count[b];
+                velocityCount[b] += other.velocityCount[b];
+                sumTime[b] += other.sumTime[b];
+                sumX[b] += other.sumX[b];
+                sumY[b] += other.sumY[b];
+                sumVelocity[b] += other.sumVelocity[b];
+                sumCrossTrack[b] += other.sumCrossTrack[b];
+            }
+        }
+    }
+
+    /**
+     * Summary statistics of one error metric.
+     */
+    public static class Stats {
+        private long count;
+        private double sum;
+        private double sumSquares;
+        private double maxAbs;
+
+        private void add(double error) {
+            count++;
+            sum += error;
+            sumSquares += error * error;
+            maxAbs = Math.max(maxAbs, Math.abs(error));
+        }
+
+        private void merge(Stats other) {
+            count += other.count;
+            sum += other.sum;
+            sumSquares += other.sumSquares;
+            maxAbs = Math.max(maxAbs, other.maxAbs);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : sum / count;
+        }
+
+        public double getRms() {
+            return count == 0 ? 0 : Math.sqrt(sumSquares / count);
+        }
+
+        public double getMaxAbs() {
+            return maxAbs;
+        }
+    }
+
+    /**
+     * The robot's logged path and velocity, averaged over time buckets along the trajectory.
+     * Positions and velocities are in meters; velocities are NaN where no sample had one.
+     */
+    public static class Overlay {
+        private final double[] time, x, y, velocity, crossTrack;
+
+        private Overlay(Chunk total) {
+            int n = 0;
+
+            for (int c : total.count)
+                if (c > 0)
+                    n++;
+
+            time = new double[n];
+            x = new double[n];
+            y = new double[n];
+            velocity = new double[n];
+            crossTrack = new double[n];
+
+            for (int b = 0, i = 0; b < total.count.length; b++) {
+                int c = total.count[b];
+
+                if (c == 0)
+                    continue;
+
+                time[i] = total.sumTime[b] / c;
+                x[i] = total.sumX[b] / c;
+                y[i] = total.sumY[b] / c;
+                velocity[i] = total.velocityCount[b] > 0 ? total.sumVelocity[b] / total.velocityCount[b] : Double.NaN;
+                crossTrack[i] = total.sumCrossTrack[b] / c;
+                i++;
+            }
+        }
+
+        public int size() {
+            return time.length;
+        }
+
+        public double getTime(int i) {
+            return time[i];
+        }
+
+        public double getX(int i) {
+            return x[i];
+        }
+
+        public double getY(int i) {
+            return y[i];
+        }
+
+        public double getVelocity(int i) {
+            return velocity[i];
+        }
+
+        public double getCrossTrack(int i) {
+            return crossTrack[i];
+        }
+
+        /**
+         * Writes the overlay to a CSV file, with a header row.
+         *
+         * @param file  the file to write to
+         * @param scale the amount of the units to write distances in, in one meter
+         * @throws IOException if the file can't be written
+         */
+        public void write(File file, double scale) throws IOException {
+            try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+                out.println("time,x,y,velocity,cross_track");
+
+                for (int i = 0; i < size(); i++)
+                    out.println(String.format("%.4f,%.6f,%.6f,%.6f,%.6f",
+                            time[i], x[i] * scale, y[i] * scale, velocity[i] * scale, crossTrack[i] * scale));
+            }
+        }
+    }
+
+    /**
+     * The result of comparing a log against a trajectory.
+     */
+    public static class Result {
+        private final double timeOffset;
+        private final long rows;
+        private final long samples;
+        private final long outside;
+        private final Stats[] stats;
+        private final Overlay overlay;
+
+        private Result(double timeOffset, Chunk total) {
+            this.timeOffset = timeOffset;
+            this.rows = total.rows;
+            this.samples = total.samples;
+            this.outside = total.outside;
+            this.stats = total.stats;
+            this.overlay = new Overlay(total);
+        }
+
+        /**
+         * Gets the log's time at the start of the trajectory.
+         *
+         * @return the time offset, in seconds
+         */
+        public double getTimeOffset() {
+            return timeOffset;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         * Gets the amount of samples compared.
+         *
+         * @return the amount of samples within the trajectory's duration
+         */
+        public long getSamples() {
+            return samples;
+        }
+
+        /**
+         * Gets the amount of samples logged before or after the trajectory.
+         *
+         * @return the amount of samples that weren't compared
+         */
+        public long getOutside() {
+            return outside;
+        }
+
+        /**
+         * Gets the statistics of an error metric.
+         * Distances are in meters, and headings in radians.
+         *
+         * @param metric the metric to get
+         * @return the metric's statistics
+         */
+        public Stats getStats(Metric metric) {
+            return stats[metric.ordinal()];
+        }
+
+        public Overlay getOverlay() {
+            return overlay;
+        }
+
+        /**
+         * Summarizes the comparison, with distances converted to the given units.
+         *
+         * @param scale the amount of the units in one meter
+         * @return a line per metric, after a line with the amount of samples and time offset
+         */
+        public String summary(double scale) {
+            StringBuilder summary = new StringBuilder(String.format(
+                    "Compared %d samples (%d before or after the trajectory), starting %.3f s into the log%n",
+                    samples, outside, timeOffset));
+
+            for (Metric metric : Metric.values()) {
+                Stats s = getStats(metric);
+                double unit = metric == Metric.HEADING ? Math.toDegrees(1) : scale;
+
+                summary.append(String.format("%-12s mean %9.4f    rms %9.4f    max %9.4f%s%n",
+                        metric.getLabel(), s.getMean() * unit, s.getRms() * unit, s.getMaxAbs() * unit,
+                        metric == Metric.HEADING ? " deg" : ""));
+            }
+
+            return summary.toString();
+        }
+    }
+}
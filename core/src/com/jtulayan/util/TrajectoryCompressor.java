@@ -0,0 +1,270 @@
+package com.jtulayan.util;
+
+import jaci.pathfinder.Trajectory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Drops trajectory segments that can be reconstructed from their neighbors within a tolerance.
+ * <p>
+ * Segments are dropped Douglas-Peucker style: starting from the first and last segment,
+ * the segment that linear interpolation by time reconstructs worst is kept, splitting the range in two,
+ * until every dropped segment is reconstructed within the tolerance on pose, distance, velocity and heading.
+ * Straight, constant velocity stretches collapse to their ends.
+ * Acceleration and jerk are interpolated the same way, but aren't bounded.
+ * <p>
+ * The time base is kept in the {@code dt} column: the first segment keeps the original time step,
+ * and every later segment holds the time since the segment before it.
+ * {@link #decompress(Trajectory)} uses that to resample the trajectory at the original time step.
+ */
+public class TrajectoryCompressor {
+    private TrajectoryCompressor() {
+        // Do not instantiate
+    }
+
+    /**
+     * Compresses a trajectory.
+     *
+     * @param t         the trajectory to compress, with a constant time step
+     * @param tolerance the largest allowed reconstruction error
+     * @return the compressed trajectory, and how well it compressed
+     */
+    public static Result compress(Trajectory t, Tolerance tolerance) {
+        int n = t.length();
+
+        if (n <= 2)
+            return new Result(t, n, new CompressionError());
+
+        boolean[] keep = new boolean[n];
+        int[] stack = new int[2 * n];
+        int top = 0;
+
+        keep[0] = keep[n - 1] = true;
+        stack[top++] = 0;
+        stack[top++] = n - 1;
+
+        // Explicit stack rather than recursion, so long trajectories can't overflow the call stack
+        while (top > 0) {
+            int b = stack[--top];
+            int a = stack[--top];
+            int worst = -1;
+            double worstError = 1;
+
+            for (int i = a + 1; i < b; i++) {
+                double error = normalizedError(t.get(a), t.get(b), t.get(i), (double) (i - a) / (b - a), tolerance);
+
+                if (error > worstError) {
+                    worst = i;
+                    worstError = error;
+                }
+            }
+
+            if (worst >= 0) {
+                keep[worst] = true;
+                stack[top++] = a;
+                stack[top++] = worst;
+                stack[top++] = worst;
+                stack[top++] = b;
+            }
+        }
+
+        double dt = t.get(0).dt;
+        List<Trajectory.Segment> kept = new ArrayList<>();
+        CompressionError error = new CompressionError();
+        int previous = 0;
+
+        for (int i = 0; i < n; i++) {
+            if (!keep[i])
+                continue;
+
+            Trajectory.Segment seg = t.get(i).copy();
+
+            seg.dt = i == 0 ? dt : (i - previous) * dt;
+            kept.add(seg);
+
+            // Measure the actual error of everything dropped since the last kept segment
+            for (int j = previous + 1; j < i; j++)
+                error.include(t.get(previous), t.get(i), t.get(j), (double) (j - previous) / (i - previous));
+
+            previous = i;
+        }
+
+        return new Result(new Trajectory(kept.toArray(new Trajectory.Segment[0])), n, error);
+    }
+
+    /**
+     * Restores a compressed trajectory to its original time step.
+     *
+     * @param t a trajectory written by {@link #compress(Trajectory, Tolerance)}
+     * @return the reconstructed trajectory, with a constant time step
+     */
+    public static Trajectory decompress(Trajectory t) {
+        if (t.length() == 0)
+            return new Trajectory(0);
+
+        double dt = t.get(0).dt;
+        List<Trajectory.Segment> segments = new ArrayList<>();
+
+        segments.add(withTimeStep(t.get(0).copy(), dt));
+
+        for (int k = 1; k < t.length(); k++) {
+            Trajectory.Segment a = t.get(k - 1), b = t.get(k);
+            int steps = Math.max(1, (int) Math.round(b.dt / dt));
+
+            for (int s = 1; s <= steps; s++)
+                segments.add(withTimeStep(TrajectoryResampler.interpolate(a, b, (double) s / steps), dt));
+        }
+
+        return new Trajectory(segments.toArray(new Trajectory.Segment[0]));
+    }
+
+    private static Trajectory.Segment withTimeStep(Trajectory.Segment seg, double dt) {
+        seg.dt = dt;
+        return seg;
+    }
+
+    /**
+     * Gets how far a segment is from its reconstruction, relative to the tolerance.
+     *
+     * @return the largest error divided by its tolerance; above 1 means the segment must be kept
+     */
+    private static double normalizedError(Trajectory.Segment a, Trajectory.Segment b, Trajectory.Segment s,
+                                          double f, Tolerance tolerance) {
+        double pose = Math.hypot(lerp(a.x, b.x, f) - s.x, lerp(a.y, b.y, f) - s.y);
+        double distance = Math.abs(lerp(a.position, b.position, f) - s.position);
+        double velocity = Math.abs(lerp(a.velocity, b.velocity, f) - s.velocity);
+        double heading = Math.abs(headingError(a, b, s, f));
+
+        return Math.max(
+                Math.max(pose, distance) / tolerance.position,
+                Math.max(velocity / tolerance.velocity, heading / tolerance.heading)
+        );
+    }
+
+    private static double headingError(Trajectory.Segment a, Trajectory.Segment b, Trajectory.Segment s, double f) {
+        double reconstructed = a.heading + angleDifference(b.heading, a.heading) * f;
+
+        return angleDifference(reconstructed, s.heading);
+    }
+
+    private static double lerp(double a, double b, double f) {
+        return a + (b - a) * f;
+    }
+
+    private static double angleDifference(double a, double b) {
+        double diff = a - b;
+
+        return Math.atan2(Math.sin(diff), Math.cos(diff));
+    }
+
+    /**
+     * The largest allowed reconstruction errors.
+     * Distances are in the same units as the trajectory.
+     */
+    public static class Tolerance {
+        private final double position;
+        private final double velocity;
+        private final double heading;
+
+        /**
+         * Creates a tolerance.
+         *
+         * @param position the largest error in x, y and distance traveled
+         * @param velocity the largest error in velocity
+         * @param heading  the largest error in heading, in radians
+         */
+        public Tolerance(double position, double velocity, double heading) {
+            if (!(position > 0) || !(velocity > 0) || !(heading > 0))
+                throw new IllegalArgumentException("Compression tolerances must be positive!");
+
+            this.position = position;
+            this.velocity = velocity;
+            this.heading = heading;
+        }
+
+        /**
+         * Parses a tolerance in the format {@code position,velocity,heading}, with the heading in degrees.
+         *
+         * @param spec the tolerance to parse
+         * @return the parsed tolerance
+         */
+        public static Tolerance parse(String spec) {
+            String[] parts = spec.trim().split(",");
+
+            if (parts.length != 3)
+                throw new IllegalArgumentException("Compression tolerances must be in the format position,velocity,heading!");
+
+            return new Tolerance(
+                    Double.parseDouble(parts[0].trim()),
+                    Double.parseDouble(parts[1].trim()),
+                    Math.toRadians(Double.parseDouble(parts[2].trim()))
+            );
+        }
+    }
+
+    /**
+     * The largest actual reconstruction errors of a compressed trajectory.
+     */
+    public static class CompressionError {
+        public double position;
+        public double velocity;
+        public double heading;
+
+        private void include(Trajectory.Segment a, Trajectory.Segment b, Trajectory.Segment s, double f) {
+            position = Math.max(position, Math.max(
+                    Math.hypot(lerp(a.x, b.x, f) - s.x, lerp(a.y, b.y, f) - s.y),
+                    Math.abs(lerp(a.position, b.position, f) - s.position)
+            ));
+            velocity = Math.max(velocity, Math.abs(lerp(a.velocity, b.velocity, f) - s.velocity));
+            heading = Math.max(heading, Math.abs(headingError(a, b, s, f)));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("position=%.6f, velocity=%.6f, heading=%.4f deg", position, velocity, Math.toDegrees(heading));
+        }
+    }
+
+    /**
+     * A compressed trajectory.
+     */
+    public static class Result {
+        private final Trajectory trajectory;
+        private final int originalLength;
+        private final CompressionError error;
+
+        Result(Trajectory trajectory, int originalLength, CompressionError error) {
+            this.trajectory = trajectory;
+            this.originalLength = originalLength;
+            this.error = error;
+        }
+
+        public Trajectory getTrajectory() {
+            return trajectory;
+        }
+
+        public int getOriginalLength() {
+            return originalLength;
+        }
+
+        /**
+         * Gets how many times fewer segments the compressed trajectory has.
+         *
+         * @return the original length divided by the compressed length
+         */
+        public double getRatio() {
+            return trajectory.length() == 0 ? 1 : (double) originalLength / trajectory.length();
+        }
+
+        public CompressionError getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d -> %d segments (%.1fx), max error %s",
+                    originalLength, trajectory.length(), getRatio(), error);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.jtulayan.util;
+
+import jaci.pathfinder.Trajectory;
+
+/**
+ * Looks up the interpolated state of a trajectory at a given time or distance traveled.
+ * <p>
+ * The segments are copied into flat arrays once, so time lookups are a single index calculation,
+ * and distance lookups a binary search over the cumulative position.
+ * Each segment's values are packed next to each other, so an interpolation touches two cache lines at most.
+ * Queries write into a caller-owned {@link State} and don't allocate anything,
+ * so they are cheap enough to run every control loop or mouse move.
+ * <p>
+ * An index is immutable once built, and can be queried from several threads at once,
+ * as long as each thread uses its own state.
+ */
+public class TrajectoryIndex {
+    private final Trajectory trajectory;
+
+    // Offsets of each value within a segment's slot in the packed data
+    private static final int X = 0, Y = 1, POSITION = 2, VELOCITY = 3, ACCELERATION = 4, JERK = 5, HEADING = 6;
+
+    // One slot per segment; 8 doubles fill a 64 byte cache line
+    private static final int STRIDE = 8;
+
+    private final double dt;
+    private final int size;
+
+    // Segment values, packed STRIDE doubles per segment
+    private final double[] data;
+
+    // Positions again, densely packed for the binary search
+    private final double[] position;
+
+    /**
+     * Builds an index over the given trajectory.
+     * Later changes to the trajectory's segments are not reflected in the index.
+     *
+     * @param t the trajectory to index, with a constant time step and non-decreasing position
+     */
+    public TrajectoryIndex(Trajectory t) {
+        if (t.length() == 0)
+            throw new IllegalArgumentException("Can't index an empty trajectory!");
+
+        int n = t.length();
+
+        trajectory = t;
+        dt = t.get(0).dt;
+
+        size = n;
+        data = new double[n * STRIDE];
+        position = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            Trajectory.Segment seg = t.get(i);
+            int slot = i * STRIDE;
+
+            data[slot + X] = seg.x;
+            data[slot + Y] = seg.y;
+            data[slot + POSITION] = seg.position;
+            data[slot + VELOCITY] = seg.velocity;
+            data[slot + ACCELERATION] = seg.acceleration;
+            data[slot + JERK] = seg.jerk;
+            data[slot + HEADING] = seg.heading;
+            position[i] = seg.position;
+        }
+    }
+
+    /**
+     * Checks whether this index was built from the given trajectory.
+     *
+     * @param t the trajectory to check
+     * @return true if this index was built from that exact trajectory
+     */
+    public boolean isOf(Trajectory t) {
+        return trajectory == t;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getTimeStep() {
+        return dt;
+    }
+
+    /**
+     * Gets the duration of the trajectory.
+     *
+     * @return the time of the last segment, in seconds
+     */
+    public double getDuration() {
+        return dt * (size - 1);
+    }
+
+    /**
+     * Gets the distance traveled along the trajectory.
+     *
+     * @return the position of the last segment
+     */
+    public double getLength() {
+        return position[position.length - 1];
+    }
+
+    /**
+     * Gets the state at the given time.
+     * Times outside of the trajectory are clamped to its start or end.
+     *
+     * @param time the time to sample at, in seconds
+     * @param out  the state to write into
+     * @return {@code out}, for chaining
+     */
+    public State sampleTime(double time, State out) {
+        int last = size - 1;
+        double index = dt > 0 ? time / dt : 0;
+
+        // Also catches NaN
+        if (!(index > 0))
+            return set(out, 0, 0, 0);
+        if (index >= last)
+            return set(out, last, last, 0);
+
+        int i = (int) index;
+
+        return set(out, i, i + 1, index - i);
+    }
+
+    /**
+     * Gets the state once the given distance has been traveled.
+     * Distances outside of the trajectory are clamped to its start or end.
+     * If the trajectory stops for a while at that distance, the first time it gets there is used.
+     *
+     * @param distance the distance traveled, in the same units as the segments' positions
+     * @param out      the state to write into
+     * @return {@code out}, for chaining
+     */
+    public State sampleDistance(double distance, State out) {
+        int last = position.length - 1;
+
+        if (!(distance > position[0]))
+            return set(out, 0, 0, 0);
+        if (distance >= position[last])
+            return set(out, firstAt(position[last]), last, 0);
+
+        // The first segment at or past the distance; the one before it is strictly before the distance
+        int i = firstAt(distance);
+
+        return set(out, i - 1, i, (distance - position[i - 1]) / (position[i] - position[i - 1]));
+    }
+
+    /**
+     * Finds the first segment at or past the given position.
+     */
+    private int firstAt(double pos) {
+        int lo = 0, hi = position.length - 1;
+
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+
+            if (position[mid] >= pos)
+                hi = mid;
+            else
+                lo = mid + 1;
+        }
+
+        return lo;
+    }
+
+    /**
+     * Interpolates between two segments into the state.
+     * Heading is interpolated along the shortest arc, and kept in [0, 2pi) like the generator's headings.
+     */
+    private State set(State out, int a, int b, double f) {
+        int sa = a * STRIDE, sb = b * STRIDE;
+        double turn = data[sb + HEADING] - data[sa + HEADING];
+
+        // Wrap to [-pi, pi]; cheaper than atan2, and headings only wrap once between segments
+        if (turn > Math.PI)
+            turn -= 2 * Math.PI;
+        else if (turn < -Math.PI)
+            turn += 2 * Math.PI;
+
+        double h = data[sa + HEADING] + turn * f;
+
+        if (h >= 2 * Math.PI)
+            h -= 2 * Math.PI;
+        else if (h < 0)
+            h += 2 * Math.PI;
+
+        out.time = (a + f) * dt;
+        out.x = lerp(data[sa + X], data[sb + X], f);
+        out.y = lerp(data[sa + Y], data[sb + Y], f);
+        out.position = lerp(data[sa + POSITION], data[sb + POSITION], f);
+        out.velocity = lerp(data[sa + VELOCITY], data[sb + VELOCITY], f);
+        out.acceleration = lerp(data[sa + ACCELERATION], data[sb + ACCELERATION], f);
+        out.jerk = lerp(data[sa + JERK], data[sb + JERK], f);
+        out.heading = h;
+
+        return out;
+    }
+
+    private static double lerp(double a, double b, double f) {
+        return a + (b - a) * f;
+    }
+
+    /**
+     * The interpolated state of a trajectory.
+     * Reuse one per caller to keep lookups allocation-free.
+     */
+    public static class State {
+        public double time;
+        public double x;
+        public double y;
+        public double position;
+        public double velocity;
+        public double acceleration;
+        public double jerk;
+        public double heading;
+
+        /**
+         * Copies this state into a new segment.
+         *
+         * @param dt the time step of the new segment, in seconds
+         * @return a new segment with this state
+         */
+        public Trajectory.Segment toSegment(double dt) {
+            return new Trajectory.Segment(dt, x, y, position, velocity, acceleration, jerk, heading);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("t=%.3f: (%.3f, %.3f), position=%.3f, velocity=%.3f, acceleration=%.3f, heading=%.1f deg",
+                    time, x, y, position, velocity, acceleration, Math.toDegrees(heading));
+        }
+    }
+}
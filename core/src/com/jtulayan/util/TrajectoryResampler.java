@@ -0,0 +1,130 @@
+package com.jtulayan.util;
+
+import jaci.pathfinder.Trajectory;
+
+/**
+ * Resamples generated trajectories to a different time step.
+ * Segments are interpolated by time, so one high-resolution trajectory
+ * can be used to produce trajectories for any control loop period.
+ */
+public class TrajectoryResampler {
+    private TrajectoryResampler() {
+        // Do not instantiate
+    }
+
+    /**
+     * Resamples the given trajectory to the given time step.
+     * The last segment is clamped to the end of the source trajectory.
+     *
+     * @param t  the trajectory to resample, must have a constant time step
+     * @param dt the new time step, in seconds
+     * @return a new trajectory sampled every {@code dt} seconds
+     */
+    public static Trajectory resample(Trajectory t, double dt) {
+        if (dt <= 0)
+            throw new IllegalArgumentException("Time step must be positive!");
+
+        if (t.length() == 0)
+            return new Trajectory(0);
+
+        double srcDt = t.get(0).dt;
+        double duration = srcDt * (t.length() - 1);
+        int length = (int) Math.ceil(duration / dt - 1e-9) + 1;
+
+        Trajectory.Segment[] segments = new Trajectory.Segment[length];
+        TrajectoryIndex index = new TrajectoryIndex(t);
+        TrajectoryIndex.State state = new TrajectoryIndex.State();
+
+        for (int i = 0; i < length; i++)
+            segments[i] = index.sampleTime(Math.min(i * dt, duration), state).toSegment(dt);
+
+        return new Trajectory(segments);
+    }
+
+    /**
+     * Linearly interpolates between two segments.
+     * Heading is interpolated along the shortest arc, and kept in [0, 2pi).
+     *
+     * @param a the segment at fraction 0
+     * @param b the segment at fraction 1
+     * @param f the fraction between the segments, from 0 to 1
+     * @return a new interpolated segment
+     */
+    public static Trajectory.Segment interpolate(Trajectory.Segment a, Trajectory.Segment b, double f) {
+        return new Trajectory.Segment(
+                a.dt,
+                lerp(a.x, b.x, f),
+                lerp(a.y, b.y, f),
+                lerp(a.position, b.position, f),
+                lerp(a.velocity, b.velocity, f),
+                lerp(a.acceleration, b.acceleration, f),
+                lerp(a.jerk, b.jerk, f),
+                lerpAngle(a.heading, b.heading, f)
+        );
+    }
+
+    /**
+     * Compares a resampled trajectory against one generated directly at the same time step.
+     *
+     * @param resampled the resampled trajectory
+     * @param direct    the directly generated trajectory
+     * @return the maximum error between both trajectories
+     */
+    public static ResampleError compare(Trajectory resampled, Trajectory direct) {
+        ResampleError error = new ResampleError();
+        int length = Math.min(resampled.length(), direct.length());
+
+        error.dt = direct.length() > 0 ? direct.get(0).dt : 0;
+        error.lengthDifference = resampled.length() - direct.length();
+
+        for (int i = 0; i < length; i++) {
+            Trajectory.Segment r = resampled.get(i), d = direct.get(i);
+
+            error.position = Math.max(error.position, Math.hypot(r.x - d.x, r.y - d.y));
+            error.velocity = Math.max(error.velocity, Math.abs(r.velocity - d.velocity));
+            error.acceleration = Math.max(error.acceleration, Math.abs(r.acceleration - d.acceleration));
+            error.heading = Math.max(error.heading, Math.abs(angleDifference(r.heading, d.heading)));
+        }
+
+        return error;
+    }
+
+    private static double lerp(double a, double b, double f) {
+        return a + (b - a) * f;
+    }
+
+    /**
+     * Interpolates a heading along the shortest arc, bounded to [0, 2pi) like the generator's headings.
+     */
+    private static double lerpAngle(double a, double b, double f) {
+        double angle = (a + angleDifference(b, a) * f) % (2 * Math.PI);
+
+        return angle < 0 ? angle + 2 * Math.PI : angle;
+    }
+
+    private static double angleDifference(double a, double b) {
+        double diff = a - b;
+
+        return Math.atan2(Math.sin(diff), Math.cos(diff));
+    }
+
+    /**
+     * Maximum error of a resampled trajectory compared to direct generation.
+     */
+    public static class ResampleError {
+        public double dt;
+        public double position;
+        public double velocity;
+        public double acceleration;
+        public double heading;
+        public int lengthDifference;
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "dt=%.4f: position=%.6f, velocity=%.6f, acceleration=%.6f, heading=%.4f deg, length diff=%d",
+                    dt, position, velocity, acceleration, Math.toDegrees(heading), lengthDifference
+            );
+        }
+    }
+}
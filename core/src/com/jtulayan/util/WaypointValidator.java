@@ -0,0 +1,162 @@
+package com.jtulayan.util;
+
+import jaci.pathfinder.Waypoint;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cheap geometric checks on waypoints, to catch paths that can't be generated properly
+ * before paying for a full generation.
+ * <p>
+ * Each spline between two waypoints is fit relative to the line between them, so each waypoint's angle
+ * must point less than 90 degrees away from that line. Otherwise the spline fit either blows up
+ * or silently flips the heading around.
+ */
+public class WaypointValidator {
+    // Waypoints closer than this are considered on top of each other, in meters
+    public static final double MIN_DISTANCE = 1e-3;
+
+    // Largest angle between a waypoint's heading and the line to its neighbor
+    private static final double MAX_RELATIVE_ANGLE = Math.PI / 2 - 1e-9;
+
+    public enum Type {
+        /**
+         * A coordinate or angle is not a finite number.
+         */
+        INVALID_VALUE,
+
+        /**
+         * Two consecutive waypoints are on top of each other.
+         */
+        COINCIDENT,
+
+        /**
+         * A waypoint is behind the previous one, relative to both of their angles.
+         */
+        REVERSAL,
+
+        /**
+         * A waypoint's angle points too far away from its neighbor.
+         */
+        HEADING
+    }
+
+    private WaypointValidator() {
+        // Do not instantiate
+    }
+
+    /**
+     * Finds the first problem with the given waypoints.
+     * This stops at the first problem, and doesn't allocate anything unless there is one.
+     *
+     * @param points the waypoints to check, in meters and radians
+     * @return the first problem found, or null if the waypoints are valid
+     */
+    public static Problem findFirst(List<Waypoint> points) {
+        for (int i = 0; i < points.size(); i++) {
+            Problem problem = check(points, i);
+
+            if (problem != null)
+                return problem;
+        }
+
+        return null;
+    }
+
+    /**
+     * Finds every problem with the given waypoints.
+     *
+     * @param points the waypoints to check, in meters and radians
+     * @return all problems found, in waypoint order; empty if the waypoints are valid
+     */
+    public static List<Problem> validate(List<Waypoint> points) {
+        List<Problem> problems = new ArrayList<>();
+
+        for (int i = 0; i < points.size(); i++) {
+            Problem problem = check(points, i);
+
+            if (problem != null)
+                problems.add(problem);
+        }
+
+        return problems;
+    }
+
+    /**
+     * Checks a single waypoint, and the spline leading to it from the previous waypoint.
+     */
+    private static Problem check(List<Waypoint> points, int i) {
+        Waypoint b = points.get(i);
+
+        if (!Double.isFinite(b.x) || !Double.isFinite(b.y) || !Double.isFinite(b.angle))
+            return new Problem(i, Type.INVALID_VALUE, "Waypoint " + (i + 1) + " has an invalid value");
+
+        if (i == 0)
+            return null;
+
+        Waypoint a = points.get(i - 1);
+        double dx = b.x - a.x, dy = b.y - a.y;
+
+        if (Math.hypot(dx, dy) < MIN_DISTANCE)
+            return new Problem(i, Type.COINCIDENT, "Waypoint " + (i + 1) + " is on top of waypoint " + i);
+
+        double chord = Math.atan2(dy, dx);
+        boolean startBad = Math.abs(angleDifference(a.angle, chord)) >= MAX_RELATIVE_ANGLE;
+        boolean endBad = Math.abs(angleDifference(b.angle, chord)) >= MAX_RELATIVE_ANGLE;
+
+        if (startBad && endBad)
+            return new Problem(i, Type.REVERSAL, "Waypoint " + (i + 1) + " is behind waypoint " + i);
+        if (startBad)
+            return new Problem(i - 1, Type.HEADING,
+                    "The angle of waypoint " + i + " points more than 90 degrees away from waypoint " + (i + 1));
+        if (endBad)
+            return new Problem(i, Type.HEADING,
+                    "The angle of waypoint " + (i + 1) + " points more than 90 degrees away from waypoint " + i);
+
+        return null;
+    }
+
+    private static double angleDifference(double a, double b) {
+        double diff = a - b;
+
+        return Math.atan2(Math.sin(diff), Math.cos(diff));
+    }
+
+    /**
+     * A problem with a waypoint.
+     */
+    public static class Problem {
+        private final int index;
+        private final Type type;
+        private final String message;
+
+        Problem(int index, Type type, String message) {
+            this.index = index;
+            this.type = type;
+            this.message = message;
+        }
+
+        /**
+         * Gets the index of the waypoint at fault.
+         *
+         * @return the index of the waypoint, counting from 0
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return type + ": " + message;
+        }
+    }
+}
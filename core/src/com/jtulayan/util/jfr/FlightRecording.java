@@ -0,0 +1,45 @@
+package com.jtulayan.util.jfr;
+
+import jdk.jfr.Recording;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Records the path planner's Flight Recorder events, plus garbage collection and allocation, to a file.
+ * Only use this when {@link com.jtulayan.util.Metrics#isJfrAvailable()} is true.
+ */
+public class FlightRecording implements AutoCloseable {
+    private final Recording recording = new Recording();
+    private final File file;
+
+    /**
+     * Starts recording.
+     *
+     * @param file the file to write the recording to when closed
+     */
+    public FlightRecording(File file) {
+        this.file = file;
+
+        recording.setName("Path Planner");
+        recording.enable(PhaseEvent.class);
+        recording.enable("jdk.GarbageCollection");
+        recording.enable("jdk.ObjectAllocationSample");
+        recording.start();
+    }
+
+    /**
+     * Stops recording and writes the recording to the file.
+     *
+     * @throws IOException if the recording can't be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            recording.stop();
+            recording.dump(file.toPath());
+        } finally {
+            recording.close();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.jtulayan.util.jfr;
+
+import com.jtulayan.util.Metrics;
+import jdk.jfr.*;
+
+/**
+ * Flight Recorder event for a timed {@link Metrics.Phase}.
+ * Only referenced when Flight Recorder is available; use {@link Metrics} instead of this directly.
+ */
+@Name("com.jtulayan.Phase")
+@Label("Path Planner Phase")
+@Category("Path Planner")
+@Description("Loading, generating, displaying or exporting trajectories")
+public class PhaseEvent extends Event {
+    @Label("Phase")
+    String phase;
+
+    @Label("Waypoints")
+    long waypoints;
+
+    @Label("Segments")
+    long segments;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    public static Object begin(Metrics.Phase phase) {
+        PhaseEvent event = new PhaseEvent();
+
+        event.phase = phase.getLabel();
+        event.begin();
+
+        return event;
+    }
+
+    public static void end(Object e, long waypoints, long segments, long bytes) {
+        PhaseEvent event = (PhaseEvent) e;
+
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.waypoints = waypoints;
+            event.segments = segments;
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+}
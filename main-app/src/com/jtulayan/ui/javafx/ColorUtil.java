@@ -0,0 +1,36 @@
+package com.jtulayan.ui.javafx;
+
+import javafx.scene.paint.Color;
+
+/**
+ * Collection of color functions for JavaFX styles
+ */
+public class ColorUtil {
+    private ColorUtil() {
+        // Do not instantiate
+    }
+
+    /**
+     * Converts color object into HTML/CSS string
+     * @param color color object to convert to HTML string
+     * @return HTML/CSS HSLA string representing color
+     */
+    public static String toWeb(Color color) {
+        return String.format(
+                "hsba(%f, %f%%, %f%%, %f)",
+                color.getHue(),
+                color.getSaturation() * 100,
+                color.getBrightness() * 100,
+                color.getOpacity()
+        );
+    };
+
+    /**
+     * Converts hex color into HTML/CSS string
+     * @param color hex string representing RGBA color
+     * @return HTML/CSS HSLA string representing color
+     */
+    public static String toWeb(String color) {
+        return toWeb(Color.web(color));
+    };
+}
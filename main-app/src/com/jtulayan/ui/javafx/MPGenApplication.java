@@ -0,0 +1,31 @@
+package com.jtulayan.ui.javafx;
+
+import javafx.application.Application;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Scene;
+import javafx.scene.layout.Pane;
+import javafx.stage.Stage;
+
+public class MPGenApplication extends Application {
+    @Override
+    public void start(Stage primaryStage) throws Exception {
+        Pane root = FXMLLoader.load(getClass().getResource("/com/jtulayan/ui/javafx/MainFXUI.fxml"));
+
+        root.autosize();
+        primaryStage.setScene(new Scene(root));
+        primaryStage.sizeToScene();
+        primaryStage.setTitle("Pathplanner");
+
+        primaryStage.setResizable(false);
+        primaryStage.show();
+    }
+
+    /**
+     * Launches the GUI and waits for it to close.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        launch(args);
+    }
+}
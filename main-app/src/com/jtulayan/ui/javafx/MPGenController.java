@@ -1,15 +1,27 @@
 package com.jtulayan.ui.javafx;
 
+import com.jtulayan.main.GenerationAbortedException;
+import com.jtulayan.main.GenerationBudget;
 import com.jtulayan.main.Pathplanner;
 import com.jtulayan.ui.javafx.factory.AlertFactory;
 import com.jtulayan.ui.javafx.factory.DialogFactory;
 import com.jtulayan.ui.javafx.factory.SeriesFactory;
+import com.jtulayan.util.KeepOutChecker;
+import com.jtulayan.util.KeepOutZones;
 import com.jtulayan.util.Mathf;
+import com.jtulayan.util.Metrics;
+import com.jtulayan.util.TrackingComparison;
+import com.jtulayan.util.WaypointValidator;
 import jaci.pathfinder.Pathfinder;
 import jaci.pathfinder.Trajectory;
 import jaci.pathfinder.Waypoint;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.beans.binding.Bindings;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.value.ObservableValue;
-import javafx.beans.value.ObservableValueBase;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
@@ -43,13 +55,30 @@ import java.io.File;
 import java.io.IOException;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class MPGenController {
+    // Distance from a waypoint that starts dragging it, in pixels
+    private static final double DRAG_HIT_RADIUS = 8;
+
+    // Preview generation time that fits in a frame; slower previews skip frames
+    private static final long PREVIEW_FRAME_BUDGET = 8_000_000;
+
+    // Longest the UI waits for a generation before giving up on it, in milliseconds
+    private static final long GENERATION_TIMEOUT = 5000;
+
+    // Largest distance between an imported odometry log and its waypoints, in meters
+    private static final double LOG_TOLERANCE = 0.05;
+
     private Pathplanner backend;
 
     @FXML
     private Pane root;
 
+    @FXML
+    private Label lblStatus;
+
     @FXML
     private TextField
         txtTimeStep,
@@ -57,14 +86,16 @@ public class MPGenController {
         txtAcceleration,
         txtJerk,
         txtWheelBaseW,
-        txtWheelBaseD;
+        txtWheelBaseD,
+        txtRobotWidth,
+        txtRobotDepth;
 
     @FXML
     private Label
         lblWheelBaseD;
 
     @FXML
-    private TableView<Waypoint> tblWaypoints;
+    private TableView<ObservableWaypoint> tblWaypoints;
 
     @FXML
     private LineChart<Double, Double>
@@ -79,7 +110,7 @@ public class MPGenController {
         axisVel;
 
     @FXML
-    private TableColumn<Waypoint, Double>
+    private TableColumn<ObservableWaypoint, Double>
             colWaypointX,
             colWaypointY,
             colWaypointAngle;
@@ -106,20 +137,60 @@ public class MPGenController {
             btnClearPoints,
             btnDelete;
 
-    private ObservableList<Waypoint> waypointsList;
+    private ObservableList<ObservableWaypoint> waypointsList;
+
+    // Units that the waypoint table displays
+    private ObjectProperty<Pathplanner.Units> displayUnits;
 
-    private Properties properties;
+    // Whether or not the UI is being updated from the backend.
+    // Listeners don't regenerate while this is set; the caller regenerates once when done.
+    private boolean updatingFrontend = false;
 
-    private File workingDirectory;
+    private Settings settings;
 
     private boolean currentTrajValid = false;
 
+    // Chart styles, resolved once whenever the settings change
+    private String waypointStyle;
+    private String waypointHighlightStyle;
+    private String sourceStrokeStyle;
+    private String tankStrokeStyle;
+
+    // Waypoints series in the position chart, and which of its points are highlighted
+    private XYChart.Series<Double, Double> waypointSeries;
+    private BitSet highlightedPoints = new BitSet();
+
+    // Waypoint being dragged on the position chart, and its position before dragging
+    private ObservableWaypoint draggedPoint;
+    private Waypoint draggedHistory;
+    private boolean dragDirty = false;
+    private long nextPreviewTime = 0;
+    private AnimationTimer dragTimer;
+
+    // Full quality generation after drag editing runs in the background
+    private ExecutorService refineExecutor;
+    private int refineRequest = 0;
+    private Pathplanner refineSnapshot;
+
+    // Latest comparison of a log, overlaid on the charts while they show the trajectory it was compared against
+    private TrackingComparison.Result comparison;
+    private Trajectory comparedTrajectory;
+
+    // Keep-out zones file that is loaded, and where the path first enters a zone
+    private String keepOutFile = "";
+    private KeepOutChecker.Collision keepOutCollision;
+
     @FXML
     public void initialize() {
         backend = new Pathplanner();
-        properties = PropWrapper.getProperties();
-
-        workingDirectory = new File(properties.getProperty("file.workingDir", System.getProperty("user.dir")));
+        backend.setGenerationBudget(new GenerationBudget(GENERATION_TIMEOUT, Runtime.getRuntime().maxMemory() / 2));
+        settings = Settings.getInstance();
+        settings.addListener(() -> {
+            updateOverlayImg();
+            updateStyles();
+            updateKeepOutZones();
+            repopulatePosChart();
+        });
 
         btnDelete.setDisable(true);
 
@@ -135,34 +206,56 @@ public class MPGenController {
         choUnits.setValue(choUnits.getItems().get(0));
         choUnits.getSelectionModel().selectedItemProperty().addListener(this::updateUnits);
 
-        Callback<TableColumn<Waypoint, Double>, TableCell<Waypoint, Double>> doubleCallback =
-            (TableColumn<Waypoint, Double> param) -> {
-                TextFieldTableCell<Waypoint, Double> cell = new TextFieldTableCell<>();
+        Callback<TableColumn<ObservableWaypoint, Double>, TableCell<ObservableWaypoint, Double>> doubleCallback =
+            (TableColumn<ObservableWaypoint, Double> param) -> {
+                TextFieldTableCell<ObservableWaypoint, Double> cell = new TextFieldTableCell<>();
 
                 cell.setConverter(new DoubleStringConverter());
 
                 return cell;
         };
 
-        EventHandler<TableColumn.CellEditEvent<Waypoint, Double>> editHandler =
-            (TableColumn.CellEditEvent<Waypoint, Double> t) -> {
-                Waypoint
-                    curWaypoint = t.getRowValue(),
-                    history = new Waypoint(curWaypoint.x, curWaypoint.y, curWaypoint.angle);
+        EventHandler<TableColumn.CellEditEvent<ObservableWaypoint, Double>> editHandler =
+            (TableColumn.CellEditEvent<ObservableWaypoint, Double> t) -> {
+                ObservableWaypoint curWaypoint = t.getRowValue();
+                DoubleProperty field;
+                double newValue;
+
+                if (t.getTableColumn() == colWaypointAngle) {
+                    field = curWaypoint.angleProperty();
+                    newValue = Pathfinder.d2r(t.getNewValue());
+                } else if (t.getTableColumn() == colWaypointY) {
+                    field = curWaypoint.yProperty();
+                    newValue = backend.getUnits().toMeters(t.getNewValue());
+                } else {
+                    field = curWaypoint.xProperty();
+                    newValue = backend.getUnits().toMeters(t.getNewValue());
+                }
 
-                if (t.getTableColumn() == colWaypointAngle)
-                    curWaypoint.angle = Pathfinder.d2r(t.getNewValue());
-                else if (t.getTableColumn() == colWaypointY)
-                    curWaypoint.y = t.getNewValue();
-                else
-                    curWaypoint.x = t.getNewValue();
+                double history = field.get();
 
-                // If the point is invalid
-                if (!generateTrajectories()) {
-                    curWaypoint.x = history.x;
-                    curWaypoint.y = history.y;
-                    curWaypoint.angle = history.angle;
+                // Reject invalid edits without generating
+                List<Waypoint> candidate = new ArrayList<>(backend.getWaypointsList());
+                Waypoint edited = curWaypoint.getWaypoint();
+                int row = t.getTablePosition().getRow();
+
+                candidate.set(row, new Waypoint(
+                        field == curWaypoint.xProperty() ? newValue : edited.x,
+                        field == curWaypoint.yProperty() ? newValue : edited.y,
+                        field == curWaypoint.angleProperty() ? newValue : edited.angle
+                ));
+
+                if (!validateWaypoints(candidate)) {
+                    tblWaypoints.refresh();
+                    return;
                 }
+
+                // The waypoints list listener regenerates the trajectories
+                field.set(newValue);
+
+                // If the point is invalid
+                if (!currentTrajValid)
+                    field.set(history);
         };
 
         txtTimeStep.setTextFormatter(new TextFormatter<>(new DoubleStringConverter()));
@@ -171,6 +264,8 @@ public class MPGenController {
         txtJerk.setTextFormatter(new TextFormatter<>(new DoubleStringConverter()));
         txtWheelBaseW.setTextFormatter(new TextFormatter<>(new DoubleStringConverter()));
         txtWheelBaseD.setTextFormatter(new TextFormatter<>(new DoubleStringConverter()));
+        txtRobotWidth.setTextFormatter(new TextFormatter<>(new DoubleStringConverter()));
+        txtRobotDepth.setTextFormatter(new TextFormatter<>(new DoubleStringConverter()));
 
         txtTimeStep.focusedProperty().addListener((observable, oldValue, newValue) -> {
             if (!newValue) { // On unfocus
@@ -280,6 +375,42 @@ public class MPGenController {
             }
         });
 
+        txtRobotWidth.focusedProperty().addListener((observable, oldValue, newValue) -> {
+            if (!newValue) { // On unfocus
+                String val = txtRobotWidth.getText().trim();
+                double d = 0;
+
+                if (val.isEmpty()) {
+                    val = "2.0";
+                    txtRobotWidth.setText(val);
+                } else {
+                    d = Double.parseDouble(val);
+                    if (d != 0) {
+                        txtRobotWidth.setText("" + Math.abs(d));
+                        generateTrajectories();
+                    }
+                }
+            }
+        });
+
+        txtRobotDepth.focusedProperty().addListener((observable, oldValue, newValue) -> {
+            if (!newValue) { // On unfocus
+                String val = txtRobotDepth.getText().trim();
+                double d = 0;
+
+                if (val.isEmpty()) {
+                    val = "2.0";
+                    txtRobotDepth.setText(val);
+                } else {
+                    d = Double.parseDouble(val);
+                    if (d != 0) {
+                        txtRobotDepth.setText("" + Math.abs(d));
+                        generateTrajectories();
+                    }
+                }
+            }
+        });
+
         colWaypointX.setCellFactory(doubleCallback);
         colWaypointY.setCellFactory(doubleCallback);
         colWaypointAngle.setCellFactory(doubleCallback);
@@ -288,54 +419,62 @@ public class MPGenController {
         colWaypointY.setOnEditCommit(editHandler);
         colWaypointAngle.setOnEditCommit(editHandler);
 
-        colWaypointX.setCellValueFactory((TableColumn.CellDataFeatures<Waypoint, Double> d) ->
-            new ObservableValueBase<Double>() {
-                @Override
-                public Double getValue() {
-                    return d.getValue().x;
-                }
-            }
+        displayUnits = new SimpleObjectProperty<>(backend.getUnits());
+
+        colWaypointX.setCellValueFactory((TableColumn.CellDataFeatures<ObservableWaypoint, Double> d) ->
+            Bindings.createObjectBinding(
+                () -> Mathf.round(displayUnits.get().fromMeters(d.getValue().getX()), 4),
+                d.getValue().xProperty(), displayUnits
+            )
         );
 
-        colWaypointY.setCellValueFactory((TableColumn.CellDataFeatures<Waypoint, Double> d) ->
-                new ObservableValueBase<Double>() {
-                    @Override
-                    public Double getValue() {
-                        return d.getValue().y;
-                    }
-                }
+        colWaypointY.setCellValueFactory((TableColumn.CellDataFeatures<ObservableWaypoint, Double> d) ->
+            Bindings.createObjectBinding(
+                () -> Mathf.round(displayUnits.get().fromMeters(d.getValue().getY()), 4),
+                d.getValue().yProperty(), displayUnits
+            )
         );
 
-        colWaypointAngle.setCellValueFactory((TableColumn.CellDataFeatures<Waypoint, Double> d) ->
-            new ObservableValueBase<Double>() {
-                @Override
-                public Double getValue() {
-                    return Mathf.round(Pathfinder.r2d(d.getValue().angle), 2);
-                }
-            }
+        colWaypointAngle.setCellValueFactory((TableColumn.CellDataFeatures<ObservableWaypoint, Double> d) ->
+            Bindings.createObjectBinding(
+                () -> Mathf.round(Pathfinder.r2d(d.getValue().getAngle()), 2),
+                d.getValue().angleProperty()
+            )
         );
 
-        waypointsList = FXCollections.observableList(backend.getWaypointsList());
-        waypointsList.addListener((ListChangeListener<Waypoint>) c -> {
+        waypointsList = FXCollections.observableArrayList(ObservableWaypoint.EXTRACTOR);
+        waypointsList.addListener((ListChangeListener<ObservableWaypoint>) c -> {
+            boolean structural = false;
+
             btnClearPoints.setDisable(waypointsList.size() == 0);
 
-            currentTrajValid = generateTrajectories();
+            while (c.next())
+                structural |= !c.wasUpdated();
+
+            if (updatingFrontend)
+                return;
 
-            tblWaypoints.getSelectionModel().clearSelection();
+            if (structural)
+                syncBackendWaypoints();
+
+            // Dragging regenerates its own previews
+            if (draggedPoint == null)
+                currentTrajValid = generateTrajectories();
+
+            // Field edits keep the selection
+            if (structural)
+                tblWaypoints.getSelectionModel().clearSelection();
         });
 
         tblWaypoints.setItems(waypointsList);
         tblWaypoints.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
-        tblWaypoints.getSelectionModel().selectedIndexProperty().addListener((observable, oldValue, newValue) -> {
+        tblWaypoints.getSelectionModel().getSelectedIndices().addListener((ListChangeListener<Integer>) c -> {
             List<Integer> selectedIndicies = tblWaypoints.getSelectionModel().getSelectedIndices();
-            String srcDisplayStr = properties.getProperty("ui.sourceDisplay", "2");
-            int sourceDisplay = Integer.parseInt(srcDisplayStr);
 
-            btnDelete.setDisable(tblWaypoints.getSelectionModel().getSelectedIndices().get(0) == -1);
+            btnDelete.setDisable(selectedIndicies.isEmpty());
 
             // Highlight selected waypoints if available
-            if (sourceDisplay > 0 && !waypointsList.isEmpty())
-                highlightPoints(selectedIndicies);
+            highlightPoints(selectedIndicies);
         });
 
         tblWaypoints.setOnKeyPressed(event -> {
@@ -347,11 +486,27 @@ public class MPGenController {
             }
         });
 
+        dragTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                previewDrag(now);
+            }
+        };
+
+        refineExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "Trajectory Refinement");
+
+            t.setDaemon(true);
+            return t;
+        });
+
         updateOverlayImg();
+        updateStyles();
+        updateKeepOutZones();
         updateFrontend();
 
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            properties.setProperty("file.workingDir", workingDirectory.getAbsolutePath());
+            // Make sure the latest settings are written, even if a background store is still pending
             try {
                 PropWrapper.storeProperties();
             } catch (IOException e) {
@@ -368,21 +523,8 @@ public class MPGenController {
         // Wait for the result
         result = settingsDialog.showAndWait();
 
-        result.ifPresent((Properties p) -> {
-            try {
-                properties.clear();
-                properties.putAll(p);
-
-                updateOverlayImg();
-                repopulatePosChart();
-
-                PropWrapper.storeProperties();
-            } catch (IOException e) {
-                Alert alert = AlertFactory.createExceptionAlert(e);
-
-                alert.showAndWait();
-            }
-        });
+        // Listeners update the views
+        result.ifPresent(settings::apply);
     }
 
     @FXML
@@ -399,7 +541,7 @@ public class MPGenController {
     private void showSaveAsDialog() {
         FileChooser fileChooser = new FileChooser();
 
-        fileChooser.setInitialDirectory(workingDirectory);
+        fileChooser.setInitialDirectory(settings.getWorkingDir());
         fileChooser.setTitle("Save As");
         fileChooser.getExtensionFilters().add(
                 new FileChooser.ExtensionFilter("Extensive Markup Language", "*.xml")
@@ -409,7 +551,7 @@ public class MPGenController {
 
         if (result != null)
             try {
-                workingDirectory = result.getParentFile();
+                settings.setWorkingDir(result.getParentFile());
 
                 backend.saveProjectAs(result);
 
@@ -425,7 +567,7 @@ public class MPGenController {
     private void showOpenDialog() {
         FileChooser fileChooser = new FileChooser();
 
-        fileChooser.setInitialDirectory(workingDirectory);
+        fileChooser.setInitialDirectory(settings.getWorkingDir());
         fileChooser.setTitle("Open Project");
         fileChooser.getExtensionFilters().add(
                 new FileChooser.ExtensionFilter("Extensive Markup Language", "*.xml")
@@ -435,7 +577,7 @@ public class MPGenController {
 
         if (result != null) {
             try {
-                workingDirectory = result.getParentFile();
+                settings.setWorkingDir(result.getParentFile());
                 backend.loadProject(result);
 
                 updateFrontend();
@@ -496,62 +638,26 @@ public class MPGenController {
     private void showImportDialog() {
         FileChooser fileChooser = new FileChooser();
 
-        fileChooser.setInitialDirectory(workingDirectory);
+        fileChooser.setInitialDirectory(settings.getWorkingDir());
         fileChooser.setTitle("Import");
         fileChooser.getExtensionFilters().addAll(
-                new FileChooser.ExtensionFilter("Vannaka Properties File", "*.bot")
+                new FileChooser.ExtensionFilter("Vannaka Properties File", "*.bot"),
+                new FileChooser.ExtensionFilter("Odometry Log", "*.csv")
         );
 
         File result = fileChooser.showOpenDialog(root.getScene().getWindow());
 
         if (result != null) {
-            Dialog<Pathplanner.Units> unitsSelector = new Dialog<>();
-            Optional<Pathplanner.Units> unitsResult = null;
-            GridPane grid = new GridPane();
-            ToggleGroup radGroup = new ToggleGroup();
-            RadioButton
-                radImperial = new RadioButton("Imperial (ft)"),
-                radMetric = new RadioButton("Metric (m)");
-
             // Reset working directory
-            workingDirectory = result.getParentFile();
-
-            // Some header stuff
-            unitsSelector.setTitle("Select Units");
-            unitsSelector.setHeaderText("Select the distance units being used");
+            settings.setWorkingDir(result.getParentFile());
 
-            // Some other UI stuff
-            grid.setVgap(10);
-            grid.setPadding(new Insets(20, 150, 10, 10));
-
-            grid.add(radImperial, 0, 0);
-            grid.add(radMetric, 0, 1);
-
-            radImperial.setToggleGroup(radGroup);
-            radImperial.selectedProperty().set(true);
-            radMetric.setToggleGroup(radGroup);
-
-            unitsSelector.getDialogPane().setContent(grid);
-
-            // Add all buttons
-            unitsSelector.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
-            unitsSelector.setResultConverter(buttonType -> {
-                if (buttonType.getButtonData() == ButtonBar.ButtonData.OK_DONE) {
-                    if (radMetric.selectedProperty().getValue())
-                        return Pathplanner.Units.METRIC;
-                    else
-                        return Pathplanner.Units.IMPERIAL;
-                }
-
-                return null;
-            });
-
-            unitsResult = unitsSelector.showAndWait();
-
-            unitsResult.ifPresent(u -> {
+            showUnitsDialog().ifPresent(u -> {
                 backend.clearPoints();
                 try {
-                    backend.importBotFile(result, u);
+                    if (result.getName().toLowerCase().endsWith(".csv"))
+                        backend.importOdometryLog(result, u, u.fromMeters(LOG_TOLERANCE));
+                    else
+                        backend.importBotFile(result, u);
 
                     updateFrontend();
                     generateTrajectories();
@@ -566,6 +672,108 @@ public class MPGenController {
         }
     }
 
+    @FXML
+    private void showCompareLogDialog() {
+        if (waypointsList.size() < 2 || backend.getSourceTrajectory() == null) {
+            Alert alert = new Alert(Alert.AlertType.WARNING);
+
+            alert.setTitle("Compare Log");
+            alert.setHeaderText("No trajectory to compare against!");
+            alert.setContentText("Add at least two waypoints before comparing a log.");
+            alert.showAndWait();
+            return;
+        }
+
+        FileChooser fileChooser = new FileChooser();
+
+        fileChooser.setInitialDirectory(settings.getWorkingDir());
+        fileChooser.setTitle("Compare Log");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Odometry Log", "*.csv"));
+
+        File result = fileChooser.showOpenDialog(root.getScene().getWindow());
+
+        if (result == null)
+            return;
+
+        settings.setWorkingDir(result.getParentFile());
+
+        showUnitsDialog().ifPresent(u -> {
+            Trajectory planned = backend.getSourceTrajectory();
+            TrackingComparison tracking = new TrackingComparison(planned);
+            Thread worker = new Thread(() -> {
+                try {
+                    TrackingComparison.Result compared = tracking.compare(result, u.getScale());
+
+                    Platform.runLater(() -> {
+                        comparison = compared;
+                        comparedTrajectory = planned;
+
+                        repopulatePosChart();
+                        repopulateVelChart();
+
+                        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+
+                        alert.setTitle("Compare Log");
+                        alert.setHeaderText("Compared " + result.getName());
+                        alert.setContentText(compared.summary(backend.getUnits().getScale()));
+                        alert.showAndWait();
+                    });
+                } catch (Exception e) {
+                    Platform.runLater(() -> AlertFactory.createExceptionAlert(e).showAndWait());
+                }
+            }, "Log Comparison");
+
+            worker.setDaemon(true);
+            worker.start();
+        });
+    }
+
+    /**
+     * Asks for the distance units of an imported file.
+     *
+     * @return the selected units, or empty if cancelled
+     */
+    private Optional<Pathplanner.Units> showUnitsDialog() {
+        Dialog<Pathplanner.Units> unitsSelector = new Dialog<>();
+        GridPane grid = new GridPane();
+        ToggleGroup radGroup = new ToggleGroup();
+        RadioButton
+            radImperial = new RadioButton("Imperial (ft)"),
+            radMetric = new RadioButton("Metric (m)");
+
+        // Some header stuff
+        unitsSelector.setTitle("Select Units");
+        unitsSelector.setHeaderText("Select the distance units being used");
+
+        // Some other UI stuff
+        grid.setVgap(10);
+        grid.setPadding(new Insets(20, 150, 10, 10));
+
+        grid.add(radImperial, 0, 0);
+        grid.add(radMetric, 0, 1);
+
+        radImperial.setToggleGroup(radGroup);
+        radImperial.selectedProperty().set(true);
+        radMetric.setToggleGroup(radGroup);
+
+        unitsSelector.getDialogPane().setContent(grid);
+
+        // Add all buttons
+        unitsSelector.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+        unitsSelector.setResultConverter(buttonType -> {
+            if (buttonType.getButtonData() == ButtonBar.ButtonData.OK_DONE) {
+                if (radMetric.selectedProperty().getValue())
+                    return Pathplanner.Units.METRIC;
+                else
+                    return Pathplanner.Units.IMPERIAL;
+            }
+
+            return null;
+        });
+
+        return unitsSelector.showAndWait();
+    }
+
     @FXML
     private void showAddPointDialog() {
         Dialog<Waypoint> waypointDialog = DialogFactory.createWaypointDialog();
@@ -575,20 +783,27 @@ public class MPGenController {
         result = waypointDialog.showAndWait();
 
         result.ifPresent((Waypoint w) -> {
-            waypointsList.add(w);
+            ObservableWaypoint point;
+
+            w.x = backend.getUnits().toMeters(w.x);
+            w.y = backend.getUnits().toMeters(w.y);
+
+            if (!validateWaypointAdded(w))
+                return;
+
+            point = new ObservableWaypoint(w);
+
+            waypointsList.add(point);
             if (!currentTrajValid)
-                waypointsList.remove(w);
+                waypointsList.remove(point);
         });
     }
 
     @FXML
     private void addPointOnClick(MouseEvent event) {
-        if (event.getButton() == MouseButton.PRIMARY) {
-            boolean addWaypointOnClick = Boolean.parseBoolean(
-                    properties.getProperty("ui.addWaypointOnClick", "false")
-            );
-
-            if (addWaypointOnClick) {
+        // Don't add points at the end of a drag
+        if (event.getButton() == MouseButton.PRIMARY && event.isStillSincePress()) {
+            if (settings.getAddWaypointOnClick()) {
                 Point2D mouseSceneCoords = new Point2D(event.getSceneX(), event.getSceneY());
                 double xLocal = axisPosX.sceneToLocal(mouseSceneCoords).getX();
                 double yLocal = axisPosY.sceneToLocal(mouseSceneCoords).getY();
@@ -597,15 +812,25 @@ public class MPGenController {
                 double y = Mathf.round(axisPosY.getValueForDisplay(yLocal).doubleValue(), 2);
                 double angle = 0;
 
+                Pathplanner.Units units = backend.getUnits();
+
                 if (!waypointsList.isEmpty()) {
-                    Waypoint prev = waypointsList.get(waypointsList.size() - 1);
-                    angle = Pathfinder.r2d(Math.atan2(y - prev.y, x - prev.x));
+                    ObservableWaypoint prev = waypointsList.get(waypointsList.size() - 1);
+                    angle = Pathfinder.r2d(Math.atan2(
+                            y - units.fromMeters(prev.getY()),
+                            x - units.fromMeters(prev.getX())
+                    ));
                     angle = Pathfinder.d2r(Mathf.round(angle, 45.0));
                 }
 
                 if (x >= axisPosX.getLowerBound() && x <= axisPosX.getUpperBound() &&
                         y >= axisPosY.getLowerBound() && y <= axisPosY.getUpperBound()) {
-                    waypointsList.add(new Waypoint(x, y, angle));
+                    Waypoint w = new Waypoint(units.toMeters(x), units.toMeters(y), angle);
+
+                    if (!validateWaypointAdded(w))
+                        return;
+
+                    waypointsList.add(new ObservableWaypoint(w));
                     if (!currentTrajValid)
                         waypointsList.remove(waypointsList.size() - 1);
                 }
@@ -618,6 +843,173 @@ public class MPGenController {
         }
     }
 
+    @FXML
+    private void startDragPoint(MouseEvent event) {
+        if (event.getButton() != MouseButton.PRIMARY)
+            return;
+
+        Point2D mouseSceneCoords = new Point2D(event.getSceneX(), event.getSceneY());
+        double xLocal = axisPosX.sceneToLocal(mouseSceneCoords).getX();
+        double yLocal = axisPosY.sceneToLocal(mouseSceneCoords).getY();
+        Pathplanner.Units units = backend.getUnits();
+
+        for (ObservableWaypoint w : waypointsList) {
+            double dx = axisPosX.getDisplayPosition(units.fromMeters(w.getX())) - xLocal;
+            double dy = axisPosY.getDisplayPosition(units.fromMeters(w.getY())) - yLocal;
+
+            if (dx * dx + dy * dy <= DRAG_HIT_RADIUS * DRAG_HIT_RADIUS) {
+                draggedPoint = w;
+                draggedHistory = new Waypoint(w.getX(), w.getY(), w.getAngle());
+                dragDirty = false;
+                nextPreviewTime = 0;
+
+                dragTimer.start();
+                event.consume();
+                return;
+            }
+        }
+    }
+
+    @FXML
+    private void dragPoint(MouseEvent event) {
+        if (draggedPoint == null)
+            return;
+
+        Point2D mouseSceneCoords = new Point2D(event.getSceneX(), event.getSceneY());
+        double xLocal = axisPosX.sceneToLocal(mouseSceneCoords).getX();
+        double yLocal = axisPosY.sceneToLocal(mouseSceneCoords).getY();
+
+        double x = Mathf.round(axisPosX.getValueForDisplay(xLocal).doubleValue(), 2);
+        double y = Mathf.round(axisPosY.getValueForDisplay(yLocal).doubleValue(), 2);
+
+        // Keep the point on the field
+        x = Math.max(axisPosX.getLowerBound(), Math.min(axisPosX.getUpperBound(), x));
+        y = Math.max(axisPosY.getLowerBound(), Math.min(axisPosY.getUpperBound(), y));
+
+        draggedPoint.setX(backend.getUnits().toMeters(x));
+        draggedPoint.setY(backend.getUnits().toMeters(y));
+        dragDirty = true;
+
+        event.consume();
+    }
+
+    @FXML
+    private void endDragPoint(MouseEvent event) {
+        if (draggedPoint == null)
+            return;
+
+        ObservableWaypoint point = draggedPoint;
+        Waypoint history = draggedHistory;
+
+        dragTimer.stop();
+        draggedPoint = null;
+        draggedHistory = null;
+
+        if (point.getX() != history.x || point.getY() != history.y) {
+            if (validateWaypoints(backend.getWaypointsList())) {
+                refineTrajectories(point, history);
+            } else {
+                restorePoint(point, history);
+            }
+        }
+
+        event.consume();
+    }
+
+    /**
+     * Regenerates a preview of the trajectories while dragging, once per frame at most.
+     * If a preview takes longer than the frame budget, the following frames are skipped
+     * so the UI stays responsive on long paths.
+     *
+     * @param now the timestamp of the current frame, in nanoseconds
+     */
+    private void previewDrag(long now) {
+        if (!dragDirty || now < nextPreviewTime)
+            return;
+
+        long start = System.nanoTime();
+
+        dragDirty = false;
+
+        // Invalid positions keep showing the last valid preview, without paying for a generation
+        if (waypointsList.size() > 1 && WaypointValidator.findFirst(backend.getWaypointsList()) == null) {
+            try {
+                backend.updatePreviewTrajectories();
+            } catch (Pathfinder.GenerationException e) {
+                // Keep showing the last valid preview; the final position is validated when the drag ends
+            }
+        }
+
+        repopulatePosChart();
+
+        long elapsed = System.nanoTime() - start;
+        nextPreviewTime = elapsed > PREVIEW_FRAME_BUDGET ? now + elapsed : 0;
+    }
+
+    /**
+     * Generates full quality trajectories in the background and swaps them in when done.
+     * If the edited waypoint makes the trajectory invalid, it is moved back to its previous position.
+     *
+     * @param point   the edited waypoint
+     * @param history the waypoint's position before editing
+     */
+    private void refineTrajectories(ObservableWaypoint point, Waypoint history) {
+        updateBackend();
+
+        Pathplanner snapshot = new Pathplanner(backend);
+        int request = ++refineRequest;
+
+        // The previous refinement is out of date; stop it so this one doesn't wait behind it
+        cancelRefinement();
+        refineSnapshot = snapshot;
+
+        refineExecutor.submit(() -> {
+            try {
+                if (snapshot.getWaypointsSize() > 1)
+                    snapshot.updateTrajectories();
+
+                Platform.runLater(() -> {
+                    // A newer edit already replaced this one
+                    if (request != refineRequest)
+                        return;
+
+                    backend.copyTrajectories(snapshot);
+                    currentTrajValid = true;
+
+                    repopulatePosChart();
+                    repopulateVelChart();
+                });
+            } catch (Pathfinder.GenerationException e) {
+                Platform.runLater(() -> {
+                    if (request != refineRequest)
+                        return;
+
+                    showInvalidTrajectoryAlert(e);
+
+                    restorePoint(point, history);
+                });
+            }
+        });
+    }
+
+    /**
+     * Moves a waypoint back to its previous position and regenerates the trajectories once.
+     * Setting each coordinate on its own would regenerate through the half moved position in between.
+     *
+     * @param point   the waypoint to move back
+     * @param history the waypoint's previous position
+     */
+    private void restorePoint(ObservableWaypoint point, Waypoint history) {
+        updatingFrontend = true;
+
+        point.setX(history.x);
+        point.setY(history.y);
+
+        updatingFrontend = false;
+
+        currentTrajValid = generateTrajectories();
+    }
+
     @FXML
     private void showClearPointsDialog() {
         Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
@@ -681,29 +1073,65 @@ public class MPGenController {
     @FXML
     private void updateBackend() {
         backend.setTimeStep(Double.parseDouble(txtTimeStep.getText().trim()));
-        backend.setVelocity(Double.parseDouble(txtVelocity.getText().trim()));
-        backend.setAcceleration(Double.parseDouble(txtAcceleration.getText().trim()));
-        backend.setJerk(Double.parseDouble(txtJerk.getText().trim()));
-        backend.setWheelBaseW(Double.parseDouble(txtWheelBaseW.getText().trim()));
-        backend.setWheelBaseD(Double.parseDouble(txtWheelBaseD.getText().trim()));
+
+        // Only push distance fields that were edited, so the stored values never pick up display rounding
+        if (isFieldEdited(txtVelocity, backend.getVelocity()))
+            backend.setVelocity(Double.parseDouble(txtVelocity.getText().trim()));
+        if (isFieldEdited(txtAcceleration, backend.getAcceleration()))
+            backend.setAcceleration(Double.parseDouble(txtAcceleration.getText().trim()));
+        if (isFieldEdited(txtJerk, backend.getJerk()))
+            backend.setJerk(Double.parseDouble(txtJerk.getText().trim()));
+        if (isFieldEdited(txtWheelBaseW, backend.getWheelBaseW()))
+            backend.setWheelBaseW(Double.parseDouble(txtWheelBaseW.getText().trim()));
+        if (isFieldEdited(txtWheelBaseD, backend.getWheelBaseD()))
+            backend.setWheelBaseD(Double.parseDouble(txtWheelBaseD.getText().trim()));
+        if (isFieldEdited(txtRobotWidth, backend.getRobotWidth()))
+            backend.setRobotWidth(Double.parseDouble(txtRobotWidth.getText().trim()));
+        if (isFieldEdited(txtRobotDepth, backend.getRobotDepth()))
+            backend.setRobotDepth(Double.parseDouble(txtRobotDepth.getText().trim()));
+    }
+
+    /**
+     * Checks whether or not a field no longer displays the given backend value.
+     *
+     * @param field the field to check
+     * @param value the backend value, in display units
+     * @return whether or not the field has been edited
+     */
+    private boolean isFieldEdited(TextField field, double value) {
+        return Double.parseDouble(field.getText().trim()) != Mathf.round(value, 4);
     }
 
     /**
      * Updates all fields and views in the UI.
+     * This does not regenerate the trajectories.
      */
     private void updateFrontend() {
-        txtTimeStep.setText("" + backend.getTimeStep());
-        txtVelocity.setText("" + backend.getVelocity());
-        txtAcceleration.setText("" + backend.getAcceleration());
-        txtJerk.setText("" + backend.getJerk());
-        txtWheelBaseW.setText("" + backend.getWheelBaseW());
-        txtWheelBaseD.setText("" + backend.getWheelBaseD());
+        updatingFrontend = true;
+
+        updateFields();
 
         choDriveBase.setValue(choDriveBase.getItems().get(backend.getDriveBase().ordinal()));
         choFitMethod.setValue(choFitMethod.getItems().get(backend.getFitMethod().ordinal()));
         choUnits.setValue(choUnits.getItems().get(backend.getUnits().ordinal()));
 
         refreshWaypointTable();
+
+        updatingFrontend = false;
+    }
+
+    /**
+     * Updates all configuration text fields in the UI.
+     */
+    private void updateFields() {
+        txtTimeStep.setText("" + backend.getTimeStep());
+        txtVelocity.setText("" + Mathf.round(backend.getVelocity(), 4));
+        txtAcceleration.setText("" + Mathf.round(backend.getAcceleration(), 4));
+        txtJerk.setText("" + Mathf.round(backend.getJerk(), 4));
+        txtWheelBaseW.setText("" + Mathf.round(backend.getWheelBaseW(), 4));
+        txtWheelBaseD.setText("" + Mathf.round(backend.getWheelBaseD(), 4));
+        txtRobotWidth.setText("" + Mathf.round(backend.getRobotWidth(), 4));
+        txtRobotDepth.setText("" + Mathf.round(backend.getRobotDepth(), 4));
     }
 
     @FXML
@@ -725,26 +1153,82 @@ public class MPGenController {
             try {
                 backend.updateTrajectories();
             } catch (Pathfinder.GenerationException e) {
-                Toolkit.getDefaultToolkit().beep();
-
-                Alert alert = new Alert(Alert.AlertType.WARNING);
-
-                alert.setTitle("Invalid Trajectory");
-                alert.setHeaderText("Invalid trajectory point!");
-                alert.setContentText("The trajectory point is invalid because one of the waypoints is invalid! " +
-                        "Please check the waypoints and try again.");
-                alert.showAndWait();
+                showInvalidTrajectoryAlert(e);
 
                 return false;
             }
         }
 
+        // Any pending background generation is now out of date
+        refineRequest++;
+        cancelRefinement();
+
         repopulatePosChart();
         repopulateVelChart();
 
         return true;
     }
 
+    private boolean validateWaypointAdded(Waypoint w) {
+        List<Waypoint> candidate = new ArrayList<>(backend.getWaypointsList());
+
+        candidate.add(w);
+
+        return validateWaypoints(candidate);
+    }
+
+    /**
+     * Checks waypoints with a cheap geometric pass, so that invalid edits are rejected without generating.
+     * Shows which waypoint is at fault if they are invalid.
+     *
+     * @param points the waypoints to check, in meters
+     * @return whether or not the waypoints are valid
+     */
+    private boolean validateWaypoints(List<Waypoint> points) {
+        WaypointValidator.Problem problem = WaypointValidator.findFirst(points);
+
+        if (problem == null)
+            return true;
+
+        Toolkit.getDefaultToolkit().beep();
+
+        Alert alert = new Alert(Alert.AlertType.WARNING);
+
+        alert.setTitle("Invalid Trajectory");
+        alert.setHeaderText("Invalid waypoint!");
+        alert.setContentText(problem.getMessage() + ". Please check the waypoints and try again.");
+        alert.showAndWait();
+
+        return false;
+    }
+
+    private void cancelRefinement() {
+        if (refineSnapshot != null) {
+            refineSnapshot.cancelGeneration();
+            refineSnapshot = null;
+        }
+    }
+
+    private void showInvalidTrajectoryAlert(Pathfinder.GenerationException e) {
+        Toolkit.getDefaultToolkit().beep();
+
+        Alert alert = new Alert(Alert.AlertType.WARNING);
+
+        alert.setTitle("Invalid Trajectory");
+
+        if (e instanceof GenerationAbortedException) {
+            alert.setHeaderText("Trajectory is too expensive to generate!");
+            alert.setContentText(e.getMessage() + ". " +
+                    "Please check for waypoints that are very close together or have conflicting angles.");
+        } else {
+            alert.setHeaderText("Invalid trajectory point!");
+            alert.setContentText("The trajectory point is invalid because one of the waypoints is invalid! " +
+                    "Please check the waypoints and try again.");
+        }
+
+        alert.showAndWait();
+    }
+
     private void updateDriveBase(ObservableValue<String> observable, Object oldValue, Object newValue) {
         String choice = ((String) newValue).toUpperCase();
         Pathplanner.DriveBase db = Pathplanner.DriveBase.valueOf(choice);
@@ -754,7 +1238,8 @@ public class MPGenController {
         txtWheelBaseD.setDisable(db == Pathplanner.DriveBase.TANK);
         lblWheelBaseD.setDisable(db == Pathplanner.DriveBase.TANK);
 
-        generateTrajectories();
+        if (!updatingFrontend)
+            generateTrajectories();
     }
 
     private void updateFitMethod(ObservableValue<String> observable, Object oldValue, Object newValue) {
@@ -763,7 +1248,8 @@ public class MPGenController {
 
         backend.setFitMethod(fm);
 
-        generateTrajectories();
+        if (!updatingFrontend)
+            generateTrajectories();
     }
 
     private void updateUnits(ObservableValue<String> observable, Object oldValue, Object newValue) {
@@ -772,56 +1258,49 @@ public class MPGenController {
             u = Pathplanner.Units.valueOf(choice),
             oldUnits = backend.getUnits();
 
+        // Values are stored in meters, so only the views need to be updated
         backend.setUnits(u);
+        displayUnits.set(u);
+        updateChartAxes();
 
-        if (u != oldUnits) {
-            updateFrontend();
-            refreshWaypointTable();
+        if (u != oldUnits && !updatingFrontend) {
+            updateFields();
             repopulatePosChart();
             repopulateVelChart();
         }
-
-        updateChartAxes();
     }
 
     private void repopulatePosChart() {
+        Metrics.Span span = Metrics.begin(Metrics.Phase.REPOPULATE_CHART);
         ObservableList<XYChart.Series<Double, Double>> posData = chtPosition.getData();
-        String srcDisplayStr = properties.getProperty("ui.sourceDisplay", "2");
-        int sourceDisplay = Integer.parseInt(srcDisplayStr);
-
-        String colorSourceTraj = properties.getProperty("ui.colorSourceTrajectory", "orange");
-        String colorTankTraj = properties.getProperty("ui.colorTankTrajectory", "magenta");
+        double scale = backend.getUnits().getScale();
 
         // Clear data from position graph
         posData.clear();
-
-        // Get theme stuff
-        if (colorSourceTraj.indexOf("0x") == 0)
-            colorSourceTraj = Mathf.toWeb(colorSourceTraj);
-
-        if (colorTankTraj.indexOf("0x") == 0)
-            colorTankTraj = Mathf.toWeb(colorTankTraj);
+        waypointSeries = null;
 
         if (!waypointsList.isEmpty()) {
-            switch (sourceDisplay) {
+            switch (settings.getSourceDisplay()) {
                 case 3: // Robot base
                     XYChart.Series<Double, Double> robotBoxSeries =
-                            SeriesFactory.buildWaypointsSeries(waypointsList.toArray(new Waypoint[1]));
+                            SeriesFactory.buildWaypointsSeries(backend.getWaypointsList().toArray(new Waypoint[1]), scale);
 
                     double xMin = axisPosX.getDisplayPosition(axisPosX.getLowerBound());
                     double xMax = axisPosX.getDisplayPosition(axisPosX.getUpperBound());
                     double yMin = axisPosY.getDisplayPosition(axisPosY.getLowerBound());
                     double yMax = axisPosY.getDisplayPosition(axisPosY.getUpperBound());
                     double widthScale = (xMax - xMin) / axisPosX.getUpperBound();
-                    double heightScale = (yMax - yMin) / axisPosY.getUpperBound();
-                    double width = widthScale * 1.41;
-                    double height = heightScale * 1.41;
+                    double heightScale = Math.abs(yMax - yMin) / axisPosY.getUpperBound();
+
+                    // Unrotated, the robot faces along the x axis
+                    double width = widthScale * backend.getRobotDepth();
+                    double height = heightScale * backend.getRobotWidth();
 
                     posData.add(robotBoxSeries);
                     robotBoxSeries.getNode().setStyle("-fx-stroke: transparent");
 
                     for (int i = 0; i < waypointsList.size(); i++) {
-                        Waypoint curPoint = waypointsList.get(i);
+                        ObservableWaypoint curPoint = waypointsList.get(i);
                         XYChart.Data<Double, Double> data = robotBoxSeries.getData().get(i);
                         Rectangle robotBox = new Rectangle();
 
@@ -830,39 +1309,39 @@ public class MPGenController {
                         robotBox.setArcWidth(0.5 * widthScale);
                         robotBox.setArcHeight(0.5 * heightScale);
                         robotBox.setStyle("-fx-color: white");
-                        robotBox.setRotate(Pathfinder.r2d(curPoint.angle));
+                        // Screen rotation is clockwise, since the y axis points down
+                        robotBox.setRotate(-Pathfinder.r2d(curPoint.getAngle()));
                         data.setNode(robotBox);
                     }
                 case 2: // Source Trajectory
                     if (waypointsList.size() > 1) {
                         XYChart.Series<Double, Double> sourceSeries =
-                                SeriesFactory.buildPositionSeries(backend.getSourceTrajectory());
+                                SeriesFactory.buildPositionSeries(backend.getSourceTrajectory(), scale);
 
                         posData.add(sourceSeries);
-                        sourceSeries.getNode().setStyle("-fx-stroke: " + colorSourceTraj);
+                        sourceSeries.getNode().setStyle(sourceStrokeStyle);
 
                         for (XYChart.Data<Double, Double> data : sourceSeries.getData())
                             data.getNode().setVisible(false);
                     }
                 case 1: // Waypoints
-                    XYChart.Series<Double, Double> waypointSeries =
-                            SeriesFactory.buildWaypointsSeries(waypointsList.toArray(new Waypoint[1]));
-                    int dataSize = posData.size();
+                    waypointSeries =
+                            SeriesFactory.buildWaypointsSeries(backend.getWaypointsList().toArray(new Waypoint[1]), scale);
 
                     posData.add(0, waypointSeries);
                     waypointSeries.getNode().setStyle("-fx-stroke: transparent");
 
-                    highlightPoints(waypointSeries, tblWaypoints.getSelectionModel().getSelectedIndices());
+                    styleWaypoints(tblWaypoints.getSelectionModel().getSelectedIndices());
                 default: // Drive train trajectories
                     if (waypointsList.size() > 1) {
                         XYChart.Series<Double, Double>
-                                flSeries = SeriesFactory.buildPositionSeries(backend.getFrontLeftTrajectory()),
-                                frSeries = SeriesFactory.buildPositionSeries(backend.getFrontRightTrajectory());
+                                flSeries = SeriesFactory.buildPositionSeries(backend.getFrontLeftTrajectory(), scale),
+                                frSeries = SeriesFactory.buildPositionSeries(backend.getFrontRightTrajectory(), scale);
 
                         if (backend.getDriveBase() == Pathplanner.DriveBase.SWERVE) {
                             XYChart.Series<Double, Double>
-                                    blSeries = SeriesFactory.buildPositionSeries(backend.getBackLeftTrajectory()),
-                                    brSeries = SeriesFactory.buildPositionSeries(backend.getBackRightTrajectory());
+                                    blSeries = SeriesFactory.buildPositionSeries(backend.getBackLeftTrajectory(), scale),
+                                    brSeries = SeriesFactory.buildPositionSeries(backend.getBackRightTrajectory(), scale);
 
                             posData.add(0, blSeries);
                             posData.add(0, brSeries);
@@ -883,8 +1362,8 @@ public class MPGenController {
                             posData.add(0, flSeries);
                             posData.add(0, frSeries);
 
-                            flSeries.getNode().setStyle("-fx-stroke: " + colorTankTraj);
-                            frSeries.getNode().setStyle("-fx-stroke: " + colorTankTraj);
+                            flSeries.getNode().setStyle(tankStrokeStyle);
+                            frSeries.getNode().setStyle(tankStrokeStyle);
                         }
 
                         for (XYChart.Data<Double, Double> data : flSeries.getData())
@@ -895,23 +1374,89 @@ public class MPGenController {
                     }
             }
         }
+
+        if (isComparisonShown()) {
+            XYChart.Series<Double, Double> actualSeries =
+                    SeriesFactory.buildOverlayPositionSeries(comparison.getOverlay(), scale);
+
+            posData.add(actualSeries);
+            actualSeries.getNode().setStyle("-fx-stroke: orange");
+
+            for (XYChart.Data<Double, Double> data : actualSeries.getData())
+                data.getNode().setVisible(false);
+        }
+
+        KeepOutZones zones = backend.getKeepOutZones();
+
+        if (zones != null) {
+            for (int i = 0; i < zones.size(); i++) {
+                XYChart.Series<Double, Double> zoneSeries =
+                        SeriesFactory.buildPolygonSeries(zones.getXs(i), zones.getYs(i), scale);
+
+                posData.add(zoneSeries);
+                zoneSeries.getNode().setStyle("-fx-stroke: red; -fx-stroke-dash-array: 6 4");
+
+                for (XYChart.Data<Double, Double> data : zoneSeries.getData())
+                    data.getNode().setVisible(false);
+            }
+        }
+
+        // Only the splines changed since the last check are swept again, so this is cheap while dragging
+        keepOutCollision = backend.checkKeepOut();
+
+        if (keepOutCollision != null) {
+            XYChart.Series<Double, Double> collisionSeries = new XYChart.Series<>();
+
+            collisionSeries.getData().add(new XYChart.Data<>(keepOutCollision.getX() * scale, keepOutCollision.getY() * scale));
+            posData.add(collisionSeries);
+            collisionSeries.getData().get(0).getNode().setStyle("-fx-background-color: red, white");
+        }
+
+        span.end(waypointsList.size(), 0, 0);
+        updateStatusBar();
+    }
+
+    /**
+     * Loads the keep-out zones of the field set in the settings, if they changed.
+     */
+    private void updateKeepOutZones() {
+        String file = settings.getKeepOutFile();
+
+        if (file.equals(keepOutFile))
+            return;
+
+        keepOutFile = file;
+        backend.setKeepOutZones(null);
+
+        if (!file.isEmpty()) {
+            try {
+                backend.setKeepOutZones(KeepOutZones.read(new File(file)));
+            } catch (Exception e) {
+                Alert alert = AlertFactory.createExceptionAlert(e);
+
+                alert.showAndWait();
+            }
+        }
     }
 
     private void repopulateVelChart() {
+        Metrics.Span span = Metrics.begin(Metrics.Phase.REPOPULATE_CHART);
+        double scale = backend.getUnits().getScale();
+
         // Clear data from velocity graph
         chtVelocity.getData().clear();
 
         if (waypointsList.size() > 1) {
             XYChart.Series<Double, Double>
-                    flSeries = SeriesFactory.buildVelocitySeries(backend.getFrontLeftTrajectory()),
-                    frSeries = SeriesFactory.buildVelocitySeries(backend.getFrontRightTrajectory());
+                    flSeries = SeriesFactory.buildVelocitySeries(backend.getFrontLeftTrajectory(), scale),
+                    frSeries = SeriesFactory.buildVelocitySeries(backend.getFrontRightTrajectory(), scale);
 
             chtVelocity.getData().addAll(flSeries, frSeries);
 
             if (backend.getDriveBase() == Pathplanner.DriveBase.SWERVE) {
                 XYChart.Series<Double, Double>
-                        blSeries = SeriesFactory.buildVelocitySeries(backend.getBackLeftTrajectory()),
-                        brSeries = SeriesFactory.buildVelocitySeries(backend.getBackRightTrajectory());
+                        blSeries = SeriesFactory.buildVelocitySeries(backend.getBackLeftTrajectory(), scale),
+                        brSeries = SeriesFactory.buildVelocitySeries(backend.getBackRightTrajectory(), scale);
 
                 chtVelocity.getData().addAll(blSeries, brSeries);
 
@@ -923,67 +1468,108 @@ public class MPGenController {
                 flSeries.setName("Left Trajectory");
                 frSeries.setName("Right Trajectory");
             }
+
+            if (isComparisonShown()) {
+                XYChart.Series<Double, Double> actualSeries =
+                        SeriesFactory.buildOverlayVelocitySeries(comparison.getOverlay(), scale);
+
+                actualSeries.setName("Logged Velocity");
+                chtVelocity.getData().add(actualSeries);
+            }
+        }
+
+        span.end(waypointsList.size(), 0, 0);
+        updateStatusBar();
+    }
+
+    /**
+     * Checks whether the latest log comparison still matches the trajectory, and should be shown.
+     */
+    private boolean isComparisonShown() {
+        return comparison != null && waypointsList.size() > 1 && comparedTrajectory == backend.getSourceTrajectory();
+    }
+
+    /**
+     * Shows how long the latest run of each phase took, and the size of the current trajectory.
+     */
+    private void updateStatusBar() {
+        StringBuilder status = new StringBuilder();
+
+        for (Metrics.Phase phase : Metrics.Phase.values()) {
+            Metrics.Stats stats = Metrics.get(phase);
+
+            if (stats.getCount() > 0)
+                status.append(String.format("%s %.2f ms    ", phase.getLabel(), stats.getLastNanos() / 1e6));
         }
+
+        if (waypointsList.size() > 1 && backend.getSourceTrajectory() != null)
+            status.append(backend.getSourceTrajectory().length()).append(" segments");
+
+        if (keepOutCollision != null && waypointsList.size() > 1)
+            status.append("    Robot ").append(keepOutCollision.describe(backend.getUnits().getScale()));
+
+        lblStatus.setText(status.toString());
     }
 
     /**
-     * Highlights position waypoints given a list of selected indices
+     * Resolves the waypoint styles from the current settings.
+     */
+    private void updateStyles() {
+        waypointStyle = "-fx-background-color: " + settings.getSourceTrajectoryWeb() + ", white";
+        waypointHighlightStyle = "-fx-background-color: " + settings.getWaypointHighlightWeb() + ", white";
+        sourceStrokeStyle = "-fx-stroke: " + settings.getSourceTrajectoryWeb();
+        tankStrokeStyle = "-fx-stroke: " + settings.getTankTrajectoryWeb();
+    }
+
+    /**
+     * Highlights position waypoints given a list of selected indices.
+     * Only the points whose highlight changed since the last call are restyled.
      *
      * @param selectedIndicies the list of selected indices
      */
     private void highlightPoints(List<Integer> selectedIndicies) {
-        int dataSize = chtPosition.getData().size();
-        XYChart.Series<Double, Double> points = chtPosition.getData().get(dataSize - 1);
+        if (waypointSeries == null)
+            return;
+
+        List<XYChart.Data<Double, Double>> pointsList = waypointSeries.getData();
+        BitSet selected = toBitSet(selectedIndicies);
+        BitSet changed = (BitSet) selected.clone();
+
+        changed.xor(highlightedPoints);
 
-        highlightPoints(points, selectedIndicies);
+        for (int i = changed.nextSetBit(0); i >= 0 && i < pointsList.size(); i = changed.nextSetBit(i + 1))
+            pointsList.get(i).getNode().setStyle(selected.get(i) ? waypointHighlightStyle : waypointStyle);
+
+        highlightedPoints = selected;
     }
 
     /**
-     * Highlights points given a list of selected indices
+     * Styles every point of a newly built waypoints series.
      *
-     * @param points the series of points to highlight
      * @param selectedIndicies the list of selected indices
      */
-    private void highlightPoints(
-        XYChart.Series<Double, Double> points,
-        List<Integer> selectedIndicies) {
-
-        List<XYChart.Data<Double, Double>> pointsList = points.getData();
-
-        String
-            colorSourceTraj = properties.getProperty(
-                "ui.colorSourceTrajectory",
-                "orange"),
-            colorHighlight = properties.getProperty(
-                "ui.colorWaypointHighlight",
-                "green");
-
-        if (colorSourceTraj.indexOf("0x") == 0)
-            colorSourceTraj = Mathf.toWeb(colorSourceTraj);
-
-        if (colorHighlight.indexOf("0x") == 0)
-            colorHighlight = Mathf.toWeb(colorHighlight);
-
-        for (int i = 0; i < pointsList.size(); i++) {
-            boolean selected = false;
-            XYChart.Data<Double, Double> data = pointsList.get(i);
-            // Figure out the current point is one of the selected elements in the table
-            for (int ind : selectedIndicies) {
-                if (i == ind) {
-                    selected = true;
-                    break;
-                }
-            }
+    private void styleWaypoints(List<Integer> selectedIndicies) {
+        List<XYChart.Data<Double, Double>> pointsList = waypointSeries.getData();
+        BitSet selected = toBitSet(selectedIndicies);
 
-            // Highlight or don't highlight the node
-            data.getNode().setStyle(String.format("-fx-background-color: %s, white",
-                    selected ? colorHighlight : colorSourceTraj
-            ));
-        }
+        for (int i = 0; i < pointsList.size(); i++)
+            pointsList.get(i).getNode().setStyle(selected.get(i) ? waypointHighlightStyle : waypointStyle);
+
+        highlightedPoints = selected;
+    }
+
+    private static BitSet toBitSet(List<Integer> indices) {
+        BitSet bits = new BitSet();
+
+        for (int i : indices)
+            if (i >= 0)
+                bits.set(i);
+
+        return bits;
     }
 
     private void updateOverlayImg() {
-        String dir = properties.getProperty("ui.overlayDir", "");
+        String dir = settings.getOverlayDir();
 
         if (!dir.isEmpty()) {
             try {
@@ -1033,13 +1619,25 @@ public class MPGenController {
     }
 
     /**
-     * Refreshes the waypoints table by clearing the waypoint list and repopulating it.
+     * Replaces the waypoints table with the backend's waypoints in a single change.
      */
     private void refreshWaypointTable() {
-        // Bad way to update the waypoint list...
-        // However, TableView.refresh() is apparently borked?
-        List<Waypoint> tmp = new ArrayList<>(backend.getWaypointsList());
-        waypointsList.clear();
-        waypointsList.addAll(tmp);
+        List<ObservableWaypoint> points = new ArrayList<>();
+
+        for (Waypoint w : backend.getWaypointsList())
+            points.add(new ObservableWaypoint(w));
+
+        waypointsList.setAll(points);
+    }
+
+    /**
+     * Replaces the backend's waypoints with the waypoints in the table.
+     */
+    private void syncBackendWaypoints() {
+        List<Waypoint> points = backend.getWaypointsList();
+
+        points.clear();
+        for (ObservableWaypoint w : waypointsList)
+            points.add(w.getWaypoint());
     }
 }
@@ -0,0 +1,79 @@
+package com.jtulayan.ui.javafx;
+
+import jaci.pathfinder.Waypoint;
+import javafx.beans.Observable;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.util.Callback;
+
+/**
+ * Observable view of a backend waypoint.
+ * Each field is exposed as a property, and changes are written through to the wrapped waypoint.
+ * Coordinates are in meters and the angle is in radians, same as the backend.
+ */
+public class ObservableWaypoint {
+    /**
+     * Extractor for observable lists, so that editing any field fires a single update change.
+     */
+    public static final Callback<ObservableWaypoint, Observable[]> EXTRACTOR =
+            (ObservableWaypoint w) -> new Observable[] { w.x, w.y, w.angle };
+
+    private final Waypoint waypoint;
+
+    private final DoubleProperty
+        x,
+        y,
+        angle;
+
+    public ObservableWaypoint(Waypoint waypoint) {
+        this.waypoint = waypoint;
+
+        x = new SimpleDoubleProperty(this, "x", waypoint.x);
+        y = new SimpleDoubleProperty(this, "y", waypoint.y);
+        angle = new SimpleDoubleProperty(this, "angle", waypoint.angle);
+
+        x.addListener((observable, oldValue, newValue) -> waypoint.x = newValue.doubleValue());
+        y.addListener((observable, oldValue, newValue) -> waypoint.y = newValue.doubleValue());
+        angle.addListener((observable, oldValue, newValue) -> waypoint.angle = newValue.doubleValue());
+    }
+
+    public Waypoint getWaypoint() {
+        return waypoint;
+    }
+
+    public double getX() {
+        return x.get();
+    }
+
+    public void setX(double x) {
+        this.x.set(x);
+    }
+
+    public DoubleProperty xProperty() {
+        return x;
+    }
+
+    public double getY() {
+        return y.get();
+    }
+
+    public void setY(double y) {
+        this.y.set(y);
+    }
+
+    public DoubleProperty yProperty() {
+        return y;
+    }
+
+    public double getAngle() {
+        return angle.get();
+    }
+
+    public void setAngle(double angle) {
+        this.angle.set(angle);
+    }
+
+    public DoubleProperty angleProperty() {
+        return angle;
+    }
+}
@@ -1,7 +1,11 @@
 package com.jtulayan.ui.javafx;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class PropWrapper {
     private static Properties propInstance;
@@ -11,6 +15,14 @@ public class PropWrapper {
     private static final String DIR_NAME = "motion-profile-generator";
     private static final File APPDATA_DIR = new File(System.getProperty("user.home") + File.separator + "." + DIR_NAME);
 
+    // Single writer thread, so asynchronous stores are written in order
+    private static final ExecutorService STORE_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Properties Writer");
+
+        t.setDaemon(true);
+        return t;
+    });
+
     public static Properties getProperties() {
         if (propInstance == null) {
             try {
@@ -27,7 +39,9 @@ public class PropWrapper {
                     propInstance.put("ui.addWaypointOnClick", "false");
                 }
 
-                propInstance.load(new FileInputStream(propFile));
+                try (FileInputStream in = new FileInputStream(propFile)) {
+                    propInstance.load(in);
+                }
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -37,6 +51,49 @@ public class PropWrapper {
     }
 
     public static void storeProperties() throws IOException {
-        propInstance.store(new FileOutputStream(propFile), "Properties");
+        store(copyProperties());
+    }
+
+    /**
+     * Stores the properties on a background thread.
+     * The properties are copied first, so they can keep being modified while the file is written.
+     */
+    public static void storePropertiesAsync() {
+        Properties snapshot = copyProperties();
+
+        STORE_EXECUTOR.submit(() -> {
+            try {
+                store(snapshot);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    private static synchronized Properties copyProperties() {
+        Properties snapshot = new Properties();
+
+        snapshot.putAll(propInstance);
+        return snapshot;
+    }
+
+    /**
+     * Writes the properties to a temporary file, then moves it over the properties file,
+     * so a crash mid-write never leaves a truncated properties file behind.
+     */
+    private static synchronized void store(Properties properties) throws IOException {
+        File tmpFile = new File(APPDATA_DIR, PROP_NAME + ".properties.tmp");
+
+        try (FileOutputStream out = new FileOutputStream(tmpFile)) {
+            properties.store(out, "Properties");
+        }
+
+        try {
+            Files.move(tmpFile.toPath(), propFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Not every file system supports atomic moves
+            Files.move(tmpFile.toPath(), propFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
     }
 }
@@ -0,0 +1,202 @@
+package com.jtulayan.ui.javafx;
+
+import javafx.scene.paint.Color;
+
+import java.io.File;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Typed settings store built on top of {@link PropWrapper}.
+ * Values are parsed once whenever the settings change, so rendering code never parses strings.
+ */
+public class Settings {
+    public static final int
+        SOURCE_DISPLAY_NONE = 0,
+        SOURCE_DISPLAY_WAYPOINTS = 1,
+        SOURCE_DISPLAY_SOURCE = 2,
+        SOURCE_DISPLAY_ROBOT_BOUNDS = 3;
+
+    public static final int DEFAULT_DEPLOY_PORT = 22;
+
+    private static Settings instance;
+
+    private final Properties properties;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    private String overlayDir;
+    private String keepOutFile;
+    private int sourceDisplay;
+    private boolean addWaypointOnClick;
+
+    private Color
+        tankTrajectoryColor,
+        sourceTrajectoryColor,
+        waypointHighlightColor;
+
+    // CSS versions of the colors
+    private String
+        tankTrajectoryWeb,
+        sourceTrajectoryWeb,
+        waypointHighlightWeb;
+
+    private File workingDir;
+
+    private String teamNumber;
+    private String deployAddress;
+    private int deployPort;
+    private int deployTrajFormat;
+
+    private Settings() {
+        properties = PropWrapper.getProperties();
+        parse();
+    }
+
+    public static Settings getInstance() {
+        if (instance == null)
+            instance = new Settings();
+
+        return instance;
+    }
+
+    /**
+     * Applies changed settings, notifies all listeners, and stores the settings in the background.
+     *
+     * @param changes the settings to change; settings not included are kept
+     */
+    public void apply(Properties changes) {
+        properties.putAll(changes);
+        parse();
+
+        for (Runnable listener : listeners)
+            listener.run();
+
+        PropWrapper.storePropertiesAsync();
+    }
+
+    /**
+     * Adds a listener that is run whenever the settings are applied.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    private void parse() {
+        overlayDir = properties.getProperty("ui.overlayDir", "");
+        keepOutFile = properties.getProperty("ui.keepOutFile", "");
+        sourceDisplay = parseInt("ui.sourceDisplay", SOURCE_DISPLAY_SOURCE);
+        addWaypointOnClick = Boolean.parseBoolean(properties.getProperty("ui.addWaypointOnClick", "false"));
+
+        tankTrajectoryColor = parseColor("ui.colorTankTrajectory", Color.MAGENTA);
+        sourceTrajectoryColor = parseColor("ui.colorSourceTrajectory", Color.ORANGE);
+        waypointHighlightColor = parseColor("ui.colorWaypointHighlight", Color.GREEN);
+
+        tankTrajectoryWeb = ColorUtil.toWeb(tankTrajectoryColor);
+        sourceTrajectoryWeb = ColorUtil.toWeb(sourceTrajectoryColor);
+        waypointHighlightWeb = ColorUtil.toWeb(waypointHighlightColor);
+
+        workingDir = new File(properties.getProperty("file.workingDir", System.getProperty("user.dir")));
+
+        teamNumber = properties.getProperty("deploy.teamNumber", "").trim();
+        deployAddress = properties.getProperty("deploy.address", "").trim();
+        deployPort = parseInt("deploy.port", DEFAULT_DEPLOY_PORT);
+        deployTrajFormat = parseInt("deploy.trajFormat", 0);
+    }
+
+    private int parseInt(String key, int defaultValue) {
+        try {
+            return Integer.parseInt(properties.getProperty(key, "" + defaultValue).trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private Color parseColor(String key, Color defaultValue) {
+        try {
+            return Color.web(properties.getProperty(key, "").trim());
+        } catch (IllegalArgumentException e) {
+            return defaultValue;
+        }
+    }
+
+    public String getOverlayDir() {
+        return overlayDir;
+    }
+
+    /**
+     * Gets the file with the keep-out zones of the field in the overlay.
+     *
+     * @return the path to the zones file, or an empty string if none is set
+     */
+    public String getKeepOutFile() {
+        return keepOutFile;
+    }
+
+    public int getSourceDisplay() {
+        return sourceDisplay;
+    }
+
+    public boolean getAddWaypointOnClick() {
+        return addWaypointOnClick;
+    }
+
+    public Color getTankTrajectoryColor() {
+        return tankTrajectoryColor;
+    }
+
+    public Color getSourceTrajectoryColor() {
+        return sourceTrajectoryColor;
+    }
+
+    public Color getWaypointHighlightColor() {
+        return waypointHighlightColor;
+    }
+
+    public String getTankTrajectoryWeb() {
+        return tankTrajectoryWeb;
+    }
+
+    public String getSourceTrajectoryWeb() {
+        return sourceTrajectoryWeb;
+    }
+
+    public String getWaypointHighlightWeb() {
+        return waypointHighlightWeb;
+    }
+
+    public File getWorkingDir() {
+        return workingDir;
+    }
+
+    /**
+     * Sets the working directory and stores it in the background.
+     * Listeners are not notified, since this isn't a user-facing setting.
+     *
+     * @param workingDir the new working directory
+     */
+    public void setWorkingDir(File workingDir) {
+        this.workingDir = workingDir;
+
+        properties.setProperty("file.workingDir", workingDir.getAbsolutePath());
+        PropWrapper.storePropertiesAsync();
+    }
+
+    public String getTeamNumber() {
+        return teamNumber;
+    }
+
+    public String getDeployAddress() {
+        return deployAddress;
+    }
+
+    public int getDeployPort() {
+        return deployPort;
+    }
+
+    public int getDeployTrajFormat() {
+        return deployTrajFormat;
+    }
+}
@@ -1,6 +1,6 @@
 package com.jtulayan.ui.javafx.dialog;
 
-import com.jtulayan.ui.javafx.PropWrapper;
+import com.jtulayan.ui.javafx.Settings;
 import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
@@ -10,7 +10,6 @@ import javafx.stage.FileChooser;
 
 import java.io.File;
 import java.util.Optional;
-import java.util.Properties;
 
 public class SettingsDialogController {
     @FXML
@@ -19,6 +18,7 @@ public class SettingsDialogController {
     @FXML
     private TextField
         txtOverlayDir,
+        txtKeepOutFile,
         txtTeamNumber,
         txtIP,
         txtPort;
@@ -37,41 +37,31 @@ public class SettingsDialogController {
         colSourceTraj,
         colWPHighlight;
 
-    private Properties properties;
+    private Settings settings;
 
     @FXML
     private void initialize() {
-        properties = PropWrapper.getProperties();
+        settings = Settings.getInstance();
 
-        txtOverlayDir.setText(properties.getProperty("ui.overlayDir", ""));
+        txtOverlayDir.setText(settings.getOverlayDir());
+        txtKeepOutFile.setText(settings.getKeepOutFile());
 
         choSourceDisplay.setItems(FXCollections.observableArrayList(
                 "None",
                 "Waypoints only",
                 "Waypoints + Source",
                 "Robot Bounds + Source"));
-        choSourceDisplay.getSelectionModel().select(
-                Integer.parseInt(properties.getProperty("ui.sourceDisplay", "2")
-        ));
-
-        chkAddWaypointOnClick.setSelected(
-                Boolean.parseBoolean(properties.getProperty("ui.addWaypointOnClick", "false")
-        ));
+        choSourceDisplay.getSelectionModel().select(settings.getSourceDisplay());
 
-        colTankTraj.setValue(Color.web(properties.getProperty(
-                "ui.colorTankTrajectory",
-                "magenta"
-        )));
+        chkAddWaypointOnClick.setSelected(settings.getAddWaypointOnClick());
 
-        colSourceTraj.setValue(Color.valueOf(properties.getProperty(
-                "ui.colorSourceTrajectory",
-                "orange"
-        )));
+        colTankTraj.setValue(settings.getTankTrajectoryColor());
+        colSourceTraj.setValue(settings.getSourceTrajectoryColor());
+        colWPHighlight.setValue(settings.getWaypointHighlightColor());
 
-        colWPHighlight.setValue(Color.valueOf(properties.getProperty(
-                "ui.colorWaypointHighlight",
-                "green"
-        )));
+        txtTeamNumber.setText(settings.getTeamNumber());
+        txtIP.setText(settings.getDeployAddress());
+        txtPort.setText(settings.getDeployPort() == Settings.DEFAULT_DEPLOY_PORT ? "" : "" + settings.getDeployPort());
 
 
         choTrajFormat.setItems(FXCollections.observableArrayList(
@@ -79,9 +69,7 @@ public class SettingsDialogController {
                 "Binary Trajectory File (*.traj)"
         ));
 
-        choTrajFormat.getSelectionModel().select(
-                Integer.parseInt(properties.getProperty("deploy.trajFormat", "0")
-        ));
+        choTrajFormat.getSelectionModel().select(settings.getDeployTrajFormat());
 
     }
 
@@ -107,10 +95,29 @@ public class SettingsDialogController {
         }
     }
 
+    @FXML
+    private void showChooseKeepOutDialog() {
+        FileChooser fileChooser = new FileChooser();
+
+        fileChooser.setInitialDirectory(new File(System.getProperty("user.dir")));
+        fileChooser.setTitle("Find Field Keep-Out Zones");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Keep-Out Zones", "*.csv", "*.txt"));
+
+        File result = fileChooser.showOpenDialog(root.getScene().getWindow());
+
+        if (result != null && result.exists() && !result.isDirectory()) {
+            txtKeepOutFile.setText(result.getAbsolutePath());
+        }
+    }
+
     public String getOverlayDir() {
         return txtOverlayDir.getText();
     }
 
+    public String getKeepOutFile() {
+        return txtKeepOutFile.getText();
+    }
+
     public int getSourceDisplay() {
         return choSourceDisplay.getSelectionModel().getSelectedIndex();
     }
@@ -131,6 +138,22 @@ public class SettingsDialogController {
         return chkAddWaypointOnClick.isSelected();
     }
 
+    public String getTeamNumber() {
+        return txtTeamNumber.getText().trim();
+    }
+
+    public String getDeployAddress() {
+        return txtIP.getText().trim();
+    }
+
+    public String getDeployPort() {
+        return txtPort.getText().trim();
+    }
+
+    public int getTrajFormat() {
+        return choTrajFormat.getSelectionModel().getSelectedIndex();
+    }
+
     @FXML
     private void confirmReset() {
         Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
@@ -142,11 +165,16 @@ public class SettingsDialogController {
         result.ifPresent((ButtonType b) -> {
             if (b == ButtonType.OK) {
                 txtOverlayDir.clear();
+                txtKeepOutFile.clear();
                 choSourceDisplay.getSelectionModel().select(2);
                 chkAddWaypointOnClick.setSelected(true);
                 colTankTraj.setValue(Color.MAGENTA);
                 colSourceTraj.setValue(Color.ORANGE);
                 colWPHighlight.setValue(Color.GREEN);
+                txtTeamNumber.clear();
+                txtIP.clear();
+                txtPort.clear();
+                choTrajFormat.getSelectionModel().select(0);
             }
         });
     }
@@ -69,11 +69,16 @@ public class DialogFactory {
                     Properties properties = new Properties();
 
                     properties.setProperty("ui.overlayDir", controller.getOverlayDir());
+                    properties.setProperty("ui.keepOutFile", controller.getKeepOutFile());
                     properties.setProperty("ui.sourceDisplay", "" + controller.getSourceDisplay());
                     properties.setProperty("ui.addWaypointOnClick", "" + controller.getAddWaypointOnClick());
                     properties.setProperty("ui.colorTankTrajectory", controller.getTankTrajColor().toString());
                     properties.setProperty("ui.colorSourceTrajectory", controller.getSourceTrajColor().toString());
                     properties.setProperty("ui.colorWaypointHighlight", controller.getWPHighlightColor().toString());
+                    properties.setProperty("deploy.teamNumber", controller.getTeamNumber());
+                    properties.setProperty("deploy.address", controller.getDeployAddress());
+                    properties.setProperty("deploy.port", controller.getDeployPort());
+                    properties.setProperty("deploy.trajFormat", "" + controller.getTrajFormat());
 
                     return properties;
                 }
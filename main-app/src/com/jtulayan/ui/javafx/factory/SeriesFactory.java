@@ -1,5 +1,7 @@
 package com.jtulayan.ui.javafx.factory;
 
+import com.jtulayan.util.Metrics;
+import com.jtulayan.util.TrackingComparison;
 import jaci.pathfinder.Trajectory;
 import jaci.pathfinder.Waypoint;
 import javafx.scene.chart.XYChart;
@@ -9,45 +11,117 @@ import java.awt.*;
 public class SeriesFactory {
     private SeriesFactory() { }
 
-    public static XYChart.Series<Double, Double> buildPositionSeries(Trajectory t) {
+    public static XYChart.Series<Double, Double> buildPositionSeries(Trajectory t, double scale) {
         XYChart.Series<Double, Double> series = new XYChart.Series<>();
+        Metrics.Span span = Metrics.begin(Metrics.Phase.BUILD_SERIES);
 
         for (int i = 0; i < t.segments.length; i++) {
             XYChart.Data<Double, Double> data = new XYChart.Data<>();
 
-            data.setXValue(t.get(i).x);
-            data.setYValue(t.get(i).y);
+            data.setXValue(t.get(i).x * scale);
+            data.setYValue(t.get(i).y * scale);
 
             series.getData().add(data);
         }
+
+        span.end(0, t.segments.length, 0);
         return series;
     }
 
-    public static XYChart.Series<Double, Double> buildVelocitySeries(Trajectory t) {
+    public static XYChart.Series<Double, Double> buildVelocitySeries(Trajectory t, double scale) {
         XYChart.Series<Double, Double> series = new XYChart.Series<>();
+        Metrics.Span span = Metrics.begin(Metrics.Phase.BUILD_SERIES);
 
         for (int i = 0; i < t.segments.length; i++) {
             XYChart.Data<Double, Double> data = new XYChart.Data<>();
 
             data.setXValue(t.get(i).dt * i);
-            data.setYValue(t.get(i).velocity);
+            data.setYValue(t.get(i).velocity * scale);
 
             series.getData().add(data);
         }
+
+        span.end(0, t.segments.length, 0);
         return series;
     }
 
-    public static XYChart.Series<Double, Double> buildWaypointsSeries(Waypoint[] waypoints) {
+    public static XYChart.Series<Double, Double> buildWaypointsSeries(Waypoint[] waypoints, double scale) {
         XYChart.Series<Double, Double> series = new XYChart.Series<>();
+        Metrics.Span span = Metrics.begin(Metrics.Phase.BUILD_SERIES);
 
         for (Waypoint w : waypoints) {
             XYChart.Data<Double, Double> data = new XYChart.Data<>();
 
-            data.setXValue(w.x);
-            data.setYValue(w.y);
+            data.setXValue(w.x * scale);
+            data.setYValue(w.y * scale);
 
             series.getData().add(data);
         }
+
+        span.end(waypoints.length, 0, 0);
+        return series;
+    }
+
+    public static XYChart.Series<Double, Double> buildOverlayPositionSeries(TrackingComparison.Overlay overlay, double scale) {
+        XYChart.Series<Double, Double> series = new XYChart.Series<>();
+        Metrics.Span span = Metrics.begin(Metrics.Phase.BUILD_SERIES);
+
+        for (int i = 0; i < overlay.size(); i++) {
+            XYChart.Data<Double, Double> data = new XYChart.Data<>();
+
+            data.setXValue(overlay.getX(i) * scale);
+            data.setYValue(overlay.getY(i) * scale);
+
+            series.getData().add(data);
+        }
+
+        span.end(0, overlay.size(), 0);
+        return series;
+    }
+
+    /**
+     * Builds a closed outline of a polygon, e.g. a keep-out zone.
+     *
+     * @param xs    the x of each vertex, in meters
+     * @param ys    the y of each vertex, in meters
+     * @param scale the factor to convert meters to the display units
+     * @return the series, ending back at the first vertex
+     */
+    public static XYChart.Series<Double, Double> buildPolygonSeries(double[] xs, double[] ys, double scale) {
+        XYChart.Series<Double, Double> series = new XYChart.Series<>();
+        Metrics.Span span = Metrics.begin(Metrics.Phase.BUILD_SERIES);
+
+        for (int i = 0; i <= xs.length; i++) {
+            XYChart.Data<Double, Double> data = new XYChart.Data<>();
+
+            data.setXValue(xs[i % xs.length] * scale);
+            data.setYValue(ys[i % ys.length] * scale);
+
+            series.getData().add(data);
+        }
+
+        span.end(0, 0, 0);
+        return series;
+    }
+
+    public static XYChart.Series<Double, Double> buildOverlayVelocitySeries(TrackingComparison.Overlay overlay, double scale) {
+        XYChart.Series<Double, Double> series = new XYChart.Series<>();
+        Metrics.Span span = Metrics.begin(Metrics.Phase.BUILD_SERIES);
+
+        for (int i = 0; i < overlay.size(); i++) {
+            // Skip buckets that had no velocity to show
+            if (Double.isNaN(overlay.getVelocity(i)))
+                continue;
+
+            XYChart.Data<Double, Double> data = new XYChart.Data<>();
+
+            data.setXValue(overlay.getTime(i));
+            data.setYValue(overlay.getVelocity(i) * scale);
+
+            series.getData().add(data);
+        }
+
+        span.end(0, overlay.size(), 0);
         return series;
     }
 }